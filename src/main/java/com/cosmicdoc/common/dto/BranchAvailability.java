@@ -0,0 +1,7 @@
+package com.cosmicdoc.common.dto;
+
+/**
+ * How much of a medicine one branch holds, from the organization's availability index.
+ */
+public record BranchAvailability(String branchId, String medicineId, String name, String sku, long quantityInStock) {
+}
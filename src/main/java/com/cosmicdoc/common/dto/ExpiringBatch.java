@@ -0,0 +1,11 @@
+package com.cosmicdoc.common.dto;
+
+import com.google.cloud.Timestamp;
+
+/**
+ * One entry of a branch's expiry index: a medicine batch with the fields needed for
+ * near-expiry and expired-stock reports.
+ */
+public record ExpiringBatch(String medicineId, String batchId, String batchNo, Timestamp expiryDate,
+                            int quantityAvailable, double purchaseCost, double mrp) {
+}
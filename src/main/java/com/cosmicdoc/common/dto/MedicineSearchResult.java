@@ -0,0 +1,8 @@
+package com.cosmicdoc.common.dto;
+
+/**
+ * A ranked type-ahead match from the medicine catalog search.
+ */
+public record MedicineSearchResult(String medicineId, String name, String genericName, String manufacturer,
+                                   String sku, int quantityInStock, int score) {
+}
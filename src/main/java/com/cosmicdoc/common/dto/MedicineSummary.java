@@ -0,0 +1,17 @@
+package com.cosmicdoc.common.dto;
+
+import com.cosmicdoc.common.repository.Projection;
+
+/**
+ * Lightweight view of a Medicine for dropdowns and inventory grids.
+ */
+public record MedicineSummary(String medicineId, String name, int quantityInStock, String status) {
+
+    public static final Projection<MedicineSummary> PROJECTION = Projection.of(
+            doc -> {
+                Long quantity = doc.getLong("quantityInStock");
+                return new MedicineSummary(doc.getId(), doc.getString("name"),
+                        quantity != null ? quantity.intValue() : 0, doc.getString("status"));
+            },
+            "name", "quantityInStock", "status");
+}
@@ -0,0 +1,13 @@
+package com.cosmicdoc.common.dto;
+
+import com.google.cloud.Timestamp;
+
+import java.util.Map;
+
+/**
+ * The stock of a medicine at a point in time, as reconstructed from the stock ledger.
+ *
+ * @param batchQuantities Quantity per batch number.
+ */
+public record StockPosition(String medicineId, Timestamp asOf, long quantity, Map<String, Long> batchQuantities) {
+}
@@ -0,0 +1,17 @@
+package com.cosmicdoc.common.dto;
+
+import com.cosmicdoc.common.repository.Projection;
+
+/**
+ * Lightweight view of a Supplier for dropdowns and supplier lists.
+ */
+public record SupplierSummary(String supplierId, String name, String mobileNumber, double outstandingBalance, String status) {
+
+    public static final Projection<SupplierSummary> PROJECTION = Projection.of(
+            doc -> {
+                Double balance = doc.getDouble("outstandingBalance");
+                return new SupplierSummary(doc.getId(), doc.getString("name"), doc.getString("mobileNumber"),
+                        balance != null ? balance : 0.0, doc.getString("status"));
+            },
+            "name", "mobileNumber", "outstandingBalance", "status");
+}
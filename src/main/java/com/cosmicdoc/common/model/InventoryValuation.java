@@ -0,0 +1,26 @@
+package com.cosmicdoc.common.model;
+
+import com.google.cloud.Timestamp;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Running valuation of a branch's stock, kept at
+ * organizations/{org}/branches/{branch}/aggregates/inventory_valuation.
+ * Amounts are stored as integer paise, so increments from many stock changes add up exactly.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryValuation {
+    private String branchId;
+    private long unitsInStock;
+    @Builder.Default
+    private Money costValue = Money.ZERO; // Sum of purchaseCost x quantityAvailable over all batches
+    @Builder.Default
+    private Money mrpValue = Money.ZERO; // Sum of mrp x quantityAvailable over all batches
+    private Timestamp updatedAt;
+}
@@ -37,5 +37,11 @@ public class Medicine {
 
     private String status; // "ACTIVE" or "INACTIVE"
 
-    private int quantityInStock;
+    private int quantityInStock; // For sharded medicines, a cached total of the stock shards
+
+    private Integer stockShardCount; // Stock counter shards; null or 1 means quantityInStock is the live counter
+
+    private Long stockShardBase; // quantityInStock when the shard total was last cached; maintained by the repository
+
+    private Boolean lowStock; // quantityInStock below lowStockThreshold; maintained by the repository
 }
\ No newline at end of file
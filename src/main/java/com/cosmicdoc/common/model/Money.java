@@ -0,0 +1,291 @@
+package com.cosmicdoc.common.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An exact amount of money stored as a whole number of minor units plus a scale:
+ * {@code units = 12345, scale = 2} is 123.45 (12345 paise). Immutable.
+ * <p>
+ * Arithmetic is exact and overflow-checked; operations that divide (percentages, tax) round
+ * half up, away from zero. Amounts of different scales are aligned to the larger one.
+ * The static {@code long} helpers do the same arithmetic on raw paise without allocating, for
+ * hot loops such as invoice totalling; {@link #ofPaise(long)} wraps their result at the end.
+ * <p>
+ * In JSON a Money is a plain decimal number ({@code 123.45}). In Firestore it is stored as whole
+ * paise, see {@code MoneyCodec}, which also reads the legacy {@code double} fields.
+ */
+@JsonSerialize(using = Money.Serializer.class)
+@JsonDeserialize(using = Money.Deserializer.class)
+public final class Money implements Comparable<Money> {
+
+    /** Paise. */
+    public static final int DEFAULT_SCALE = 2;
+    public static final int MAX_SCALE = 9;
+    public static final Money ZERO = new Money(0, DEFAULT_SCALE);
+
+    /** Percentages are handled as basis points: 18% is 1800. */
+    public static final long BASIS_POINTS_PER_UNIT = 10_000;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L};
+
+    private final long units;
+    private final int scale;
+
+    private Money(long units, int scale) {
+        this.units = units;
+        this.scale = scale;
+    }
+
+    public static Money of(long units, int scale) {
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new IllegalArgumentException("Money scale must be between 0 and " + MAX_SCALE + ": " + scale);
+        }
+        return units == 0 && scale == DEFAULT_SCALE ? ZERO : new Money(units, scale);
+    }
+
+    public static Money ofPaise(long paise) {
+        return of(paise, DEFAULT_SCALE);
+    }
+
+    /**
+     * Converts a legacy {@code double} amount, rounding half up to paise. The double's shortest
+     * decimal form is used, so 1.005 becomes 1.01 rather than 1.00.
+     */
+    public static Money of(double amount) {
+        return ofPaise(toPaise(amount));
+    }
+
+    /**
+     * Converts a {@code BigDecimal} amount (as used by Order, Payment and Product), keeping its
+     * scale when it is at least 2 and at most {@link #MAX_SCALE}, otherwise rounding half up.
+     */
+    public static Money of(BigDecimal amount) {
+        int scale = Math.min(Math.max(amount.scale(), DEFAULT_SCALE), MAX_SCALE);
+        return of(amount.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact(), scale);
+    }
+
+    public static Money parse(String amount) {
+        return of(new BigDecimal(amount.trim()));
+    }
+
+    public long getUnits() {
+        return units;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    /** The amount in paise, rounding half up if the scale is finer. */
+    public long toPaise() {
+        return withScale(DEFAULT_SCALE).units;
+    }
+
+    // --- Arithmetic ---
+
+    public Money plus(Money other) {
+        int common = Math.max(scale, other.scale);
+        return of(Math.addExact(align(common), other.align(common)), common);
+    }
+
+    public Money minus(Money other) {
+        int common = Math.max(scale, other.scale);
+        return of(Math.subtractExact(align(common), other.align(common)), common);
+    }
+
+    public Money negate() {
+        return of(Math.negateExact(units), scale);
+    }
+
+    public Money abs() {
+        return units < 0 ? negate() : this;
+    }
+
+    public Money times(long quantity) {
+        return of(Math.multiplyExact(units, quantity), scale);
+    }
+
+    /** {@code percent}% of this amount, e.g. a 10% discount; the percentage is taken to two decimals. */
+    public Money percent(double percent) {
+        return of(percentOf(units, basisPoints(percent)), scale);
+    }
+
+    /** The tax on this amount when the tax is added on top (GST exclusive). */
+    public Money exclusiveTax(double ratePercent) {
+        return percent(ratePercent);
+    }
+
+    /** The tax contained in this amount (GST inclusive): {@code amount * rate / (100 + rate)}. */
+    public Money inclusiveTax(double ratePercent) {
+        return of(inclusiveTaxOf(units, basisPoints(ratePercent)), scale);
+    }
+
+    /** Rescales, rounding half up when the new scale is coarser. */
+    public Money withScale(int newScale) {
+        if (newScale == scale) {
+            return this;
+        }
+        if (newScale > scale) {
+            return of(align(newScale), newScale);
+        }
+        return of(divideHalfUp(units, POWERS_OF_TEN[scale - newScale]), newScale);
+    }
+
+    /** Rescales with the given rounding; unlike {@link #of(BigDecimal)} this keeps scales below 2. */
+    public Money withScale(int newScale, RoundingMode roundingMode) {
+        if (newScale >= scale || roundingMode == RoundingMode.HALF_UP) {
+            return withScale(newScale);
+        }
+        return of(toBigDecimal().setScale(newScale, roundingMode).unscaledValue().longValueExact(), newScale);
+    }
+
+    private long align(int targetScale) {
+        return Math.multiplyExact(units, POWERS_OF_TEN[targetScale - scale]);
+    }
+
+    // --- Comparison and conversion ---
+
+    public int signum() {
+        return Long.signum(units);
+    }
+
+    public boolean isZero() {
+        return units == 0;
+    }
+
+    public boolean isNegative() {
+        return units < 0;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        int common = Math.max(scale, other.scale);
+        return Long.compare(align(common), other.align(common));
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(units, scale);
+    }
+
+    /** For the legacy {@code double} fields; exact values map to the nearest double. */
+    public double toDouble() {
+        return (double) units / POWERS_OF_TEN[scale];
+    }
+
+    /** Equal amounts are equal regardless of scale: 1.5 equals 1.50. */
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Money other && compareTo(other) == 0);
+    }
+
+    @Override
+    public int hashCode() {
+        long normalized = units;
+        for (int s = scale; s > 0 && normalized % 10 == 0; s--) {
+            normalized /= 10;
+        }
+        return Long.hashCode(normalized);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+
+    // --- Allocation-free helpers on raw minor units ---
+
+    /** Divides, rounding half up (away from zero). */
+    public static long divideHalfUp(long numerator, long denominator) {
+        long quotient = numerator / denominator;
+        long remainder = numerator % denominator;
+        if (remainder != 0 && Math.abs(remainder) * 2 >= Math.abs(denominator)) {
+            quotient += (numerator < 0) == (denominator < 0) ? 1 : -1;
+        }
+        return quotient;
+    }
+
+    /** {@code basisPoints / 100} percent of {@code units}, rounded half up. */
+    public static long percentOf(long units, long basisPoints) {
+        return divideHalfUp(Math.multiplyExact(units, basisPoints), BASIS_POINTS_PER_UNIT);
+    }
+
+    /** The tax contained in a tax-inclusive amount of {@code units}, rounded half up. */
+    public static long inclusiveTaxOf(long units, long basisPoints) {
+        return divideHalfUp(Math.multiplyExact(units, basisPoints), BASIS_POINTS_PER_UNIT + basisPoints);
+    }
+
+    /** A percentage such as 18.0 or 12.5 as basis points (1800, 1250), rounded half up. */
+    public static long basisPoints(double percent) {
+        return toPaise(percent);
+    }
+
+    /**
+     * A legacy {@code double} amount as paise, rounded half up on its shortest decimal form.
+     * Only amounts that land within rounding error of half a paisa take the exact (allocating) path.
+     */
+    public static long toPaise(double amount) {
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+            throw new ArithmeticException("Not a finite amount: " + amount);
+        }
+        double scaled = amount * 100;
+        double fraction = Math.abs(scaled - Math.floor(scaled));
+        if (Math.abs(fraction - 0.5) > 1e-6 && Math.abs(scaled) < 1e15) {
+            return Math.round(scaled);
+        }
+        return BigDecimal.valueOf(amount).setScale(DEFAULT_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /** Paise as a {@code double} amount for the legacy fields. */
+    public static double toDouble(long paise) {
+        return paise / 100.0;
+    }
+
+    // --- Jackson codec ---
+
+    public static final class Serializer extends StdSerializer<Money> {
+        public Serializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public void serialize(Money value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeNumber(value.toBigDecimal());
+        }
+    }
+
+    /** Accepts numbers and numeric strings. */
+    public static final class Deserializer extends StdDeserializer<Money> {
+        public Deserializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public Money deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            JsonToken token = parser.currentToken();
+            if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                return of(parser.getDecimalValue());
+            }
+            if (token == JsonToken.VALUE_STRING) {
+                try {
+                    return parse(parser.getText());
+                } catch (NumberFormatException | ArithmeticException e) {
+                    return (Money) context.handleWeirdStringValue(Money.class, parser.getText(), "not a money amount");
+                }
+            }
+            return (Money) context.handleUnexpectedToken(Money.class, parser);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.cosmicdoc.common.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sales rollup of a branch for one day ("2025-06-30", stored under sales_daily)
+ * or one month ("2025-06", derived from the daily rollups).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesSummary {
+    private String period;
+    private long count;
+    @Builder.Default
+    private Money grandTotal = Money.ZERO;
+    @Builder.Default
+    private Money totalTaxAmount = Money.ZERO;
+    @Builder.Default
+    private Money totalDiscountAmount = Money.ZERO;
+    @Builder.Default
+    private Map<String, SalesTotals> byPaymentMode = new HashMap<>(); // Keyed by PaymentMode name
+    @Builder.Default
+    private Map<String, SalesTotals> byGstType = new HashMap<>(); // Keyed by GstType name
+
+    /**
+     * Adds another summary into this one, e.g. to build a month out of days.
+     */
+    public void add(SalesSummary other) {
+        count += other.count;
+        grandTotal = grandTotal.plus(other.grandTotal);
+        totalTaxAmount = totalTaxAmount.plus(other.totalTaxAmount);
+        totalDiscountAmount = totalDiscountAmount.plus(other.totalDiscountAmount);
+        if (other.byPaymentMode != null) {
+            other.byPaymentMode.forEach((mode, totals) -> byPaymentMode.computeIfAbsent(mode, key -> new SalesTotals()).add(totals));
+        }
+        if (other.byGstType != null) {
+            other.byGstType.forEach((type, totals) -> byGstType.computeIfAbsent(type, key -> new SalesTotals()).add(totals));
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.cosmicdoc.common.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Count and money totals of a group of sales. Amounts are exact, so sums over many days do not drift.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesTotals {
+    private long count;
+    @Builder.Default
+    private Money grandTotal = Money.ZERO;
+    @Builder.Default
+    private Money totalTaxAmount = Money.ZERO;
+    @Builder.Default
+    private Money totalDiscountAmount = Money.ZERO;
+
+    public void add(SalesTotals other) {
+        count += other.count;
+        grandTotal = grandTotal.plus(other.grandTotal);
+        totalTaxAmount = totalTaxAmount.plus(other.totalTaxAmount);
+        totalDiscountAmount = totalDiscountAmount.plus(other.totalDiscountAmount);
+    }
+}
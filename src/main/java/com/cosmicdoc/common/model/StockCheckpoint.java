@@ -0,0 +1,27 @@
+package com.cosmicdoc.common.model;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.annotation.DocumentId;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * The stock of one medicine as of a point in time, written by ledger compaction.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockCheckpoint {
+    @DocumentId
+    private String checkpointId;
+    private String medicineId;
+    private Timestamp asOf;
+    private long quantity;
+    private Map<String, Long> batchQuantities; // Keyed by batch number
+    private long movementCount; // Movements folded in since the ledger started
+}
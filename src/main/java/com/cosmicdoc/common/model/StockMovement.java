@@ -0,0 +1,30 @@
+package com.cosmicdoc.common.model;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.annotation.DocumentId;
+import com.google.cloud.firestore.annotation.ServerTimestamp;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One entry of a branch's append-only stock ledger.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovement {
+    @DocumentId
+    private String movementId;
+    private String medicineId;
+    private String batchNo; // Batches are keyed by batch number, which every stock document carries
+    private String batchId; // Known for purchases and sales, null for returns
+    private StockMovementType type;
+    private int quantityChange; // Positive for stock coming in, negative for stock going out
+    private String sourceId; // The sale, purchase or return that caused the movement
+    private String createdBy;
+    @ServerTimestamp
+    private Timestamp occurredAt;
+}
@@ -0,0 +1,10 @@
+package com.cosmicdoc.common.model;
+
+public enum StockMovementType {
+    PURCHASE,
+    SALE,
+    SALES_RETURN,
+    PURCHASE_RETURN,
+    ADJUSTMENT,
+    OPENING_BALANCE // Stock that predates the ledger, written by StockLedgerRepository.backfillOpeningBalances
+}
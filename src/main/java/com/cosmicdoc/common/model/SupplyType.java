@@ -0,0 +1,10 @@
+package com.cosmicdoc.common.model;
+
+/**
+ * Where an invoice's supply takes place relative to the seller: within the state it is taxed as
+ * CGST + SGST (or UTGST), across states as IGST.
+ */
+public enum SupplyType {
+    INTRA_STATE,
+    INTER_STATE
+}
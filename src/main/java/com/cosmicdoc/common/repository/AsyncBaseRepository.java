@@ -0,0 +1,20 @@
+package com.cosmicdoc.common.repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link BaseRepository}.
+ * <p>
+ * Every method returns immediately; the Firestore RPC completes the returned future.
+ * This lets callers fan out several reads at once and compose them, e.g. with
+ * {@link CompletableFuture#allOf(CompletableFuture[])}, instead of waiting on each in turn.
+ */
+public interface AsyncBaseRepository<T, ID> {
+    CompletableFuture<List<T>> findAllAsync();
+    CompletableFuture<Optional<T>> findByIdAsync(ID id);
+    CompletableFuture<T> saveAsync(T entity);
+    CompletableFuture<Void> deleteByIdAsync(ID id);
+    CompletableFuture<Boolean> existsByIdAsync(ID id);
+}
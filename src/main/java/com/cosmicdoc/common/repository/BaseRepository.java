@@ -1,7 +1,9 @@
 package com.cosmicdoc.common.repository;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface BaseRepository<T, ID> {
     List<T> findAll();
@@ -9,4 +11,58 @@ public interface BaseRepository<T, ID> {
     T save(T entity);
     void deleteById(ID id);
     boolean existsById(ID id);
+
+    /**
+     * Saves the entity without reading it back afterwards.
+     * <p>
+     * Unlike {@link #save(Object)}, this returns the entity as written plus the server
+     * update time, saving one document read and one round trip per write.
+     * Implementations without a server timestamp fall back to {@link #save(Object)}.
+     */
+    default SaveResult<T> saveWriteOnly(T entity) {
+        return new SaveResult<>(save(entity), null, null);
+    }
+
+    /**
+     * Streams every entity of the collection in pages of {@code pageSize}.
+     * Close the stream when stopping early. Implementations that are not paged
+     * fall back to {@link #findAll()}.
+     */
+    default Stream<T> streamAll(int pageSize) {
+        return findAll().stream();
+    }
+
+    /**
+     * Saves every entity and reports the outcome per entity instead of failing on the first error.
+     * The default implementation saves one entity at a time.
+     */
+    default BulkWriteResult saveAll(List<T> entities) {
+        List<BulkWriteResult.DocumentOutcome> outcomes = new ArrayList<>(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            try {
+                save(entities.get(i));
+                outcomes.add(new BulkWriteResult.DocumentOutcome(i, null, null, null));
+            } catch (RuntimeException e) {
+                outcomes.add(new BulkWriteResult.DocumentOutcome(i, null, null, e));
+            }
+        }
+        return new BulkWriteResult(outcomes);
+    }
+
+    /**
+     * Deletes every entity by ID and reports the outcome per ID.
+     * The default implementation deletes one entity at a time.
+     */
+    default BulkWriteResult deleteAll(List<ID> ids) {
+        List<BulkWriteResult.DocumentOutcome> outcomes = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            try {
+                deleteById(ids.get(i));
+                outcomes.add(new BulkWriteResult.DocumentOutcome(i, ids.get(i).toString(), null, null));
+            } catch (RuntimeException e) {
+                outcomes.add(new BulkWriteResult.DocumentOutcome(i, ids.get(i).toString(), null, e));
+            }
+        }
+        return new BulkWriteResult(outcomes);
+    }
 }
@@ -6,10 +6,22 @@ import com.google.cloud.firestore.WriteBatch;
 import java.util.List;
 import java.util.Optional;
 
-public interface BranchRepository extends BaseRepository <Branch,String>{
+public interface BranchRepository extends BaseRepository <Branch,String>, AsyncBaseRepository<Branch, String>{
     public void saveInTransaction(WriteBatch batch, String organizationId, Branch branch);
     Branch save(String organizationId, Branch branch);
     Optional<Branch> findById(String organizationId, String branchId);
     Optional<Branch> findFirstByOrganizationId(String organizationId);
     List<Branch>findAllByOrganizationId(String organizationId);
+
+    /**
+     * Saves many branches of an organization at once through the bulk write pipeline,
+     * reporting the outcome per branch.
+     */
+    BulkWriteResult saveAll(String organizationId, List<Branch> branches);
+
+    /**
+     * Permanently deletes a branch with all of its medicines, batches, sales, purchases and
+     * returns. Safe to run again if it fails part way.
+     */
+    void deleteByIdHard(String organizationId, String branchId);
 }
@@ -0,0 +1,48 @@
+package com.cosmicdoc.common.repository;
+
+import com.google.cloud.Timestamp;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The per-document outcome of a bulk save or delete.
+ * A bulk write never fails as a whole because of individual documents; callers inspect
+ * {@link #getFailed()} to retry or report the documents that could not be written.
+ */
+@Data
+@AllArgsConstructor
+public class BulkWriteResult {
+
+    private List<DocumentOutcome> outcomes;
+
+    public List<DocumentOutcome> getSucceeded() {
+        return outcomes.stream().filter(DocumentOutcome::isSuccess).collect(Collectors.toList());
+    }
+
+    public List<DocumentOutcome> getFailed() {
+        return outcomes.stream().filter(outcome -> !outcome.isSuccess()).collect(Collectors.toList());
+    }
+
+    public boolean isAllSucceeded() {
+        return outcomes.stream().allMatch(DocumentOutcome::isSuccess);
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class DocumentOutcome {
+        /**
+         * The position of the document in the input list.
+         */
+        private int index;
+        private String documentId;
+        private Timestamp updateTime; // null when the write failed
+        private Throwable error;      // null when the write succeeded
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+}
@@ -3,6 +3,6 @@ package com.cosmicdoc.common.repository;
 import com.cosmicdoc.common.model.Doctor;
 import java.util.Optional;
 
-public interface DoctorRepository extends BaseRepository<Doctor, String> {
+public interface DoctorRepository extends BaseRepository<Doctor, String>, AsyncBaseRepository<Doctor, String> {
     Optional<Doctor> findByEmail(String email);
 }
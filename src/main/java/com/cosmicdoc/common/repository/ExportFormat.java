@@ -0,0 +1,11 @@
+package com.cosmicdoc.common.repository;
+
+/**
+ * Output formats of the transaction export. Both write one flat row per line item.
+ */
+public enum ExportFormat {
+    /** RFC 4180 CSV with a header row. */
+    CSV,
+    /** One JSON object per line, keyed by the same column names as the CSV header. */
+    JSON_LINES
+}
@@ -0,0 +1,8 @@
+package com.cosmicdoc.common.repository;
+
+/**
+ * What a transaction export wrote: the number of source documents and the number
+ * of flattened rows (one per line item, or one for a document without items).
+ */
+public record ExportResult(long documents, long rows) {
+}
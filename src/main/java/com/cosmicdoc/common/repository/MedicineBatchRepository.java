@@ -1,24 +1,122 @@
 package com.cosmicdoc.common.repository;
 
+import com.cosmicdoc.common.dto.ExpiringBatch;
+import com.cosmicdoc.common.model.InventoryValuation;
 import com.cosmicdoc.common.model.MedicineBatch;
+import com.cosmicdoc.common.model.SaleItem;
+import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.Transaction;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 
 public interface MedicineBatchRepository {
+    /**
+     * Creates or overwrites the batch and adds its full quantity to the branch inventory valuation,
+     * so re-saving an existing batch through it counts that batch's stock twice.
+     *
+     * @deprecated Use {@link #createInTransaction} for new batches and the overload taking the
+     *             previous version to rewrite existing ones; {@link #rebuildInventoryValuation} corrects the drift.
+     */
+    @Deprecated
     public void saveInTransaction(Transaction transaction, String orgId, String branchId, String medicineId, MedicineBatch batch);
+    /**
+     * Creates the batch and adds its full quantity to the branch inventory valuation. The commit
+     * fails if the batch already exists; rewrite an existing batch with the overload of
+     * saveInTransaction taking the previous version, or change its quantity with
+     * {@link #updateStockInTransaction(Transaction, String, String, String, MedicineBatch, int)}.
+     */
+    void createInTransaction(Transaction transaction, String orgId, String branchId, String medicineId, MedicineBatch batch);
+    /**
+     * Rewrites a batch, moving the inventory valuation from {@code previous} (as read in the same
+     * transaction; null for a new batch) to {@code batch}.
+     */
+    void saveInTransaction(Transaction transaction, String orgId, String branchId, String medicineId,
+                           MedicineBatch batch, MedicineBatch previous);
     List<MedicineBatch> findAvailableBatches(Transaction transaction, String orgId, String branchId, String medicineId)
             throws ExecutionException, InterruptedException;
+    /**
+     * Fetches the available batches of several medicines at once, issuing every query in parallel
+     * within the transaction. Batches are keyed by medicine ID, soonest expiry first.
+     */
+    Map<String, List<MedicineBatch>> findAvailableBatches(Transaction transaction, String orgId, String branchId, Collection<String> medicineIds)
+            throws ExecutionException, InterruptedException;
+    /**
+     * Allocates stock for a whole sale using First-Expiry-First-Out in one read round trip.
+     * Sets each item's {@code batchAllocations} and stages every stock decrement on the transaction.
+     *
+     * @throws IllegalArgumentException if any item's quantity is not positive; nothing is read or staged then.
+     * @throws IllegalStateException if any medicine does not have enough stock; nothing is staged then.
+     */
+    void allocateFefoInTransaction(Transaction transaction, String orgId, String branchId, List<SaleItem> items)
+            throws ExecutionException, InterruptedException;
+    /**
+     * Changes the batch's quantity without touching the branch inventory valuation.
+     *
+     * @deprecated Bypasses the inventory valuation; use the overload taking the batch, or run
+     *             {@link #rebuildInventoryValuation} after stock was changed through this one.
+     */
+    @Deprecated
     void updateStockInTransaction(Transaction transaction, String orgId, String branchId, String medicineId, String batchId, int quantityChange);
+    /**
+     * Like the batch-ID variant, and also applies the change to the branch inventory valuation
+     * using the batch's purchaseCost and mrp.
+     */
+    void updateStockInTransaction(Transaction transaction, String orgId, String branchId, String medicineId, MedicineBatch batch, int quantityChange);
     List<MedicineBatch> findAllBatchesForMedicine(String orgId, String branchId, String medicineId);
     Optional<MedicineBatch> findByBatchNo(Transaction transaction, String orgId, String branchId, String medicineId, String batchNo)
             throws ExecutionException, InterruptedException;
 
+    /**
+     * Deletes the batch without removing its stock from the branch inventory valuation.
+     *
+     * @deprecated Bypasses the inventory valuation; use the overload taking the batch, or run
+     *             {@link #rebuildInventoryValuation} afterwards.
+     */
+    @Deprecated
     public void deleteByIdInTransaction(Transaction transaction, String orgId, String branchId, String medicineId, String batchId) ;
+    /**
+     * Like the batch-ID variant, and also removes the batch's remaining stock from the branch inventory valuation.
+     */
+    void deleteByIdInTransaction(Transaction transaction, String orgId, String branchId, String medicineId, MedicineBatch batch);
     Optional<MedicineBatch> findById(Transaction transaction, String orgId, String branchId, String medicineId, String batchId)
             throws ExecutionException, InterruptedException;
     List<DocumentSnapshot> getAll(Transaction transaction, String orgId, String branchId, String medicineId, List<String> batchIds) throws ExecutionException, InterruptedException;
+
+    /**
+     * Lists the branch's batches with stock whose expiry date falls in {@code [from, to)}, soonest
+     * first, from the branch expiry index in one range read. Pass {@code null} as {@code from} for
+     * everything expiring before {@code to}, e.g. already expired stock with {@code to = now}.
+     */
+    List<ExpiringBatch> findBatchesExpiringBetween(String orgId, String branchId, Timestamp from, Timestamp to);
+
+    /**
+     * Rebuilds the branch expiry index from the batches of every medicine, e.g. to backfill
+     * branches that hold batches written before the index existed.
+     *
+     * @return The number of index entries written.
+     */
+    int rebuildExpiryIndex(String orgId, String branchId);
+
+    /**
+     * Reads the branch's running inventory valuation (a single document).
+     */
+    Optional<InventoryValuation> findInventoryValuation(String orgId, String branchId);
+
+    /**
+     * Reads the valuations of several branches with one getAll, keyed by branch ID.
+     * Branches without a valuation yet are left out.
+     */
+    Map<String, InventoryValuation> findInventoryValuations(String orgId, Collection<String> branchIds);
+
+    /**
+     * Recomputes the branch valuation from all of its batches and overwrites the running one.
+     * Used to backfill existing branches, or to correct stock changed through the deprecated batch-ID variants.
+     * Stock changes committed while it runs may be lost, so run it when the branch is quiet.
+     */
+    InventoryValuation rebuildInventoryValuation(String orgId, String branchId);
 }
@@ -1,21 +1,76 @@
 package com.cosmicdoc.common.repository;
 
+import com.cosmicdoc.common.dto.BranchAvailability;
+import com.cosmicdoc.common.dto.MedicineSearchResult;
 import com.cosmicdoc.common.model.Medicine;
+import com.cosmicdoc.common.repository.cache.DocumentBatchLoader;
+import com.cosmicdoc.common.repository.cache.LowStockEvent;
+import com.cosmicdoc.common.repository.cache.LowStockWatch;
 import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.Transaction;
 import com.google.cloud.firestore.WriteBatch;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface MedicineRepository  {
     // Note: All methods require orgId and branchId to build the correct path.
     Medicine save(String organizationId, String branchId, Medicine medicine);
     Optional<Medicine> findById(String organizationId, String branchId, String medicineId);
+    /**
+     * Queues the lookup on {@code loader} so that lookups issued together are fetched with one getAll.
+     */
+    CompletableFuture<Optional<Medicine>> findById(DocumentBatchLoader loader, String organizationId, String branchId, String medicineId);
     List<Medicine> findAllByBranchId(String organizationId, String branchId);
+    /**
+     * Lists the branch's medicines fetching only the fields of the given projection,
+     * e.g. {@code findAllByBranchId(orgId, branchId, MedicineSummary.PROJECTION)}.
+     */
+    <P> List<P> findAllByBranchId(String organizationId, String branchId, Projection<P> projection);
+    /**
+     * Streams all medicines of the branch in pages of {@code pageSize} instead of loading
+     * them into a single list. Close the stream when stopping early.
+     */
+    Stream<Medicine> streamAllByBranchId(String organizationId, String branchId, int pageSize);
+    /**
+     * Increments {@code quantityInStock} without reading the medicine. On a sharded medicine the
+     * change stays outside the shards until {@link #refreshStockTotal} folds it in, and it is
+     * included in {@link #getStockLevel} meanwhile; prefer the overloads taking the Medicine.
+     * The commit fails if the medicine has no availability index row yet; run
+     * {@link #rebuildAvailabilityIndex} for branches whose medicines predate the index.
+     */
     void updateStockInTransaction(Transaction batch, String organizationId, String branchId, String medicineId, int quantityChange);
     void deleteById(String organizationId, String branchId, String medicineId);
+    /**
+     * Like the Transaction variant, including its need for an availability index row.
+     */
     public void updateStockInTransaction(WriteBatch batch, String organizationId, String branchId, String medicineId, int quantityChange);
+    /**
+     * Stages a stock change that honours the medicine's {@code stockShardCount}: sharded medicines
+     * get one random shard incremented, others get {@code quantityInStock} incremented as before.
+     * Also keeps the {@code lowStock} flag of an unsharded medicine current; a sharded one's flag
+     * follows its total when {@link #refreshStockTotal} runs.
+     */
+    void updateStockInTransaction(Transaction transaction, String organizationId, String branchId, Medicine medicine, int quantityChange);
+    void updateStockInTransaction(WriteBatch batch, String organizationId, String branchId, Medicine medicine, int quantityChange);
+    /**
+     * Returns the live stock level, adding up the shards of a sharded medicine.
+     */
+    long getStockLevel(String organizationId, String branchId, String medicineId);
+    /**
+     * Rewrites the cached {@code quantityInStock} of a sharded medicine from its shards, for listings,
+     * after folding stock changed through the id-based overloads into a shard, and sets its
+     * {@code lowStock} flag from that total.
+     */
+    long refreshStockTotal(String organizationId, String branchId, String medicineId);
+    /**
+     * Migrates a medicine to {@code shardCount} stock shards, or back to a single counter when it is 1.
+     * The current stock is carried over atomically.
+     */
+    void setStockShardCount(String organizationId, String branchId, String medicineId, int shardCount);
     List<DocumentSnapshot> getAll(Transaction transaction, String orgId, String branchId, List<String> medicineIds) throws ExecutionException, InterruptedException;
     List<Medicine> findAllByIds(String orgId, String branchId, List<String> medicineIds);
     Optional<Medicine> findById(Transaction transaction, String orgId, String branchId, String medicineId) throws ExecutionException, InterruptedException;
@@ -29,4 +84,56 @@ public interface MedicineRepository  {
      * @param medicineId The ID of the medicine to delete.
      */
     void deleteByIdHard(String organizationId, String branchId, String medicineId);
-}
\ No newline at end of file
+
+    /**
+     * Saves many medicines of a branch at once (e.g. catalog imports) through the bulk write
+     * pipeline, reporting the outcome per medicine instead of failing on the first error.
+     */
+    BulkWriteResult saveAll(String organizationId, String branchId, List<Medicine> medicines);
+
+    /**
+     * Soft-deletes many medicines at once by marking them INACTIVE, like {@link #deleteById}.
+     */
+    BulkWriteResult deleteAll(String organizationId, String branchId, List<String> medicineIds);
+
+    /**
+     * Lists the branch's medicines below their low-stock threshold. Reads only those medicines.
+     */
+    List<Medicine> findLowStockByBranchId(String organizationId, String branchId);
+
+    /**
+     * Starts watching the branch's low-stock medicines, calling {@code listener} whenever one crosses
+     * its threshold. Close the returned watch to stop listening.
+     */
+    LowStockWatch watchLowStock(String organizationId, String branchId, Consumer<LowStockEvent> listener);
+
+    /**
+     * Recomputes the {@code lowStock} flag of every medicine in the branch, e.g. to backfill it or
+     * after stock was changed without going through the Medicine-based stock update.
+     *
+     * @return The number of medicines whose flag was corrected.
+     * @throws RuntimeException If any flag could not be written; running it again retries them.
+     */
+    int refreshLowStockFlags(String organizationId, String branchId);
+
+    /**
+     * Lists the branches of the organization holding a medicine, matched by normalized name or SKU,
+     * most stock first. One query against the organization's availability index.
+     */
+    List<BranchAvailability> findAvailabilityAcrossBranches(String orgId, String nameOrSku);
+
+    /**
+     * Rewrites the branch's rows in the organization availability index from its medicines,
+     * e.g. to backfill branches created before the index existed.
+     *
+     * @return The number of rows written.
+     */
+    int rebuildAvailabilityIndex(String organizationId, String branchId);
+
+    /**
+     * Type-ahead search over the branch's active medicines by partial name, generic name,
+     * manufacturer or SKU, best matches first. Without a loaded in-memory index for the branch, only
+     * medicines whose name or SKU starts with the query are found.
+     */
+    List<MedicineSearchResult> searchByBranchId(String organizationId, String branchId, String query, int limit);
+}
@@ -6,7 +6,12 @@ import com.google.cloud.firestore.WriteBatch;
 
 import java.util.Optional;
 
-public interface OrganizationRepository extends BaseRepository <Organization,String>{
+public interface OrganizationRepository extends BaseRepository <Organization,String>, AsyncBaseRepository<Organization, String>{
    Optional<Organization>  findByOrganizationName(String orgName);
    void saveInTransaction(WriteBatch batch, Organization org);
+   /**
+    * Permanently deletes an organization with all of its branches and their data.
+    * Safe to run again if it fails part way.
+    */
+   void deleteByIdHard(String orgId);
 }
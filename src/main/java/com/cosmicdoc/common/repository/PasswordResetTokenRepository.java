@@ -8,7 +8,7 @@ import java.util.Optional;
 /**
  * Repository interface for managing PasswordResetToken entities in Firestore.
  */
-public interface PasswordResetTokenRepository extends BaseRepository<PasswordResetToken, String> {
+public interface PasswordResetTokenRepository extends BaseRepository<PasswordResetToken, String>, AsyncBaseRepository<PasswordResetToken, String> {
 
     /**
      * Finds a token by its value (which is also its document ID).
@@ -4,7 +4,7 @@ import com.cosmicdoc.common.model.PatientRecord;
 
 import java.util.List;
 
-public interface PatientRecordRepository extends BaseRepository<PatientRecord, String> {
+public interface PatientRecordRepository extends BaseRepository<PatientRecord, String>, AsyncBaseRepository<PatientRecord, String> {
     List<PatientRecord> findByPatientId(String patientId);
     List<PatientRecord> findByDoctorId(String doctorId);
 }
@@ -0,0 +1,41 @@
+package com.cosmicdoc.common.repository;
+
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Query;
+
+import java.util.function.Function;
+
+/**
+ * A typed field projection: the document fields to fetch with Firestore's {@code select(...)}
+ * and how to map the partial document into a lightweight result type.
+ * <p>
+ * Only the selected fields travel over the wire and nothing is deserialized through
+ * {@code toObject}, which keeps list endpoints and dropdowns cheap.
+ */
+public final class Projection<P> {
+
+    private final String[] fields;
+    private final Function<DocumentSnapshot, P> mapper;
+
+    private Projection(String[] fields, Function<DocumentSnapshot, P> mapper) {
+        this.fields = fields;
+        this.mapper = mapper;
+    }
+
+    /**
+     * @param mapper Builds the result from a snapshot that only contains the selected fields
+     *               (the document ID is always available through {@link DocumentSnapshot#getId()}).
+     * @param fields The field paths to fetch.
+     */
+    public static <P> Projection<P> of(Function<DocumentSnapshot, P> mapper, String... fields) {
+        return new Projection<>(fields.clone(), mapper);
+    }
+
+    public Query applyTo(Query query) {
+        return query.select(fields);
+    }
+
+    public P map(DocumentSnapshot document) {
+        return mapper.apply(document);
+    }
+}
@@ -6,11 +6,17 @@ import com.google.cloud.firestore.WriteBatch;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
 
 public interface PurchaseRepository  {
     // Note context: orgId and branchId
     Optional<Purchase> findById(String organizationId, String branchId, String purchaseId);
     List<Purchase> findAllByBranchId(String organizationId, String branchId);
+    /**
+     * Streams all purchases of the branch in pages of {@code pageSize} instead of loading
+     * them into a single list. Close the stream when stopping early.
+     */
+    Stream<Purchase> streamAllByBranchId(String organizationId, String branchId, int pageSize);
     // For transactional saves during the purchase process
     void saveInTransaction(WriteBatch batch, String organizationId, String branchId, Purchase purchase);
     /**
@@ -6,10 +6,16 @@ import com.google.cloud.firestore.WriteBatch;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface PurchaseReturnRepository  {
     Optional<PurchaseReturn> findById(String organizationId, String branchId, String purchaseReturnId);
     void saveInTransaction(Transaction transaction, String organizationId, String branchId, PurchaseReturn purchaseReturn);
     List<PurchaseReturn> findAllByBranchId(String organizationId, String branchId);
+    /**
+     * Streams all purchase returns of the branch in pages of {@code pageSize} instead of loading
+     * them into a single list. Close the stream when stopping early.
+     */
+    Stream<PurchaseReturn> streamAllByBranchId(String organizationId, String branchId, int pageSize);
     List<PurchaseReturn> findAllBySupplierId(String organizationId, String branchId, String supplierId);
 }
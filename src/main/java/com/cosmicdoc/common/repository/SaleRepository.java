@@ -1,23 +1,91 @@
 package com.cosmicdoc.common.repository;
 
 import com.cosmicdoc.common.model.Sale;
+import com.cosmicdoc.common.model.SalesSummary;
 import com.google.cloud.firestore.Transaction;
 import com.google.cloud.firestore.WriteBatch;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface SaleRepository  {
     Optional<Sale> findById(String organizationId, String branchId, String saleId);
     List<Sale> findAllByBranchId(String organizationId, String branchId);
-    // For transactional saves during the sales process
+    /**
+     * Streams all sales of the branch in pages of {@code pageSize} instead of loading
+     * them into a single list. Close the stream when stopping early.
+     */
+    Stream<Sale> streamAllByBranchId(String organizationId, String branchId, int pageSize);
+    /**
+     * Sets the sale and adds it to its day's rollup and the stock ledger, so re-saving an existing
+     * sale through it counts the sale twice.
+     *
+     * @deprecated Use {@link #createInTransaction} for new sales and
+     *             {@link #saveInTransaction(Transaction, Sale, Sale)} for edits.
+     */
+    @Deprecated
     void saveInTransaction(WriteBatch batch, String organizationId, String branchId, Sale sale);
+    /**
+     * Like the WriteBatch variant.
+     *
+     * @deprecated Use {@link #saveInTransaction(Transaction, Sale, Sale)}, with a null previous
+     *             sale for a new one.
+     */
+    @Deprecated
     public void saveInTransaction(Transaction transaction, Sale sale);
+    /**
+     * Creates a new sale and adds it to its day's rollup and the stock ledger. The commit fails if
+     * the sale already exists.
+     */
+    void createInTransaction(WriteBatch batch, String organizationId, String branchId, Sale sale);
+    /**
+     * Saves an edited sale, moving its rollup contribution from {@code previous} (as read in
+     * the same transaction) to {@code sale}. With a null {@code previous} the sale is created,
+     * and the commit fails if it already exists.
+     */
+    void saveInTransaction(Transaction transaction, Sale sale, Sale previous);
     Optional<Sale> findById(Transaction transaction, String orgId, String branchId, String saleId)
             throws java.util.concurrent.ExecutionException, java.lang.InterruptedException;
 
     List<Sale> findAllByBranchIdAndDate(String orgId, String branchId, LocalDate date);
 
+    /**
+     * Deletes the sale without touching the rollups, leaving its day's summary too high.
+     *
+     * @deprecated Use {@link #deleteByIdInTransaction(Transaction, String, String, Sale)} with the
+     *             sale read in the same transaction, or run {@link #rebuildDailySummary} afterwards.
+     */
+    @Deprecated
     void deleteByIdInTransaction(Transaction transaction, String orgId, String branchId, String saleId);
+
+    /**
+     * Deletes the sale (as read in the same transaction) and removes it from its day's rollup.
+     */
+    void deleteByIdInTransaction(Transaction transaction, String orgId, String branchId, Sale sale);
+
+    /**
+     * Reads the rollup of a single UTC day, maintained alongside the sale writes.
+     */
+    Optional<SalesSummary> findDailySummary(String orgId, String branchId, LocalDate date);
+
+    /**
+     * Reads the daily rollups from {@code from} to {@code to}, both inclusive, in date order.
+     * Days without sales are omitted.
+     */
+    List<SalesSummary> findDailySummaries(String orgId, String branchId, LocalDate from, LocalDate to);
+
+    /**
+     * Sums the daily rollups of the month. Never null; a month without sales has zero totals.
+     */
+    SalesSummary findMonthlySummary(String orgId, String branchId, YearMonth month);
+
+    /**
+     * Recomputes a day's rollup from its sales, for backfilling sales written before rollups
+     * existed or repairing drift. The sales are read in the transaction that rewrites the rollup,
+     * so sales written meanwhile are not lost.
+     */
+    SalesSummary rebuildDailySummary(String orgId, String branchId, LocalDate date);
 }
@@ -6,6 +6,7 @@ import com.google.cloud.firestore.WriteBatch;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface SalesReturnRepository  {
     /**
@@ -17,6 +18,11 @@ public interface SalesReturnRepository  {
      */
     Optional<SalesReturn> findById(String organizationId, String branchId, String salesReturnId);
     List<SalesReturn> findAllByBranchId(String organizationId, String branchId);
+    /**
+     * Streams all sales returns of the branch in pages of {@code pageSize} instead of loading
+     * them into a single list. Close the stream when stopping early.
+     */
+    Stream<SalesReturn> streamAllByBranchId(String organizationId, String branchId, int pageSize);
     void saveInTransaction(Transaction transaction, String organizationId, String branchId, SalesReturn salesReturn);
 
 }
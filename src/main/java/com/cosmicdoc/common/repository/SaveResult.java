@@ -0,0 +1,17 @@
+package com.cosmicdoc.common.repository;
+
+import com.google.cloud.Timestamp;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * The outcome of a write-only save: the entity exactly as it was written,
+ * plus the server-side update time reported by Firestore's WriteResult.
+ */
+@Data
+@AllArgsConstructor
+public class SaveResult<T> {
+    private T entity;
+    private String id;
+    private Timestamp updateTime;
+}
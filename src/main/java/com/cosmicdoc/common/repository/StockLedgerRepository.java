@@ -0,0 +1,57 @@
+package com.cosmicdoc.common.repository;
+
+import com.cosmicdoc.common.dto.StockPosition;
+import com.cosmicdoc.common.model.StockMovement;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.Transaction;
+import com.google.cloud.firestore.WriteBatch;
+
+import java.util.List;
+
+/**
+ * Append-only ledger of a branch's stock movements, with compaction into per-medicine checkpoints.
+ * The sale, purchase and return repositories record their movements in their saveInTransaction
+ * paths (an edited or deleted sale appends the reversal of its previous movements; purchases and
+ * returns keep one entry per line, rewritten when the document is saved again and dated by the
+ * document, and such a re-save is rejected with an IllegalStateException once its entries have been
+ * compacted; record a correction through a return or an adjustment instead). Other stock
+ * changes, e.g. adjustments, build movements with {@link StockMovements} and append them in the
+ * same transaction or batch that changes the stock.
+ */
+public interface StockLedgerRepository {
+    void appendInTransaction(Transaction transaction, String orgId, String branchId, List<StockMovement> movements);
+    void appendInTransaction(WriteBatch batch, String orgId, String branchId, List<StockMovement> movements);
+
+    /**
+     * Lists a medicine's movements with {@code from < occurredAt <= to}, oldest first.
+     * A null {@code from} starts at the beginning of the ledger.
+     */
+    List<StockMovement> findMovements(String orgId, String branchId, String medicineId, Timestamp from, Timestamp to);
+
+    /**
+     * Reconstructs the medicine's stock at {@code at} from the latest checkpoint at or before it,
+     * plus the movements after that checkpoint.
+     */
+    StockPosition findStockAt(String orgId, String branchId, String medicineId, Timestamp at);
+
+    /**
+     * Folds the movements since the previous compaction, up to {@code upTo}, into new checkpoints for
+     * the medicines they touch. Movements are kept. Pass a time a few minutes in the past so that
+     * transactions still committing are not skipped.
+     *
+     * @return The number of checkpoints written.
+     */
+    int compact(String orgId, String branchId, Timestamp upTo);
+
+    /**
+     * Writes opening-balance movements so the ledger agrees with the branch's current stock, e.g. for
+     * stock that predates the ledger. Each batch opens with its quantity minus the movements already
+     * recorded for it, and one entry without a batch takes up the rest of the medicine's total.
+     * Entries are rewritten in place, so running it again is harmless, but it is not safe against
+     * concurrent stock changes and must run before the first {@link #compact}.
+     *
+     * @return The number of opening-balance movements written.
+     * @throws IllegalStateException If the branch's ledger has already been compacted.
+     */
+    int backfillOpeningBalances(String orgId, String branchId, String createdBy);
+}
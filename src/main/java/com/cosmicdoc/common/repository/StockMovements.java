@@ -0,0 +1,116 @@
+package com.cosmicdoc.common.repository;
+
+import com.cosmicdoc.common.model.BatchAllocation;
+import com.cosmicdoc.common.model.Purchase;
+import com.cosmicdoc.common.model.PurchaseItem;
+import com.cosmicdoc.common.model.PurchaseReturn;
+import com.cosmicdoc.common.model.PurchaseReturnItem;
+import com.cosmicdoc.common.model.Sale;
+import com.cosmicdoc.common.model.SaleItem;
+import com.cosmicdoc.common.model.SalesReturn;
+import com.cosmicdoc.common.model.SalesReturnItem;
+import com.cosmicdoc.common.model.StockMovement;
+import com.cosmicdoc.common.model.StockMovementType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the stock ledger movements for each kind of stock-changing document.
+ */
+public final class StockMovements {
+
+    private StockMovements() {
+    }
+
+    /**
+     * One movement per batch allocation of every sale item, or one without a batch for an item
+     * that was not allocated to batches.
+     */
+    public static List<StockMovement> fromSale(Sale sale) {
+        List<StockMovement> movements = new ArrayList<>();
+        if (sale.getItems() == null) {
+            return movements;
+        }
+        for (SaleItem item : sale.getItems()) {
+            if (item.getBatchAllocations() == null || item.getBatchAllocations().isEmpty()) {
+                movements.add(movement(StockMovementType.SALE, item.getMedicineId(), null, null, -item.getQuantity(),
+                        sale.getSaleId(), sale.getCreatedBy()));
+                continue;
+            }
+            for (BatchAllocation allocation : item.getBatchAllocations()) {
+                movements.add(movement(StockMovementType.SALE, item.getMedicineId(), allocation.getBatchNo(),
+                        allocation.getBatchId(), -allocation.getQuantityTaken(), sale.getSaleId(), sale.getCreatedBy()));
+            }
+        }
+        return movements;
+    }
+
+    public static List<StockMovement> fromPurchase(Purchase purchase) {
+        List<StockMovement> movements = new ArrayList<>();
+        if (purchase.getItems() == null) {
+            return movements;
+        }
+        for (PurchaseItem item : purchase.getItems()) {
+            movements.add(movement(StockMovementType.PURCHASE, item.getMedicineId(), item.getBatchNo(),
+                    item.getCreatedBatchId(), item.getTotalReceivedQuantity(), purchase.getPurchaseId(), purchase.getCreatedBy()));
+        }
+        return movements;
+    }
+
+    public static List<StockMovement> fromSalesReturn(SalesReturn salesReturn) {
+        List<StockMovement> movements = new ArrayList<>();
+        if (salesReturn.getItems() == null) {
+            return movements;
+        }
+        for (SalesReturnItem item : salesReturn.getItems()) {
+            movements.add(movement(StockMovementType.SALES_RETURN, item.getMedicineId(), item.getBatchNo(), null,
+                    item.getReturnQuantity(), salesReturn.getSalesReturnId(), salesReturn.getCreatedBy()));
+        }
+        return movements;
+    }
+
+    public static List<StockMovement> fromPurchaseReturn(PurchaseReturn purchaseReturn) {
+        List<StockMovement> movements = new ArrayList<>();
+        if (purchaseReturn.getItems() == null) {
+            return movements;
+        }
+        for (PurchaseReturnItem item : purchaseReturn.getItems()) {
+            movements.add(movement(StockMovementType.PURCHASE_RETURN, item.getMedicineId(), item.getBatchNo(), null,
+                    -item.getReturnQuantity(), purchaseReturn.getPurchaseReturnId(), purchaseReturn.getCreatedBy()));
+        }
+        return movements;
+    }
+
+    /**
+     * The movements that undo {@code movements}, e.g. when a sale is edited or deleted.
+     */
+    public static List<StockMovement> reversalOf(List<StockMovement> movements) {
+        List<StockMovement> reversal = new ArrayList<>(movements.size());
+        for (StockMovement movement : movements) {
+            reversal.add(movement(movement.getType(), movement.getMedicineId(), movement.getBatchNo(), movement.getBatchId(),
+                    -movement.getQuantityChange(), movement.getSourceId(), movement.getCreatedBy()));
+        }
+        return reversal;
+    }
+
+    /**
+     * A manual correction, e.g. after a stock count or for damaged goods.
+     */
+    public static StockMovement adjustment(String medicineId, String batchNo, String batchId, int quantityChange, String createdBy) {
+        return movement(StockMovementType.ADJUSTMENT, medicineId, batchNo, batchId, quantityChange, null, createdBy);
+    }
+
+    private static StockMovement movement(StockMovementType type, String medicineId, String batchNo, String batchId,
+                                          int quantityChange, String sourceId, String createdBy) {
+        return StockMovement.builder()
+                .type(type)
+                .medicineId(medicineId)
+                .batchNo(batchNo)
+                .batchId(batchId)
+                .quantityChange(quantityChange)
+                .sourceId(sourceId)
+                .createdBy(createdBy)
+                .build();
+    }
+}
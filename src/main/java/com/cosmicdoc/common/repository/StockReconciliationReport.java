@@ -0,0 +1,38 @@
+package com.cosmicdoc.common.repository;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The outcome of reconciling medicine stock totals against their batches.
+ *
+ * @param drifts      Every medicine whose total disagreed with its batches.
+ * @param failedUnits Work units that could not be read or repaired; their medicines are not in the counts.
+ */
+public record StockReconciliationReport(String organizationId, List<Drift> drifts, Progress progress, int failedUnits) {
+
+    /**
+     * @param quantityInStock The medicine's stock total (the sum of its shards when sharded).
+     * @param batchTotal      The sum of quantityAvailable over its batches.
+     * @param repaired        Whether the total was corrected to match the batches.
+     */
+    public record Drift(String branchId, String medicineId, String name, long quantityInStock, long batchTotal,
+                        boolean repaired) {
+
+        public long difference() {
+            return batchTotal - quantityInStock;
+        }
+    }
+
+    /**
+     * Running counters, reported while the job runs and once more at the end.
+     */
+    public record Progress(long unitsCompleted, long medicinesChecked, long batchesRead, long driftsFound,
+                           long repaired, Duration elapsed) {
+
+        public double medicinesPerSecond() {
+            long millis = elapsed.toMillis();
+            return millis == 0 ? 0.0 : medicinesChecked * 1000.0 / millis;
+        }
+    }
+}
@@ -1,19 +1,41 @@
 package com.cosmicdoc.common.repository;
 
 import com.cosmicdoc.common.model.Supplier;
+import com.cosmicdoc.common.repository.cache.DocumentBatchLoader;
 import com.google.cloud.firestore.Transaction;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 public interface SupplierRepository {
     List<Supplier> findAllByOrganizationId(String organizationId); // All suppliers for the org
+    /**
+     * Lists the organization's suppliers fetching only the fields of the given projection,
+     * e.g. {@code findAllByOrganizationId(orgId, SupplierSummary.PROJECTION)}.
+     */
+    <P> List<P> findAllByOrganizationId(String organizationId, Projection<P> projection);
     Supplier save(String organizationId, Supplier supplier);
     void deleteById(String organizationId, String supplierId);
     Optional<Supplier> findById(String organizationId, String supplierId);
+    /**
+     * Queues the lookup on {@code loader} so that lookups issued together are fetched with one getAll.
+     */
+    CompletableFuture<Optional<Supplier>> findById(DocumentBatchLoader loader, String organizationId, String supplierId);
     boolean existsById(Transaction transaction, String orgId, String supplierId) throws ExecutionException, InterruptedException;
     void updateBalanceInTransaction(Transaction transaction, String orgId, String supplierId, double amountChange);
     Optional<Supplier> findById(Transaction transaction, String organizationId, String supplierId)
             throws ExecutionException, InterruptedException;
+
+    /**
+     * Saves many suppliers at once through the bulk write pipeline,
+     * reporting the outcome per supplier.
+     */
+    BulkWriteResult saveAll(String organizationId, List<Supplier> suppliers);
+
+    /**
+     * Soft-deletes many suppliers at once by marking them INACTIVE, like {@link #deleteById}.
+     */
+    BulkWriteResult deleteAll(String organizationId, List<String> supplierIds);
 }
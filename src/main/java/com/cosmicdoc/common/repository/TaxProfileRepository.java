@@ -1,19 +1,32 @@
 package com.cosmicdoc.common.repository;
 
 import com.cosmicdoc.common.model.TaxProfile;
+import com.cosmicdoc.common.repository.cache.DocumentBatchLoader;
+import com.cosmicdoc.common.tax.TaxRateTable;
 import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.Transaction;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 public interface TaxProfileRepository  {
     List<TaxProfile> findAllByOrganizationId(String organizationId);
     TaxProfile save(String organizationId, TaxProfile taxProfile);
     Optional<TaxProfile> findById(String organizationId, String taxProfileId);
+    /**
+     * Queues the lookup on {@code loader} so that lookups issued together are fetched with one getAll.
+     */
+    CompletableFuture<Optional<TaxProfile>> findById(DocumentBatchLoader loader, String organizationId, String taxProfileId);
     List<DocumentSnapshot> getAll(Transaction transaction, String orgId, List<String> taxProfileIds) throws ExecutionException, InterruptedException;
     Optional<TaxProfile> findById(Transaction transaction, String orgId, String taxProfileId) throws ExecutionException, InterruptedException;
     Optional<TaxProfile> findByProfileNameIgnoreCaseExcludingId(String organizationId, String profileName, String excludeTaxProfileId);
     void deleteById(String organizationId, String taxProfileId);
+
+    /**
+     * The organization's profiles compiled for {@code TaxCalculator}. Cached and invalidated on
+     * local writes; changes made by other instances show up once the cached table expires.
+     */
+    TaxRateTable findRateTable(String organizationId);
 }
@@ -8,7 +8,7 @@ import com.google.cloud.firestore.WriteBatch;
 import java.util.List;
 import java.util.Optional;
 
-public interface UsersRepository extends BaseRepository<Users, String> {
+public interface UsersRepository extends BaseRepository<Users, String>, AsyncBaseRepository<Users, String> {
     Optional<Users> findByEmail(String email);
     Optional<Users> findByPhone(String phone);
     void saveInTransaction(WriteBatch batch, Users user);
@@ -4,7 +4,7 @@ import com.cosmicdoc.common.model.VerificationToken;
 import com.google.cloud.firestore.WriteBatch;
 import java.util.Optional;
 
-public interface VerificationTokenRepository extends BaseRepository<VerificationToken, String> {
+public interface VerificationTokenRepository extends BaseRepository<VerificationToken, String>, AsyncBaseRepository<VerificationToken, String> {
     Optional<VerificationToken> findByToken(String token);
     void deleteInTransaction(WriteBatch batch, String token);
     void saveInTransaction(WriteBatch batch, VerificationToken verificationToken);
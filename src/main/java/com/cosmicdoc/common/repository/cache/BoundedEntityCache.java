@@ -0,0 +1,170 @@
+package com.cosmicdoc.common.repository.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * The default in-memory {@link EntityCache}: least-recently-used eviction bounded by total
+ * weight, plus a fixed time-to-live per entry.
+ * <p>
+ * With the default weigher every entry weighs 1, so {@code maxWeight} is simply the maximum
+ * number of entries. Pass a custom weigher to bound by an estimate of the entry size instead.
+ * <p>
+ * Invalidations are counted in a fixed number of stripes keyed by hash, which is what
+ * {@link #putIfNotInvalidated} compares against; an invalidation of another key in the same
+ * stripe only costs a skipped put.
+ */
+public class BoundedEntityCache<V> implements EntityCache<V> {
+
+    private static final int INVALIDATION_STRIPES = 64;
+
+    private final String name;
+    private final long ttlNanos;
+    private final long maxWeight;
+    private final ToLongFunction<? super V> weigher;
+
+    // Access-ordered, so iteration starts at the least recently used entry.
+    private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+    private final long[] invalidations = new long[INVALIDATION_STRIPES];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public BoundedEntityCache(String name, Duration ttl, long maxEntries) {
+        this(name, ttl, maxEntries, value -> 1L);
+    }
+
+    public BoundedEntityCache(String name, Duration ttl, long maxWeight, ToLongFunction<? super V> weigher) {
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("maxWeight must be positive");
+        }
+        this.name = name;
+        this.ttlNanos = ttl.toNanos();
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    @Override
+    public V getIfPresent(String key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            if (System.nanoTime() - entry.expiresAtNanos > 0) {
+                removeEntry(key);
+                expirations.increment();
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        }
+    }
+
+    @Override
+    public void put(String key, V value) {
+        if (value == null) {
+            return;
+        }
+        long weight = Math.max(1L, weigher.applyAsLong(value));
+        if (weight > maxWeight) {
+            return; // Never cache a single entry that would evict everything else.
+        }
+        synchronized (entries) {
+            Entry<V> previous = entries.put(key, new Entry<>(value, weight, System.nanoTime() + ttlNanos));
+            if (previous != null) {
+                totalWeight -= previous.weight;
+            }
+            totalWeight += weight;
+            evictIfNeeded();
+        }
+    }
+
+    @Override
+    public long invalidationToken(String key) {
+        synchronized (entries) {
+            return invalidations[stripe(key)];
+        }
+    }
+
+    @Override
+    public boolean putIfNotInvalidated(String key, V value, long token) {
+        synchronized (entries) {
+            if (invalidations[stripe(key)] != token) {
+                return false;
+            }
+            put(key, value);
+            return true;
+        }
+    }
+
+    @Override
+    public void invalidate(String key) {
+        synchronized (entries) {
+            invalidations[stripe(key)]++;
+            removeEntry(key);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        synchronized (entries) {
+            for (int i = 0; i < invalidations.length; i++) {
+                invalidations[i]++;
+            }
+            entries.clear();
+            totalWeight = 0;
+        }
+    }
+
+    @Override
+    public CacheStats stats() {
+        synchronized (entries) {
+            return new CacheStats(name, hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), entries.size(), totalWeight);
+        }
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Entry<V>>> eldest = entries.entrySet().iterator();
+        while (totalWeight > maxWeight && eldest.hasNext()) {
+            totalWeight -= eldest.next().getValue().weight;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private static int stripe(String key) {
+        return Math.floorMod(key.hashCode(), INVALIDATION_STRIPES);
+    }
+
+    private void removeEntry(String key) {
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) {
+            totalWeight -= removed.weight;
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long weight;
+        final long expiresAtNanos;
+
+        Entry(V value, long weight, long expiresAtNanos) {
+            this.value = value;
+            this.weight = weight;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
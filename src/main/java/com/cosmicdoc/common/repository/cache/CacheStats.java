@@ -0,0 +1,12 @@
+package com.cosmicdoc.common.repository.cache;
+
+/**
+ * A point-in-time snapshot of an {@link EntityCache}'s counters.
+ */
+public record CacheStats(String name, long hits, long misses, long evictions, long expirations, long size, long weight) {
+
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+}
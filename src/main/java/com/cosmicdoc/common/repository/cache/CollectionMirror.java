@@ -0,0 +1,121 @@
+package com.cosmicdoc.common.repository.cache;
+
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * An in-process, per-tenant copy of a small reference collection, kept current by a
+ * Firestore snapshot listener so that reads cost no RPC at all.
+ * <p>
+ * Tenants (usually organizations) are subscribed lazily on first access. Memory is bounded
+ * in two ways: at most {@code maxTenants} tenants are mirrored at once (the least recently
+ * used one is unsubscribed), and a tenant whose collection grows beyond
+ * {@code maxDocumentsPerTenant} is dropped. Whenever a mirror is not available
+ * (too large, listener failed, or the initial snapshot is slow) {@link #documents(String)}
+ * returns empty and the caller falls back to a normal read. Refused and failed tenants are
+ * not re-subscribed until a back-off expires, so they cost no more than a normal read.
+ */
+@Slf4j
+public class CollectionMirror<T> implements AutoCloseable {
+
+    private static final Duration INITIAL_SNAPSHOT_WAIT = Duration.ofMillis(500);
+    private static final Duration INITIAL_BACK_OFF = Duration.ofSeconds(30);
+    private static final Duration MAX_BACK_OFF = Duration.ofMinutes(30);
+
+    private final Function<String, CollectionReference> collectionForTenant;
+    private final SnapshotSubscriptions<TenantMirror<T>> tenants;
+
+    public CollectionMirror(String name, Function<String, CollectionReference> collectionForTenant, Class<T> type,
+                            int maxTenants, int maxDocumentsPerTenant) {
+        this.collectionForTenant = collectionForTenant;
+        this.tenants = new SnapshotSubscriptions<>(name, () -> new TenantMirror<>(name, type, maxDocumentsPerTenant),
+                maxTenants, INITIAL_SNAPSHOT_WAIT, INITIAL_BACK_OFF, MAX_BACK_OFF);
+    }
+
+    /**
+     * @return A read-only view of the tenant's documents keyed by document ID,
+     *         or empty if the tenant cannot be served from the mirror right now.
+     */
+    public Optional<Map<String, T>> documents(String tenantId) {
+        return tenants.get(tenantId, () -> collectionForTenant.apply(tenantId))
+                .map(mirror -> Collections.unmodifiableMap(mirror.documents));
+    }
+
+    /**
+     * Applies a local write immediately, so this instance reads its own writes
+     * without waiting for the listener to deliver them.
+     */
+    public void put(String tenantId, String documentId, T document) {
+        if (document != null) {
+            tenants.existing(tenantId).ifPresent(mirror -> mirror.documents.put(documentId, document));
+        }
+    }
+
+    public void remove(String tenantId, String documentId) {
+        tenants.existing(tenantId).ifPresent(mirror -> mirror.documents.remove(documentId));
+    }
+
+    /**
+     * Applies a local partial update (e.g. a field update) to a mirrored document, if it is mirrored.
+     * {@code change} must return a new object rather than modify the one readers may hold.
+     */
+    public void update(String tenantId, String documentId, UnaryOperator<T> change) {
+        tenants.existing(tenantId).ifPresent(mirror -> mirror.documents.computeIfPresent(documentId,
+                (id, document) -> change.apply(document)));
+    }
+
+    /**
+     * Unsubscribes every tenant and drops all mirrored data.
+     */
+    @Override
+    public void close() {
+        tenants.close();
+    }
+
+    private static final class TenantMirror<T> implements SnapshotSubscriptions.View {
+        final Map<String, T> documents = new ConcurrentHashMap<>();
+        final String name;
+        final Class<T> type;
+        final int maxDocuments;
+
+        TenantMirror(String name, Class<T> type, int maxDocuments) {
+            this.name = name;
+            this.type = type;
+            this.maxDocuments = maxDocuments;
+        }
+
+        @Override
+        public boolean apply(QuerySnapshot snapshot) {
+            for (DocumentChange change : snapshot.getDocumentChanges()) {
+                QueryDocumentSnapshot document = change.getDocument();
+                if (change.getType() == DocumentChange.Type.REMOVED) {
+                    documents.remove(document.getId());
+                } else {
+                    documents.put(document.getId(), document.toObject(type));
+                }
+            }
+            if (documents.size() > maxDocuments) {
+                log.warn("{} has {} documents, above the mirror limit of {}; not mirroring it for now",
+                        name, documents.size(), maxDocuments);
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            documents.clear();
+        }
+    }
+}
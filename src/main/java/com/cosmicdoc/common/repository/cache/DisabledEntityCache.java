@@ -0,0 +1,45 @@
+package com.cosmicdoc.common.repository.cache;
+
+/**
+ * The no-op {@link EntityCache}: every lookup misses and nothing is stored or counted.
+ */
+final class DisabledEntityCache implements EntityCache<Object> {
+
+    static final DisabledEntityCache INSTANCE = new DisabledEntityCache();
+
+    private static final CacheStats EMPTY_STATS = new CacheStats("disabled", 0, 0, 0, 0, 0, 0);
+
+    private DisabledEntityCache() {}
+
+    @Override
+    public Object getIfPresent(String key) {
+        return null;
+    }
+
+    @Override
+    public void put(String key, Object value) {
+    }
+
+    @Override
+    public long invalidationToken(String key) {
+        return 0;
+    }
+
+    @Override
+    public boolean putIfNotInvalidated(String key, Object value, long token) {
+        return false;
+    }
+
+    @Override
+    public void invalidate(String key) {
+    }
+
+    @Override
+    public void invalidateAll() {
+    }
+
+    @Override
+    public CacheStats stats() {
+        return EMPTY_STATS;
+    }
+}
@@ -0,0 +1,169 @@
+package com.cosmicdoc.common.repository.cache;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static com.cosmicdoc.common.util.FirestoreFutures.toCompletableFuture;
+
+/**
+ * A request-scoped, DataLoader-style batcher for point reads.
+ * <p>
+ * Instead of sending one {@code document().get()} per lookup, callers {@link #load} documents
+ * and get a future back. Lookups issued within a short window (or until {@code maxBatchSize}
+ * distinct documents are pending, or until {@link #dispatch()} is called) are sent as one
+ * {@code firestore.getAll(...)} per collection. Repeated lookups of the same document in a
+ * batch are sent once. Create one loader per request or unit of work and let it go afterwards;
+ * it holds no results between batches.
+ */
+public class DocumentBatchLoader {
+
+    public static final Duration DEFAULT_WINDOW = Duration.ofMillis(2);
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "document-batch-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Firestore firestore;
+    private final long windowNanos;
+    private final int maxBatchSize;
+
+    private final Object lock = new Object();
+    private Map<String, PendingRead> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledDispatch;
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder documentsFetched = new LongAdder();
+    private final LongAdder batchRpcs = new LongAdder();
+
+    public DocumentBatchLoader(Firestore firestore) {
+        this(firestore, DEFAULT_WINDOW, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public DocumentBatchLoader(Firestore firestore, Duration window, int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+        this.firestore = firestore;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Queues a read of {@code ref}; the returned future completes when its batch returns.
+     *
+     * @param mapper Converts an existing document into the result type.
+     */
+    public <T> CompletableFuture<Optional<T>> load(DocumentReference ref, Function<DocumentSnapshot, T> mapper) {
+        loads.increment();
+        CompletableFuture<DocumentSnapshot> snapshot;
+        boolean dispatchNow = false;
+        synchronized (lock) {
+            snapshot = pending.computeIfAbsent(ref.getPath(), path -> new PendingRead(ref)).result;
+            if (pending.size() >= maxBatchSize) {
+                dispatchNow = true;
+            } else if (scheduledDispatch == null) {
+                scheduledDispatch = SCHEDULER.schedule(this::dispatch, windowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (dispatchNow) {
+            dispatch();
+        }
+        return snapshot.thenApply(document -> document.exists()
+                ? Optional.ofNullable(mapper.apply(document))
+                : Optional.<T>empty());
+    }
+
+    /**
+     * Sends everything queued so far without waiting for the window to elapse.
+     */
+    public void dispatch() {
+        Map<String, PendingRead> batch;
+        synchronized (lock) {
+            if (scheduledDispatch != null) {
+                scheduledDispatch.cancel(false);
+                scheduledDispatch = null;
+            }
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashMap<>();
+        }
+
+        Map<String, List<PendingRead>> byCollection = new LinkedHashMap<>();
+        for (PendingRead read : batch.values()) {
+            byCollection.computeIfAbsent(read.ref.getParent().getPath(), path -> new ArrayList<>()).add(read);
+        }
+        byCollection.values().forEach(this::fetch);
+    }
+
+    public BatchLoaderStats stats() {
+        return new BatchLoaderStats(loads.sum(), documentsFetched.sum(), batchRpcs.sum());
+    }
+
+    private void fetch(List<PendingRead> reads) {
+        batchRpcs.increment();
+        documentsFetched.add(reads.size());
+        DocumentReference[] refs = reads.stream().map(read -> read.ref).toArray(DocumentReference[]::new);
+        try {
+            toCompletableFuture(firestore.getAll(refs)).whenComplete((snapshots, error) -> {
+                if (error != null) {
+                    reads.forEach(read -> read.result.completeExceptionally(
+                            new RuntimeException("Error fetching document " + read.ref.getPath(), error)));
+                    return;
+                }
+                Map<String, DocumentSnapshot> byPath = new HashMap<>(snapshots.size() * 2);
+                for (DocumentSnapshot snapshot : snapshots) {
+                    byPath.put(snapshot.getReference().getPath(), snapshot);
+                }
+                for (PendingRead read : reads) {
+                    DocumentSnapshot snapshot = byPath.get(read.ref.getPath());
+                    if (snapshot != null) {
+                        read.result.complete(snapshot);
+                    } else {
+                        read.result.completeExceptionally(
+                                new RuntimeException("Document missing from batch response: " + read.ref.getPath()));
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            reads.forEach(read -> read.result.completeExceptionally(e));
+        }
+    }
+
+    private static final class PendingRead {
+        final DocumentReference ref;
+        final CompletableFuture<DocumentSnapshot> result = new CompletableFuture<>();
+
+        PendingRead(DocumentReference ref) {
+            this.ref = ref;
+        }
+    }
+
+    /**
+     * @param loads            Calls to {@link #load}.
+     * @param documentsFetched Distinct documents actually requested from Firestore.
+     * @param batchRpcs        getAll calls sent.
+     */
+    public record BatchLoaderStats(long loads, long documentsFetched, long batchRpcs) {
+    }
+}
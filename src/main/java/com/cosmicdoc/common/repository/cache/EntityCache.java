@@ -0,0 +1,48 @@
+package com.cosmicdoc.common.repository.cache;
+
+/**
+ * A pluggable cache of entities keyed by document ID (or any other string key a repository chooses).
+ * <p>
+ * Repositories read through it on point lookups and invalidate entries on every local write,
+ * so reads stay consistent within one instance. Writes made by other instances only become
+ * visible once the entry expires, which is why caches should be reserved for documents that
+ * rarely change and configured with a TTL that bounds the staleness.
+ * <p>
+ * Cached entities are shared between callers and must be treated as read-only.
+ */
+public interface EntityCache<V> {
+
+    /**
+     * @return The cached value, or null if it is absent or expired. Counts as a hit or a miss.
+     */
+    V getIfPresent(String key);
+
+    void put(String key, V value);
+
+    /**
+     * @return A token to take before loading a value for {@link #putIfNotInvalidated}.
+     */
+    long invalidationToken(String key);
+
+    /**
+     * Caches the value unless the key was invalidated after {@code token} was taken, so a read that
+     * raced with a write cannot put the pre-write document back for the whole TTL.
+     *
+     * @return Whether the value was cached.
+     */
+    boolean putIfNotInvalidated(String key, V value, long token);
+
+    void invalidate(String key);
+
+    void invalidateAll();
+
+    CacheStats stats();
+
+    /**
+     * @return A cache that stores nothing; the default for repositories that do not opt in.
+     */
+    @SuppressWarnings("unchecked")
+    static <V> EntityCache<V> disabled() {
+        return (EntityCache<V>) DisabledEntityCache.INSTANCE;
+    }
+}
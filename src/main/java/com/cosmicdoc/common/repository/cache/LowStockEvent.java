@@ -0,0 +1,15 @@
+package com.cosmicdoc.common.repository.cache;
+
+/**
+ * Emitted when a medicine crosses its {@code lowStockThreshold} in either direction.
+ */
+public record LowStockEvent(Type type, String organizationId, String branchId, String medicineId, String name,
+                            int quantityInStock, Integer lowStockThreshold) {
+
+    public enum Type {
+        /** Stock fell below the threshold. */
+        BELOW_THRESHOLD,
+        /** Stock was replenished to the threshold or above, or the medicine was removed. */
+        RECOVERED
+    }
+}
@@ -0,0 +1,175 @@
+package com.cosmicdoc.common.repository.cache;
+
+import com.cosmicdoc.common.model.Medicine;
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the set of a branch's low-stock medicines in memory and reports threshold crossings.
+ * <p>
+ * It listens only to medicines flagged {@code lowStock == true}, so the listener's cost grows
+ * with the number of low-stock medicines rather than the size of the catalog. A medicine
+ * entering that query has fallen below its threshold, and one leaving it has recovered.
+ * The initial snapshot fills the set without emitting events.
+ * <p>
+ * Firestore ends a listener once it reports an error. The watch then subscribes again with an
+ * exponential back-off, like {@link SnapshotSubscriptions}, and compares the new initial snapshot
+ * with the set it held, so crossings that happened meanwhile are still reported.
+ */
+@Slf4j
+public class LowStockWatch implements AutoCloseable {
+
+    private static final Duration INITIAL_BACK_OFF = Duration.ofSeconds(30);
+    private static final Duration MAX_BACK_OFF = Duration.ofMinutes(30);
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "low-stock-watch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Query lowStockQuery;
+    private final String organizationId;
+    private final String branchId;
+    private final Consumer<LowStockEvent> listener;
+    private final Map<String, Medicine> lowStock = new ConcurrentHashMap<>();
+    private ListenerRegistration registration;
+    private ScheduledFuture<?> retry;
+    private int failures;
+    private boolean closed;
+    private volatile boolean initialized;
+
+    public LowStockWatch(Query lowStockQuery, String organizationId, String branchId, Consumer<LowStockEvent> listener) {
+        this.lowStockQuery = lowStockQuery;
+        this.organizationId = organizationId;
+        this.branchId = branchId;
+        this.listener = listener;
+        subscribe();
+    }
+
+    /**
+     * @return The medicines currently below threshold, keyed by medicine ID.
+     */
+    public Map<String, Medicine> current() {
+        return Collections.unmodifiableMap(lowStock);
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (retry != null) {
+            retry.cancel(false);
+        }
+        if (registration != null) {
+            registration.remove();
+        }
+    }
+
+    private synchronized void subscribe() {
+        if (closed) {
+            return;
+        }
+        // Only the first snapshot of each subscription is a full listing of the query.
+        boolean[] firstSnapshot = {true};
+        registration = lowStockQuery.addSnapshotListener((snapshot, error) -> {
+            if (error != null) {
+                resubscribeLater(error);
+                return;
+            }
+            if (snapshot == null) {
+                return;
+            }
+            if (firstSnapshot[0]) {
+                firstSnapshot[0] = false;
+                resync(snapshot);
+                synchronized (this) {
+                    failures = 0;
+                }
+            } else {
+                apply(snapshot);
+            }
+            initialized = true;
+        });
+    }
+
+    private synchronized void resubscribeLater(Throwable error) {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+        if (closed) {
+            return;
+        }
+        failures++;
+        long delay = Math.min(MAX_BACK_OFF.toNanos(), INITIAL_BACK_OFF.toNanos() << Math.min(failures - 1, 20));
+        log.warn("Low-stock listener for branch {} failed; subscribing again in {} s", branchId,
+                TimeUnit.NANOSECONDS.toSeconds(delay), error);
+        retry = SCHEDULER.schedule(this::subscribe, delay, TimeUnit.NANOSECONDS);
+    }
+
+    private void apply(QuerySnapshot snapshot) {
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            Medicine medicine = change.getDocument().toObject(Medicine.class);
+            String medicineId = change.getDocument().getId();
+            switch (change.getType()) {
+                case ADDED -> {
+                    lowStock.put(medicineId, medicine);
+                    emit(LowStockEvent.Type.BELOW_THRESHOLD, medicineId, medicine);
+                }
+                case MODIFIED -> lowStock.put(medicineId, medicine);
+                case REMOVED -> {
+                    lowStock.remove(medicineId);
+                    emit(LowStockEvent.Type.RECOVERED, medicineId, medicine);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the set with a full listing, reporting the differences (none on the very first one).
+     */
+    private void resync(QuerySnapshot snapshot) {
+        Map<String, Medicine> listed = new HashMap<>();
+        for (QueryDocumentSnapshot document : snapshot.getDocuments()) {
+            listed.put(document.getId(), document.toObject(Medicine.class));
+        }
+        for (Map.Entry<String, Medicine> entry : Map.copyOf(lowStock).entrySet()) {
+            if (!listed.containsKey(entry.getKey())) {
+                lowStock.remove(entry.getKey());
+                emit(LowStockEvent.Type.RECOVERED, entry.getKey(), entry.getValue());
+            }
+        }
+        listed.forEach((medicineId, medicine) -> {
+            if (lowStock.put(medicineId, medicine) == null) {
+                emit(LowStockEvent.Type.BELOW_THRESHOLD, medicineId, medicine);
+            }
+        });
+    }
+
+    private void emit(LowStockEvent.Type type, String medicineId, Medicine medicine) {
+        if (!initialized) {
+            return;
+        }
+        try {
+            listener.accept(new LowStockEvent(type, organizationId, branchId, medicineId, medicine.getName(),
+                    medicine.getQuantityInStock(), medicine.getLowStockThreshold()));
+        } catch (RuntimeException e) {
+            log.warn("Low-stock event handler failed for medicine {}", medicineId, e);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.cosmicdoc.common.repository.cache;
+
+import com.cosmicdoc.common.dto.MedicineSearchResult;
+import com.cosmicdoc.common.model.Medicine;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.QuerySnapshot;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+
+/**
+ * In-memory type-ahead search over each branch's medicine catalog.
+ * <p>
+ * Every word of a medicine's name, generic name, manufacturer and SKU is kept in a sorted token map,
+ * so each query word is answered by a prefix range scan of that map. A medicine matches when every
+ * query word prefixes one of its words. Matches are ranked by where they hit (name, then SKU, generic
+ * name and manufacturer), with whole-word matches, a name that starts with the query, and medicines
+ * in stock ranked higher. Inactive medicines are left out.
+ * <p>
+ * Branches are loaded lazily on their first search and kept current by a snapshot listener. At most
+ * {@code maxBranches} are held (least recently used are dropped). {@link #search} never waits: it
+ * returns empty while a branch's initial snapshot loads, or while a branch whose listener failed
+ * backs off, and callers then fall back to {@link #rank} over a bounded direct read.
+ */
+public class MedicineSearchIndex implements AutoCloseable {
+
+    private static final Duration INITIAL_BACK_OFF = Duration.ofSeconds(30);
+    private static final Duration MAX_BACK_OFF = Duration.ofMinutes(30);
+
+    private static final int NAME_WEIGHT = 10;
+    private static final int SKU_WEIGHT = 8;
+    private static final int GENERIC_NAME_WEIGHT = 5;
+    private static final int MANUFACTURER_WEIGHT = 2;
+
+    private final BiFunction<String, String, CollectionReference> medicinesOfBranch;
+    private final SnapshotSubscriptions<BranchCatalog> branches;
+
+    public MedicineSearchIndex(BiFunction<String, String, CollectionReference> medicinesOfBranch, int maxBranches) {
+        this.medicinesOfBranch = medicinesOfBranch;
+        // Never wait for a branch to load: type-ahead falls back to a direct read meanwhile.
+        this.branches = new SnapshotSubscriptions<>("medicine search index", BranchCatalog::new, maxBranches,
+                Duration.ZERO, INITIAL_BACK_OFF, MAX_BACK_OFF);
+    }
+
+    /**
+     * @return The best {@code limit} matches, or empty if the branch is not available in memory right now.
+     */
+    public Optional<List<MedicineSearchResult>> search(String organizationId, String branchId, String query, int limit) {
+        return branches.get(organizationId + "/" + branchId, () -> medicinesOfBranch.apply(organizationId, branchId))
+                .map(catalog -> catalog.search(tokenize(query), limit));
+    }
+
+    /**
+     * Ranks medicines against the query without an index, with the same rules as {@link #search}.
+     */
+    public static List<MedicineSearchResult> rank(Collection<Medicine> medicines, String query, int limit) {
+        List<String> queryTokens = tokenize(query);
+        List<MedicineSearchResult> results = new ArrayList<>();
+        for (Medicine medicine : medicines) {
+            if (!queryTokens.isEmpty() && isSearchable(medicine)) {
+                Entry entry = new Entry(medicine);
+                int score = entry.score(queryTokens);
+                if (score > 0) {
+                    results.add(entry.toResult(score));
+                }
+            }
+        }
+        return top(results, limit);
+    }
+
+    /**
+     * Unsubscribes every branch and drops the indexes.
+     */
+    @Override
+    public void close() {
+        branches.close();
+    }
+
+    private static boolean isSearchable(Medicine medicine) {
+        return !"INACTIVE".equals(medicine.getStatus());
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static List<MedicineSearchResult> top(List<MedicineSearchResult> results, int limit) {
+        results.sort(Comparator.comparingInt(MedicineSearchResult::score).reversed()
+                .thenComparing(MedicineSearchResult::name, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
+        return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+    }
+
+    /**
+     * One medicine with its words per field, ready for scoring.
+     */
+    private static final class Entry {
+        final Medicine medicine;
+        final List<String> name;
+        final List<String> sku;
+        final List<String> genericName;
+        final List<String> manufacturer;
+
+        Entry(Medicine medicine) {
+            this.medicine = medicine;
+            this.name = tokenize(medicine.getName());
+            this.sku = tokenize(medicine.getSku());
+            this.genericName = tokenize(medicine.getGenericName());
+            this.manufacturer = tokenize(medicine.getManufacturer());
+        }
+
+        Set<String> allTokens() {
+            Set<String> tokens = new HashSet<>(name);
+            tokens.addAll(sku);
+            tokens.addAll(genericName);
+            tokens.addAll(manufacturer);
+            return tokens;
+        }
+
+        /**
+         * @return 0 unless every query word prefixes a word of the medicine.
+         */
+        int score(List<String> queryTokens) {
+            int score = 0;
+            for (String queryToken : queryTokens) {
+                int best = Math.max(Math.max(fieldScore(name, queryToken, NAME_WEIGHT), fieldScore(sku, queryToken, SKU_WEIGHT)),
+                        Math.max(fieldScore(genericName, queryToken, GENERIC_NAME_WEIGHT),
+                                fieldScore(manufacturer, queryToken, MANUFACTURER_WEIGHT)));
+                if (best == 0) {
+                    return 0;
+                }
+                score += best;
+            }
+            if (!name.isEmpty() && name.get(0).startsWith(queryTokens.get(0))) {
+                score += NAME_WEIGHT / 2;
+            }
+            if (medicine.getQuantityInStock() > 0) {
+                score += 1;
+            }
+            return score;
+        }
+
+        private static int fieldScore(List<String> fieldTokens, String queryToken, int weight) {
+            int best = 0;
+            for (String token : fieldTokens) {
+                if (token.equals(queryToken)) {
+                    return weight * 2;
+                }
+                if (token.startsWith(queryToken)) {
+                    best = weight;
+                }
+            }
+            return best;
+        }
+
+        MedicineSearchResult toResult(int score) {
+            return new MedicineSearchResult(medicine.getMedicineId(), medicine.getName(), medicine.getGenericName(),
+                    medicine.getManufacturer(), medicine.getSku(), medicine.getQuantityInStock(), score);
+        }
+    }
+
+    private static final class BranchCatalog implements SnapshotSubscriptions.View {
+        final Map<String, Entry> entries = new HashMap<>();
+        final TreeMap<String, Set<String>> tokenIndex = new TreeMap<>();
+        final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        @Override
+        public boolean apply(QuerySnapshot snapshot) {
+            lock.writeLock().lock();
+            try {
+                for (DocumentChange change : snapshot.getDocumentChanges()) {
+                    String medicineId = change.getDocument().getId();
+                    Entry previous = entries.remove(medicineId);
+                    if (previous != null) {
+                        previous.allTokens().forEach(token -> unindex(token, medicineId));
+                    }
+                    if (change.getType() == DocumentChange.Type.REMOVED) {
+                        continue;
+                    }
+                    Medicine medicine = change.getDocument().toObject(Medicine.class);
+                    if (isSearchable(medicine)) {
+                        Entry entry = new Entry(medicine);
+                        entries.put(medicineId, entry);
+                        entry.allTokens().forEach(token -> tokenIndex.computeIfAbsent(token, t -> new HashSet<>()).add(medicineId));
+                    }
+                }
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void unindex(String token, String medicineId) {
+            Set<String> ids = tokenIndex.get(token);
+            if (ids != null && ids.remove(medicineId) && ids.isEmpty()) {
+                tokenIndex.remove(token);
+            }
+        }
+
+        List<MedicineSearchResult> search(List<String> queryTokens, int limit) {
+            if (queryTokens.isEmpty()) {
+                return new ArrayList<>();
+            }
+            lock.readLock().lock();
+            try {
+                // Candidates must match every query word; intersect into the smaller set.
+                Set<String> candidates = null;
+                for (String queryToken : queryTokens) {
+                    Set<String> matching = new HashSet<>();
+                    tokenIndex.subMap(queryToken, true, queryToken + Character.MAX_VALUE, true)
+                            .values().forEach(matching::addAll);
+                    if (candidates == null || matching.size() < candidates.size()) {
+                        if (candidates != null) {
+                            matching.retainAll(candidates);
+                        }
+                        candidates = matching;
+                    } else {
+                        candidates.retainAll(matching);
+                    }
+                    if (candidates.isEmpty()) {
+                        return new ArrayList<>();
+                    }
+                }
+                List<MedicineSearchResult> results = new ArrayList<>(candidates.size());
+                for (String medicineId : candidates) {
+                    Entry entry = entries.get(medicineId);
+                    int score = entry.score(queryTokens);
+                    if (score > 0) {
+                        results.add(entry.toResult(score));
+                    }
+                }
+                return top(results, limit);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void clear() {
+            lock.writeLock().lock();
+            try {
+                entries.clear();
+                tokenIndex.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.cosmicdoc.common.repository.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent identical reads into one Firestore call.
+ * <p>
+ * The first caller for a key (the document path or query shape) runs the load; every caller
+ * that arrives while it is in flight waits for and shares the same result instead of sending
+ * its own RPC. Nothing is kept once the load completes, so this never serves stale data;
+ * pair it with an {@link EntityCache} for that. Shared results must be treated as read-only.
+ */
+public class SingleFlight<V> {
+
+    private final String name;
+    private final ConcurrentHashMap<String, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Runs {@code loader} unless a load for the same key is already running, in which case
+     * its result (or exception) is shared.
+     */
+    public V execute(String key, Supplier<V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        executions.increment();
+        try {
+            V value = loader.get();
+            inFlight.remove(key, flight);
+            flight.complete(value);
+            return value;
+        } catch (Throwable e) {
+            // Errors too, or every later caller for the key would wait on this flight forever.
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #execute(String, Supplier)}. Every caller gets its own
+     * dependent future, so cancelling one does not affect the others.
+     */
+    public CompletableFuture<V> executeAsync(String key, Supplier<CompletableFuture<V>> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.thenApply(value -> value);
+        }
+
+        executions.increment();
+        try {
+            loader.get().whenComplete((value, error) -> {
+                inFlight.remove(key, flight);
+                if (error != null) {
+                    flight.completeExceptionally(error);
+                } else {
+                    flight.complete(value);
+                }
+            });
+        } catch (Throwable e) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+        }
+        return flight.thenApply(value -> value);
+    }
+
+    /**
+     * Stops sharing the load in flight for the key, e.g. after a write made its result stale.
+     * Callers already waiting on it still get its result; later callers start a new load.
+     */
+    public void forget(String key) {
+        inFlight.remove(key);
+    }
+
+    public SingleFlightStats stats() {
+        return new SingleFlightStats(name, executions.sum(), coalesced.sum(), inFlight.size());
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
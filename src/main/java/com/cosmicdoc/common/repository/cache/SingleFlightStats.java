@@ -0,0 +1,19 @@
+package com.cosmicdoc.common.repository.cache;
+
+/**
+ * A point-in-time snapshot of a {@link SingleFlight}'s counters.
+ *
+ * @param executions Loads that actually reached Firestore.
+ * @param coalesced  Calls that shared an in-flight load instead of sending their own RPC.
+ * @param inFlight   Loads running at the time of the snapshot.
+ */
+public record SingleFlightStats(String name, long executions, long coalesced, long inFlight) {
+
+    /**
+     * @return The fraction of calls that were served by another caller's load.
+     */
+    public double coalescingRatio() {
+        long calls = executions + coalesced;
+        return calls == 0 ? 0.0 : (double) coalesced / calls;
+    }
+}
@@ -0,0 +1,200 @@
+package com.cosmicdoc.common.repository.cache;
+
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QuerySnapshot;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The lifecycle shared by the listener-backed in-memory views ({@link CollectionMirror},
+ * {@link MedicineSearchIndex}): one snapshot listener per key (a tenant or a branch), subscribed
+ * lazily and bounded to {@code maxKeys} by least-recently-used eviction.
+ * <p>
+ * {@link #get} waits at most {@code initialWait} for a new key's initial snapshot (zero means
+ * "don't wait"), so callers fall back to a direct read instead of blocking while it loads. A key
+ * whose listener fails, or whose view refuses a snapshot (e.g. too many documents), is remembered
+ * with an exponential back-off: until it expires {@link #get} returns empty straight away instead
+ * of streaming the whole collection again.
+ */
+@Slf4j
+final class SnapshotSubscriptions<V extends SnapshotSubscriptions.View> implements AutoCloseable {
+
+    /**
+     * The in-memory data of one key. Snapshot callbacks are serialized by Firestore.
+     */
+    interface View {
+        /**
+         * Applies a snapshot's changes.
+         *
+         * @return false to refuse the key, e.g. because it grew beyond the view's limit.
+         */
+        boolean apply(QuerySnapshot snapshot);
+
+        /** Drops the data once the key is unsubscribed. */
+        void clear();
+    }
+
+    private final String name;
+    private final Supplier<V> viewFactory;
+    private final int maxKeys;
+    private final long initialWaitMillis;
+    private final long initialBackOffNanos;
+    private final long maxBackOffNanos;
+
+    // Access-ordered, so iteration starts at the least recently used key.
+    private final LinkedHashMap<String, Subscription<V>> subscriptions = new LinkedHashMap<>(16, 0.75f, true);
+    // Insertion-ordered; bounded like the subscriptions so refused keys cannot grow it without limit.
+    private final LinkedHashMap<String, BackOff> backOffs = new LinkedHashMap<>();
+
+    SnapshotSubscriptions(String name, Supplier<V> viewFactory, int maxKeys, Duration initialWait,
+                          Duration initialBackOff, Duration maxBackOff) {
+        this.name = name;
+        this.viewFactory = viewFactory;
+        this.maxKeys = maxKeys;
+        this.initialWaitMillis = initialWait.toMillis();
+        this.initialBackOffNanos = initialBackOff.toNanos();
+        this.maxBackOffNanos = maxBackOff.toNanos();
+    }
+
+    /**
+     * @param query Builds the key's query; only called when the key is (re)subscribed.
+     * @return The key's view once its initial snapshot has been applied, or empty if it is still
+     *         loading, backing off after a failure, or refused.
+     */
+    Optional<V> get(String key, Supplier<Query> query) {
+        Subscription<V> subscription = subscribe(key, query);
+        if (subscription == null) {
+            return Optional.empty();
+        }
+        if (subscription.ready.getCount() > 0 && initialWaitMillis > 0) {
+            try {
+                subscription.ready.await(initialWaitMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Optional.empty();
+            }
+        }
+        return subscription.usable ? Optional.of(subscription.view) : Optional.empty();
+    }
+
+    /**
+     * @return The key's view if it is subscribed and usable, without subscribing or waiting.
+     */
+    Optional<V> existing(String key) {
+        Subscription<V> subscription;
+        synchronized (subscriptions) {
+            subscription = subscriptions.get(key);
+        }
+        return subscription != null && subscription.usable ? Optional.of(subscription.view) : Optional.empty();
+    }
+
+    /**
+     * Unsubscribes every key and drops all data and back-offs.
+     */
+    @Override
+    public void close() {
+        synchronized (subscriptions) {
+            subscriptions.values().forEach(Subscription::stop);
+            subscriptions.clear();
+            backOffs.clear();
+        }
+    }
+
+    private Subscription<V> subscribe(String key, Supplier<Query> query) {
+        synchronized (subscriptions) {
+            Subscription<V> subscription = subscriptions.get(key);
+            if (subscription != null && !subscription.stopped) {
+                return subscription;
+            }
+            BackOff backOff = backOffs.get(key);
+            if (backOff != null && System.nanoTime() < backOff.retryAtNanos) {
+                return null;
+            }
+            Subscription<V> target = new Subscription<>(viewFactory.get());
+            subscriptions.put(key, target);
+            target.registration = query.get().addSnapshotListener((snapshot, error) -> {
+                if (target.stopped) {
+                    return;
+                }
+                if (error != null) {
+                    log.warn("Snapshot listener for {} of {} failed; falling back to direct reads", name, key, error);
+                    drop(key, target);
+                    return;
+                }
+                if (snapshot == null) {
+                    return;
+                }
+                if (!target.view.apply(snapshot)) {
+                    drop(key, target);
+                    return;
+                }
+                if (!target.usable) {
+                    target.usable = true;
+                    target.ready.countDown();
+                    synchronized (subscriptions) {
+                        backOffs.remove(key);
+                    }
+                }
+            });
+            if (target.stopped) {
+                // The listener failed before its registration was recorded.
+                target.registration.remove();
+            }
+            Iterator<Subscription<V>> eldest = subscriptions.values().iterator();
+            while (subscriptions.size() > maxKeys && eldest.hasNext()) {
+                eldest.next().stop();
+                eldest.remove();
+            }
+            return target;
+        }
+    }
+
+    private void drop(String key, Subscription<V> subscription) {
+        subscription.stop();
+        synchronized (subscriptions) {
+            subscriptions.remove(key, subscription);
+            BackOff previous = backOffs.remove(key);
+            int failures = previous != null ? previous.failures + 1 : 1;
+            long delay = Math.min(maxBackOffNanos, initialBackOffNanos << Math.min(failures - 1, 20));
+            backOffs.put(key, new BackOff(failures, System.nanoTime() + delay));
+            Iterator<BackOff> eldest = backOffs.values().iterator();
+            while (backOffs.size() > maxKeys * 4 && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    private record BackOff(int failures, long retryAtNanos) {
+    }
+
+    private static final class Subscription<V extends View> {
+        final V view;
+        final CountDownLatch ready = new CountDownLatch(1);
+        volatile ListenerRegistration registration;
+        volatile boolean usable;
+        volatile boolean stopped;
+
+        Subscription(V view) {
+            this.view = view;
+        }
+
+        void stop() {
+            stopped = true;
+            usable = false;
+            ready.countDown();
+            if (registration != null) {
+                registration.remove();
+            }
+            view.clear();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.cosmicdoc.common.repository.impl;
+
+import com.cosmicdoc.common.dto.BranchAvailability;
+import com.cosmicdoc.common.model.Medicine;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.UpdateBuilder;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Organization-wide index of which branches stock which medicine.
+ * <p>
+ * {@code organizations/{org}/medicine_availability} holds one row per branch and medicine
+ * (ID {@code {branchId}_{medicineId}}) with the normalized name and SKU. All branches holding a
+ * medicine are then one equality query away. Rows are written next to the medicine document, so
+ * they see no more write contention than the medicine itself.
+ */
+final class AvailabilityIndex {
+
+    static final String COLLECTION = "medicine_availability";
+    static final String NAME_KEY = "nameKey";
+    static final String SKU_KEY = "skuKey";
+    static final String QUANTITY = "quantityInStock";
+
+    private AvailabilityIndex() {
+    }
+
+    static CollectionReference collection(Firestore firestore, String orgId) {
+        return firestore.collection("organizations").document(orgId).collection(COLLECTION);
+    }
+
+    static DocumentReference row(Firestore firestore, String orgId, String branchId, String medicineId) {
+        return collection(firestore, orgId).document(branchId + "_" + medicineId);
+    }
+
+    /**
+     * Lowercases, trims and collapses inner whitespace, so "Dolo  650 " and "dolo 650" match.
+     */
+    static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        String normalized = value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    /**
+     * Stages a full rewrite of the medicine's row, e.g. when the medicine is saved.
+     */
+    static void stageSave(UpdateBuilder<?> writes, Firestore firestore, String orgId, String branchId, Medicine medicine) {
+        writes.set(row(firestore, orgId, branchId, medicine.getMedicineId()), toRow(branchId, medicine));
+    }
+
+    static Map<String, Object> toRow(String branchId, Medicine medicine) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("branchId", branchId);
+        row.put("medicineId", medicine.getMedicineId());
+        row.put("name", medicine.getName());
+        row.put("sku", medicine.getSku());
+        row.put(NAME_KEY, normalize(medicine.getName()));
+        row.put(SKU_KEY, normalize(medicine.getSku()));
+        row.put("status", medicine.getStatus());
+        row.put(QUANTITY, medicine.getQuantityInStock());
+        return row;
+    }
+
+    /**
+     * Stages a stock change of the medicine's row when only its ID is known. The row must exist, so
+     * the commit fails rather than leaving a partial row holding a delta; rows of medicines saved
+     * before the index existed are backfilled with {@code rebuildAvailabilityIndex}.
+     */
+    static void stageStockChange(UpdateBuilder<?> writes, Firestore firestore, String orgId, String branchId,
+                                 String medicineId, int quantityChange) {
+        writes.update(row(firestore, orgId, branchId, medicineId), QUANTITY, FieldValue.increment(quantityChange));
+    }
+
+    /**
+     * Stages a full rewrite of the medicine's row with its stock after {@code quantityChange}, so a
+     * missing row is seeded instead of being left with only the change. The medicine must have been
+     * read in the same transaction.
+     */
+    static void stageStockChange(UpdateBuilder<?> writes, Firestore firestore, String orgId, String branchId,
+                                 Medicine medicine, int quantityChange) {
+        Map<String, Object> row = toRow(branchId, medicine);
+        row.put(QUANTITY, (long) medicine.getQuantityInStock() + quantityChange);
+        writes.set(row(firestore, orgId, branchId, medicine.getMedicineId()), row);
+    }
+
+    /**
+     * Stages an update of some fields of an existing row; the commit fails if the row is missing.
+     */
+    static void stageFields(UpdateBuilder<?> writes, Firestore firestore, String orgId, String branchId,
+                            String medicineId, Map<String, Object> fields) {
+        writes.update(row(firestore, orgId, branchId, medicineId), fields);
+    }
+
+    static BranchAvailability fromSnapshot(DocumentSnapshot doc) {
+        Long quantity = doc.getLong(QUANTITY);
+        return new BranchAvailability(doc.getString("branchId"), doc.getString("medicineId"), doc.getString("name"),
+                doc.getString("sku"), quantity != null ? quantity : 0L);
+    }
+}
@@ -1,39 +1,109 @@
 package com.cosmicdoc.common.repository.impl;
 
+import com.cosmicdoc.common.repository.AsyncBaseRepository;
 import com.cosmicdoc.common.repository.BaseRepository;
+import com.cosmicdoc.common.repository.BulkWriteResult;
+import com.cosmicdoc.common.repository.SaveResult;
+import com.cosmicdoc.common.repository.cache.CacheStats;
+import com.cosmicdoc.common.repository.cache.EntityCache;
+import com.cosmicdoc.common.repository.cache.SingleFlight;
+import com.cosmicdoc.common.repository.cache.SingleFlightStats;
+import com.cosmicdoc.common.repository.mapper.DocumentMapper;
+import com.cosmicdoc.common.repository.mapper.DocumentMappers;
 import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.WriteResult;
 import org.springframework.beans.factory.annotation.Autowired;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.ParameterizedType;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-public abstract class BaseRepositoryImpl<T, ID> implements BaseRepository<T, ID> {
+import static com.cosmicdoc.common.util.FirestoreFutures.toCompletableFuture;
+
+public abstract class BaseRepositoryImpl<T, ID> implements BaseRepository<T, ID>, AsyncBaseRepository<T, ID> {
 
     @Autowired
     protected Firestore firestore;
 
     protected Class<T> entityClass;
 
+    private final EntityIdAccessor idAccessor;
+
+    private EntityCache<T> entityCache = EntityCache.disabled();
+
+    private final SingleFlight<Optional<T>> findByIdFlight;
+
+    private final DocumentMapper<T> documentMapper;
+
     @SuppressWarnings("unchecked")
     public BaseRepositoryImpl() {
         this.entityClass = (Class<T>) ((ParameterizedType) getClass().getGenericSuperclass()).getActualTypeArguments()[0];
+        this.idAccessor = EntityIdAccessor.forClass(entityClass);
+        this.documentMapper = DocumentMappers.find(entityClass).orElse(null);
+        this.findByIdFlight = new SingleFlight<>(entityClass.getSimpleName() + ".findById");
     }
 
     protected abstract CollectionReference getCollection();
 
+    /**
+     * Converts a document into the entity, through the entity's reflection-free
+     * {@link DocumentMapper} when one is registered and {@code toObject} otherwise.
+     */
+    protected T toEntity(DocumentSnapshot document) {
+        return documentMapper != null ? documentMapper.fromSnapshot(document) : document.toObject(entityClass);
+    }
+
+    /**
+     * Enables read-through caching of {@link #findById(Object)} for this repository.
+     * Every write made through this repository invalidates the affected entry.
+     */
+    public void setEntityCache(EntityCache<T> entityCache) {
+        this.entityCache = entityCache != null ? entityCache : EntityCache.disabled();
+    }
+
+    public CacheStats getCacheStats() {
+        return entityCache.stats();
+    }
+
+    /**
+     * @return How many concurrent findById calls for the same document shared one RPC.
+     */
+    public SingleFlightStats getFindByIdFlightStats() {
+        return findByIdFlight.stats();
+    }
+
+    /**
+     * Drops a cached entity, and lets later lookups start a fresh read instead of joining one that
+     * began before the write. Subclasses call this from their own write paths (e.g.
+     * saveInTransaction) so the cache never outlives a local write.
+     * <p>
+     * Writes staged into a caller's batch or transaction are only evicted when they are staged, so a
+     * read before the commit can still cache the old document. Callers that commit such a batch
+     * call this again once the commit has completed.
+     */
+    public void evictFromCache(String id) {
+        if (id != null) {
+            entityCache.invalidate(id);
+            findByIdFlight.forget(id);
+        }
+    }
+
     @Override
     public List<T> findAll() {
         try {
             List<T> entities = new ArrayList<>();
             var documents = getCollection().get().get().getDocuments();
             for (var document : documents) {
-                entities.add(document.toObject(entityClass));
+                entities.add(toEntity(document));
             }
             return entities;
         } catch (InterruptedException | ExecutionException e) {
@@ -41,12 +111,37 @@ public abstract class BaseRepositoryImpl<T, ID> implements BaseRepository<T, ID>
         }
     }
 
+    /**
+     * Pages through the collection ordered by document ID, so memory stays bounded
+     * to two pages regardless of the collection size.
+     */
+    @Override
+    public Stream<T> streamAll(int pageSize) {
+        return PagedQueryIterator.streamByDocumentId(getCollection(), pageSize, this::toEntity);
+    }
+
     @Override
     public Optional<T> findById(ID id) {
+        T cached = entityCache.getIfPresent(id.toString());
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return findByIdFlight.execute(id.toString(), () -> loadById(id));
+    }
+
+    /**
+     * Reads the document directly, bypassing request coalescing, and refreshes the cache.
+     * Used for read-after-write so a save never shares a read that started before it.
+     */
+    private Optional<T> loadById(ID id) {
+        // Taken before the read, so an eviction while it is in flight keeps its result out of the cache.
+        long token = entityCache.invalidationToken(id.toString());
         try {
             var document = getCollection().document(id.toString()).get().get();
             if (document.exists()) {
-                return Optional.ofNullable(document.toObject(entityClass));
+                T entity = toEntity(document);
+                entityCache.putIfNotInvalidated(id.toString(), entity, token);
+                return Optional.ofNullable(entity);
             }
             return Optional.empty();
         } catch (InterruptedException | ExecutionException e) {
@@ -57,30 +152,58 @@ public abstract class BaseRepositoryImpl<T, ID> implements BaseRepository<T, ID>
     @Override
     public T save(T entity) {
         try {
-            String docId;
-            try {
-                docId = entityClass.getMethod("getId").invoke(entity).toString();
-                getCollection().document(docId).set(entity).get();
+            // Only a getId() method selects set(); @DocumentId-only entities keep being added.
+            String docId = idAccessor.getIdFromMethod(entity);
+            if (docId != null) {
+                try {
+                    getCollection().document(docId).set(entity).get();
+                } finally {
+                    evictFromCache(docId);
+                }
                 @SuppressWarnings("unchecked")
                 ID id = (ID) docId;
-                return findById(id).orElseThrow(() -> new RuntimeException("Error saving entity"));
-            } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+                return loadById(id).orElseThrow(() -> new RuntimeException("Error saving entity"));
+            } else {
                 var docRef = getCollection().add(entity).get();
                 @SuppressWarnings("unchecked")
                 ID id = (ID) docRef.getId();
-                return findById(id).orElseThrow(() -> new RuntimeException("Error saving entity"));
+                return loadById(id).orElseThrow(() -> new RuntimeException("Error saving entity"));
             }
         } catch (InterruptedException | ExecutionException e) {
             throw new RuntimeException("Error saving document", e);
         }
     }
 
+    /**
+     * Writes the entity and returns it together with the WriteResult update time,
+     * skipping the read-back that {@link #save(Object)} performs.
+     * If the entity has no ID yet, one is generated client-side and written back
+     * into its {@code @DocumentId} field.
+     */
+    @Override
+    public SaveResult<T> saveWriteOnly(T entity) {
+        try {
+            DocumentReference docRef = resolveDocumentForWrite(entity);
+            WriteResult result;
+            try {
+                result = docRef.set(entity).get();
+            } finally {
+                evictFromCache(docRef.getId());
+            }
+            return new SaveResult<>(entity, docRef.getId(), result.getUpdateTime());
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error saving document", e);
+        }
+    }
+
     @Override
     public void deleteById(ID id) {
         try {
             getCollection().document(id.toString()).delete().get();
         } catch (InterruptedException | ExecutionException e) {
             throw new RuntimeException("Error deleting document", e);
+        } finally {
+            evictFromCache(id.toString());
         }
     }
 
@@ -93,4 +216,124 @@ public abstract class BaseRepositoryImpl<T, ID> implements BaseRepository<T, ID>
             throw new RuntimeException("Error checking document existence", e);
         }
     }
+
+    /**
+     * Writes all entities through the shared BulkWriter pipeline. Entities without an ID
+     * get a client-side generated one, as in {@link #saveWriteOnly(Object)}.
+     */
+    @Override
+    public BulkWriteResult saveAll(List<T> entities) {
+        try {
+            return BulkWriteSupport.setAll(firestore, entities, this::resolveDocumentForWrite);
+        } finally {
+            entities.forEach(entity -> evictFromCache(idAccessor.getId(entity)));
+        }
+    }
+
+    @Override
+    public BulkWriteResult deleteAll(List<ID> ids) {
+        try {
+            return BulkWriteSupport.deleteAll(firestore, ids.stream()
+                    .map(id -> getCollection().document(id.toString()))
+                    .collect(Collectors.toList()));
+        } finally {
+            ids.forEach(id -> evictFromCache(id.toString()));
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<T>> findAllAsync() {
+        return withErrorMessage(toCompletableFuture(getCollection().get())
+                .thenApply(snapshot -> snapshot.getDocuments().stream()
+                        .map(this::toEntity)
+                        .collect(Collectors.toList())), "Error finding all documents");
+    }
+
+    @Override
+    public CompletableFuture<Optional<T>> findByIdAsync(ID id) {
+        T cached = entityCache.getIfPresent(id.toString());
+        if (cached != null) {
+            return CompletableFuture.completedFuture(Optional.of(cached));
+        }
+        return findByIdFlight.executeAsync(id.toString(), () -> loadByIdAsync(id));
+    }
+
+    private CompletableFuture<Optional<T>> loadByIdAsync(ID id) {
+        long token = entityCache.invalidationToken(id.toString());
+        return withErrorMessage(toCompletableFuture(getCollection().document(id.toString()).get())
+                .thenApply(document -> {
+                    if (!document.exists()) {
+                        return Optional.<T>empty();
+                    }
+                    T entity = toEntity(document);
+                    entityCache.putIfNotInvalidated(id.toString(), entity, token);
+                    return Optional.ofNullable(entity);
+                }), "Error finding document by id");
+    }
+
+    @Override
+    public CompletableFuture<T> saveAsync(T entity) {
+        String docId = idAccessor.getIdFromMethod(entity);
+        CompletableFuture<String> written = docId != null
+                ? toCompletableFuture(getCollection().document(docId).set(entity))
+                        .whenComplete((result, error) -> evictFromCache(docId))
+                        .thenApply(result -> docId)
+                : toCompletableFuture(getCollection().add(entity)).thenApply(docRef -> docRef.getId());
+        return withErrorMessage(written.thenCompose(writtenId -> {
+            @SuppressWarnings("unchecked")
+            ID id = (ID) writtenId;
+            return loadByIdAsync(id);
+        }).thenApply(saved -> saved.orElseThrow(() -> new RuntimeException("Error saving entity"))), "Error saving document");
+    }
+
+    /**
+     * Non-blocking variant of {@link #saveWriteOnly(Object)}.
+     */
+    public CompletableFuture<SaveResult<T>> saveWriteOnlyAsync(T entity) {
+        DocumentReference docRef = resolveDocumentForWrite(entity);
+        return withErrorMessage(toCompletableFuture(docRef.set(entity))
+                .whenComplete((result, error) -> evictFromCache(docRef.getId()))
+                .thenApply(result -> new SaveResult<>(entity, docRef.getId(), result.getUpdateTime())), "Error saving document");
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteByIdAsync(ID id) {
+        return withErrorMessage(toCompletableFuture(getCollection().document(id.toString()).delete())
+                .whenComplete((result, error) -> evictFromCache(id.toString()))
+                .thenApply(result -> (Void) null), "Error deleting document");
+    }
+
+    @Override
+    public CompletableFuture<Boolean> existsByIdAsync(ID id) {
+        return withErrorMessage(toCompletableFuture(getCollection().document(id.toString()).get())
+                .thenApply(DocumentSnapshot::exists), "Error checking document existence");
+    }
+
+    /**
+     * Returns the document the entity should be written to, generating a client-side ID
+     * (and copying it into the entity) when the entity does not carry one yet.
+     */
+    private DocumentReference resolveDocumentForWrite(T entity) {
+        String existingId = idAccessor.getId(entity);
+        if (existingId != null) {
+            return getCollection().document(existingId);
+        }
+        DocumentReference docRef = getCollection().document();
+        idAccessor.setId(entity, docRef.getId());
+        return docRef;
+    }
+
+    /**
+     * Wraps any failure of the given future in a RuntimeException carrying the same
+     * message the blocking methods use, so callers see consistent errors either way.
+     */
+    private static <R> CompletableFuture<R> withErrorMessage(CompletableFuture<R> future, String message) {
+        return future.handle((result, error) -> {
+            if (error == null) {
+                return result;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            throw new CompletionException(new RuntimeException(message, cause));
+        });
+    }
 }
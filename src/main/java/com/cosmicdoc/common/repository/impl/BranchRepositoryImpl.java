@@ -2,24 +2,57 @@ package com.cosmicdoc.common.repository.impl;
 
 import com.cosmicdoc.common.model.Branch;
 import com.cosmicdoc.common.repository.BranchRepository;
+import com.cosmicdoc.common.repository.BulkWriteResult;
+import com.cosmicdoc.common.repository.cache.BoundedEntityCache;
+import com.cosmicdoc.common.repository.cache.CacheStats;
+import com.cosmicdoc.common.repository.cache.EntityCache;
+import com.cosmicdoc.common.repository.cache.SingleFlight;
+import com.cosmicdoc.common.repository.cache.SingleFlightStats;
 import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.WriteBatch;
 import org.springframework.stereotype.Repository;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
 public class BranchRepositoryImpl extends BaseRepositoryImpl<Branch,String> implements BranchRepository {
 
+    private static final Duration CACHE_TTL = Duration.ofMinutes(10);
+    private static final int CACHE_MAX_ENTRIES = 10_000;
+
+    /**
+     * Read-through cache for the organization-scoped lookups, keyed by "orgId/branchId".
+     * Branches are read on every sale and purchase but change rarely.
+     */
+    private EntityCache<Branch> branchCache = new BoundedEntityCache<>("org_branches", CACHE_TTL, CACHE_MAX_ENTRIES);
+
+    private final SingleFlight<Optional<Branch>> branchFlight = new SingleFlight<>("Branch.findById");
+
     public BranchRepositoryImpl(Firestore firestore) {
         super();
         this.firestore = firestore;
     }
 
+    public void setBranchCache(EntityCache<Branch> branchCache) {
+        this.branchCache = branchCache != null ? branchCache : EntityCache.disabled();
+    }
+
+    public CacheStats getBranchCacheStats() {
+        return branchCache.stats();
+    }
+
+    private static String cacheKey(String organizationId, String branchId) {
+        return organizationId + "/" + branchId;
+    }
+
        @Override
     protected CollectionReference getCollection() {
            return firestore.collection("branches");
@@ -29,6 +62,17 @@ public class BranchRepositoryImpl extends BaseRepositoryImpl<Branch,String> impl
         var docRef = firestore.collection("organizations").document(organizationId)
                 .collection("branches").document(branch.getBranchId());
         batch.set(docRef, branch);
+        evictFromBranchCache(organizationId, branch.getBranchId());
+    }
+
+    /**
+     * Drops a branch from the organization-scoped cache. Writes staged into a caller's batch are
+     * only evicted when staged, so callers call this again once they have committed the batch.
+     */
+    public void evictFromBranchCache(String organizationId, String branchId) {
+        String key = cacheKey(organizationId, branchId);
+        branchCache.invalidate(key);
+        branchFlight.forget(key);
     }
 
     private CollectionReference getBranchesCollection(String organizationId) {
@@ -43,15 +87,32 @@ public class BranchRepositoryImpl extends BaseRepositoryImpl<Branch,String> impl
             return branch;
         } catch (InterruptedException | ExecutionException e) {
             throw new RuntimeException("Error saving branch for organization " + organizationId, e);
+        } finally {
+            evictFromBranchCache(organizationId, branch.getBranchId());
         }
     }
 
     @Override
     public Optional<Branch> findById(String organizationId, String branchId) {
+        Branch cached = branchCache.getIfPresent(cacheKey(organizationId, branchId));
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return branchFlight.execute(cacheKey(organizationId, branchId), () -> loadBranch(organizationId, branchId));
+    }
+
+    public SingleFlightStats getBranchFlightStats() {
+        return branchFlight.stats();
+    }
+
+    private Optional<Branch> loadBranch(String organizationId, String branchId) {
+        long token = branchCache.invalidationToken(cacheKey(organizationId, branchId));
         try {
             var document = getBranchesCollection(organizationId).document(branchId).get().get();
             if (document.exists()) {
-                return Optional.ofNullable(document.toObject(Branch.class));
+                Branch branch = document.toObject(Branch.class);
+                branchCache.putIfNotInvalidated(cacheKey(organizationId, branchId), branch, token);
+                return Optional.ofNullable(branch);
             }
             return Optional.empty();
         } catch (InterruptedException | ExecutionException e) {
@@ -99,4 +160,33 @@ public class BranchRepositoryImpl extends BaseRepositoryImpl<Branch,String> impl
         }
     }
 
+    @Override
+    public BulkWriteResult saveAll(String organizationId, List<Branch> branches) {
+        CollectionReference collection = getBranchesCollection(organizationId);
+        try {
+            return BulkWriteSupport.setAll(firestore, branches, branch -> collection.document(branch.getBranchId()));
+        } finally {
+            branches.forEach(branch -> evictFromBranchCache(organizationId, branch.getBranchId()));
+        }
+    }
+
+    @Override
+    public void deleteByIdHard(String organizationId, String branchId) {
+        try {
+            // The branch's rows in the organization-level availability index live outside the branch document.
+            List<DocumentReference> availabilityRows;
+            try (Stream<DocumentReference> rows = PagedQueryIterator.streamByDocumentId(
+                    AvailabilityIndex.collection(firestore, organizationId).whereEqualTo("branchId", branchId),
+                    PagedQueryIterator.DEFAULT_PAGE_SIZE, QueryDocumentSnapshot::getReference)) {
+                availabilityRows = rows.collect(Collectors.toList());
+            }
+            BulkWriteResult removed = BulkWriteSupport.deleteAll(firestore, availabilityRows);
+            if (!removed.isAllSucceeded()) {
+                throw new RuntimeException("Failed to delete " + removed.getFailed().size() + " availability rows of branch: " + branchId);
+            }
+            new RecursiveDelete(firestore).delete(getBranchesCollection(organizationId).document(branchId));
+        } finally {
+            evictFromBranchCache(organizationId, branchId);
+        }
+    }
 }
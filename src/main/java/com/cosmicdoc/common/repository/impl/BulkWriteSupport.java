@@ -0,0 +1,142 @@
+package com.cosmicdoc.common.repository.impl;
+
+import com.cosmicdoc.common.repository.BulkWriteResult;
+import com.cosmicdoc.common.repository.BulkWriteResult.DocumentOutcome;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.BulkWriter;
+import com.google.cloud.firestore.BulkWriterOptions;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.WriteResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Shared bulk write pipeline for the repositories, built on Firestore's {@link BulkWriter}.
+ * <p>
+ * BulkWriter takes care of splitting work into commits below the 500-operation limit,
+ * sending several commits in parallel, ramping throughput up gradually (500 ops/s,
+ * +50% every 5 minutes) and retrying throttled or contended writes. On top of that this
+ * class flushes every {@link #MAX_PENDING_OPERATIONS} operations so very large imports
+ * do not queue the whole input in memory, and reports one outcome per document. A document
+ * that cannot even be enqueued (e.g. no ID, or an entity Firestore cannot serialize) is
+ * reported as failed without affecting the others.
+ */
+public final class BulkWriteSupport {
+
+    static final int INITIAL_OPS_PER_SECOND = 500;
+    static final int MAX_OPS_PER_SECOND = 10_000;
+    static final int MAX_PENDING_OPERATIONS = 5_000;
+
+    private static final BulkWriterOptions OPTIONS = BulkWriterOptions.builder()
+            .setInitialOpsPerSecond(INITIAL_OPS_PER_SECOND)
+            .setMaxOpsPerSecond(MAX_OPS_PER_SECOND)
+            .build();
+
+    private BulkWriteSupport() {}
+
+    /**
+     * Sets (creates or overwrites) every entity at the document chosen by {@code target}.
+     */
+    public static <E> BulkWriteResult setAll(Firestore firestore, List<E> entities, Function<E, DocumentReference> target) {
+        return run(firestore, entities, target, (writer, ref, entity) -> writer.set(ref, entity));
+    }
+
+    /**
+     * Like {@link #setAll(Firestore, List, Function)}, with the set options chosen per entity
+     * ({@code null} for a plain overwrite).
+     */
+    public static <E> BulkWriteResult setAll(Firestore firestore, List<E> entities, Function<E, DocumentReference> target,
+                                             Function<E, SetOptions> options) {
+        return run(firestore, entities, target, (writer, ref, entity) -> {
+            SetOptions setOptions = options.apply(entity);
+            return setOptions != null ? writer.set(ref, entity, setOptions) : writer.set(ref, entity);
+        });
+    }
+
+    /**
+     * Applies the same partial update to every referenced document.
+     */
+    public static BulkWriteResult updateAll(Firestore firestore, List<DocumentReference> refs, Map<String, Object> updates) {
+        return run(firestore, refs, Function.identity(), (writer, ref, ignored) -> writer.update(ref, updates));
+    }
+
+    /**
+     * Deletes every referenced document.
+     */
+    public static BulkWriteResult deleteAll(Firestore firestore, List<DocumentReference> refs) {
+        return run(firestore, refs, Function.identity(), (writer, ref, ignored) -> writer.delete(ref));
+    }
+
+    @FunctionalInterface
+    private interface Operation<E> {
+        ApiFuture<WriteResult> enqueue(BulkWriter writer, DocumentReference ref, E item);
+    }
+
+    private static <E> BulkWriteResult run(Firestore firestore, List<E> items, Function<E, DocumentReference> target, Operation<E> operation) {
+        List<DocumentOutcome> outcomes = new ArrayList<>(items.size());
+        if (items.isEmpty()) {
+            return new BulkWriteResult(outcomes);
+        }
+
+        BulkWriter writer = firestore.bulkWriter(OPTIONS);
+        try {
+            List<DocumentReference> pendingRefs = new ArrayList<>();
+            List<ApiFuture<WriteResult>> pendingWrites = new ArrayList<>();
+            for (E item : items) {
+                DocumentReference ref = null;
+                ApiFuture<WriteResult> write;
+                try {
+                    ref = target.apply(item);
+                    write = operation.enqueue(writer, ref, item);
+                } catch (RuntimeException e) {
+                    // E.g. a missing ID or an entity that cannot be serialized; only this document fails.
+                    write = ApiFutures.immediateFailedFuture(e);
+                }
+                pendingRefs.add(ref);
+                pendingWrites.add(write);
+                if (pendingWrites.size() >= MAX_PENDING_OPERATIONS) {
+                    drain(writer, pendingRefs, pendingWrites, outcomes);
+                }
+            }
+            drain(writer, pendingRefs, pendingWrites, outcomes);
+        } finally {
+            try {
+                writer.close();
+            } catch (Exception e) {
+                // Every operation has already been flushed and accounted for above.
+            }
+        }
+        return new BulkWriteResult(outcomes);
+    }
+
+    /**
+     * Waits for everything enqueued so far and records one outcome per document.
+     */
+    private static void drain(BulkWriter writer, List<DocumentReference> refs, List<ApiFuture<WriteResult>> writes,
+                              List<DocumentOutcome> outcomes) {
+        try {
+            writer.flush().get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error flushing bulk write", e);
+        }
+        for (int i = 0; i < writes.size(); i++) {
+            int index = outcomes.size();
+            String documentId = refs.get(i) != null ? refs.get(i).getId() : null;
+            try {
+                outcomes.add(new DocumentOutcome(index, documentId, writes.get(i).get().getUpdateTime(), null));
+            } catch (InterruptedException | ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                outcomes.add(new DocumentOutcome(index, documentId, null, cause));
+            }
+        }
+        refs.clear();
+        writes.clear();
+    }
+}
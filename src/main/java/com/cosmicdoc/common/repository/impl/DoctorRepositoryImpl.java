@@ -2,17 +2,23 @@ package com.cosmicdoc.common.repository.impl;
 
 import com.cosmicdoc.common.model.Doctor;
 import com.cosmicdoc.common.repository.DoctorRepository;
+import com.cosmicdoc.common.repository.cache.BoundedEntityCache;
 import com.google.cloud.firestore.Firestore;
 import org.springframework.stereotype.Repository;
 
+import java.time.Duration;
 import java.util.Optional;
 
 @Repository
 public class DoctorRepositoryImpl extends BaseRepositoryImpl<Doctor, String> implements DoctorRepository {
-    
+
+    private static final Duration CACHE_TTL = Duration.ofMinutes(5);
+    private static final int CACHE_MAX_ENTRIES = 5_000;
+
     public DoctorRepositoryImpl(Firestore firestore) {
         super();
         this.firestore = firestore;
+        setEntityCache(new BoundedEntityCache<>("doctors", CACHE_TTL, CACHE_MAX_ENTRIES));
     }
 
     @Override
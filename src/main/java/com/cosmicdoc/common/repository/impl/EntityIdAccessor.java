@@ -0,0 +1,120 @@
+package com.cosmicdoc.common.repository.impl;
+
+import com.google.cloud.firestore.annotation.DocumentId;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * Resolves how to read (and, where possible, write) the document ID of an entity class.
+ * <p>
+ * The lookup is done once per class and cached, so repositories no longer pay for a
+ * reflective {@code getMethod("getId")} on every save. A public {@code getId()} method wins;
+ * otherwise the field annotated with {@link DocumentId} is used. {@link BaseRepositoryImpl#save(Object)}
+ * only honours the {@code getId()} method (see {@link #getIdFromMethod}), so entities such as
+ * Organization and Branch, whose ID lives only in a {@link DocumentId} field, are still added
+ * under a generated ID there as they always were.
+ */
+final class EntityIdAccessor {
+
+    private static final ClassValue<EntityIdAccessor> CACHE = new ClassValue<>() {
+        @Override
+        protected EntityIdAccessor computeValue(Class<?> type) {
+            return resolve(type);
+        }
+    };
+
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+    private final boolean getterIsMethod;
+
+    private EntityIdAccessor(MethodHandle getter, MethodHandle setter, boolean getterIsMethod) {
+        this.getter = getter;
+        this.setter = setter;
+        this.getterIsMethod = getterIsMethod;
+    }
+
+    static EntityIdAccessor forClass(Class<?> entityClass) {
+        return CACHE.get(entityClass);
+    }
+
+    /**
+     * @return The entity's ID as a string, or null if the class has no ID accessor or the ID is unset.
+     */
+    String getId(Object entity) {
+        if (getter == null) {
+            return null;
+        }
+        try {
+            Object id = getter.invoke(entity);
+            return id != null ? id.toString() : null;
+        } catch (Throwable t) {
+            throw new RuntimeException("Error reading document id from " + entity.getClass().getSimpleName(), t);
+        }
+    }
+
+    /**
+     * @return The ID from a public {@code getId()} method only, or null if the class has no such
+     *         method (the {@link DocumentId} field is ignored) or the ID is unset.
+     */
+    String getIdFromMethod(Object entity) {
+        return getterIsMethod ? getId(entity) : null;
+    }
+
+    /**
+     * Writes a generated ID back into the entity's {@link DocumentId} field, if it has one.
+     */
+    void setId(Object entity, String id) {
+        if (setter == null) {
+            return;
+        }
+        try {
+            setter.invoke(entity, id);
+        } catch (Throwable t) {
+            throw new RuntimeException("Error writing document id to " + entity.getClass().getSimpleName(), t);
+        }
+    }
+
+    private static EntityIdAccessor resolve(Class<?> type) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle getter = null;
+        MethodHandle setter = null;
+
+        try {
+            getter = lookup.findVirtual(type, "getId", MethodType.methodType(type.getMethod("getId").getReturnType()))
+                    .asType(MethodType.methodType(Object.class, Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException ignored) {
+            // Fall back to the @DocumentId field below.
+        }
+        boolean getterIsMethod = getter != null;
+
+        Field idField = findDocumentIdField(type);
+        if (idField != null) {
+            try {
+                idField.setAccessible(true);
+                if (getter == null) {
+                    getter = lookup.unreflectGetter(idField).asType(MethodType.methodType(Object.class, Object.class));
+                }
+                if (idField.getType() == String.class) {
+                    setter = lookup.unreflectSetter(idField).asType(MethodType.methodType(void.class, Object.class, String.class));
+                }
+            } catch (IllegalAccessException | RuntimeException ignored) {
+                // Leave whatever could be resolved; a missing accessor just means Firestore generates the ID.
+            }
+        }
+        return new EntityIdAccessor(getter, setter, getterIsMethod);
+    }
+
+    private static Field findDocumentIdField(Class<?> type) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.isAnnotationPresent(DocumentId.class)) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,81 @@
+package com.cosmicdoc.common.repository.impl;
+
+import com.cosmicdoc.common.dto.ExpiringBatch;
+import com.cosmicdoc.common.model.MedicineBatch;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.Transaction;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Denormalized per-branch index of medicine batches ordered by expiry date.
+ * <p>
+ * Every batch has one entry in {@code organizations/{org}/branches/{branch}/expiry_index},
+ * keyed {@code {medicineId}_{batchId}}, which is written in the same transaction as the batch.
+ * Expiry reports are then a single range query on {@code expiryDate} instead of one query per
+ * medicine.
+ */
+final class ExpiryIndex {
+
+    static final String COLLECTION = "expiry_index";
+    static final String EXPIRY_DATE = "expiryDate";
+    static final String QUANTITY_AVAILABLE = "quantityAvailable";
+
+    private ExpiryIndex() {
+    }
+
+    static CollectionReference collection(Firestore firestore, String orgId, String branchId) {
+        return firestore.collection("organizations").document(orgId)
+                .collection("branches").document(branchId)
+                .collection(COLLECTION);
+    }
+
+    static DocumentReference entry(Firestore firestore, String orgId, String branchId, String medicineId, String batchId) {
+        return collection(firestore, orgId, branchId).document(medicineId + "_" + batchId);
+    }
+
+    static Map<String, Object> toEntry(String medicineId, MedicineBatch batch) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("medicineId", medicineId);
+        entry.put("batchId", batch.getBatchId());
+        entry.put("batchNo", batch.getBatchNo());
+        entry.put(EXPIRY_DATE, batch.getExpiryDate());
+        entry.put(QUANTITY_AVAILABLE, batch.getQuantityAvailable());
+        entry.put("purchaseCost", batch.getPurchaseCost());
+        entry.put("mrp", batch.getMrp());
+        return entry;
+    }
+
+    static void stageSave(Transaction transaction, Firestore firestore, String orgId, String branchId, String medicineId, MedicineBatch batch) {
+        transaction.set(entry(firestore, orgId, branchId, medicineId, batch.getBatchId()), toEntry(medicineId, batch));
+    }
+
+    /**
+     * Mirrors a stock change. Merging keeps this safe for batches created before the index
+     * existed; such partial entries have no expiry date and stay out of reports until a rebuild.
+     */
+    static void stageStockChange(Transaction transaction, Firestore firestore, String orgId, String branchId,
+                                 String medicineId, String batchId, int quantityChange) {
+        transaction.set(entry(firestore, orgId, branchId, medicineId, batchId),
+                Map.of(QUANTITY_AVAILABLE, FieldValue.increment(quantityChange)), SetOptions.merge());
+    }
+
+    static void stageDelete(Transaction transaction, Firestore firestore, String orgId, String branchId, String medicineId, String batchId) {
+        transaction.delete(entry(firestore, orgId, branchId, medicineId, batchId));
+    }
+
+    static ExpiringBatch fromSnapshot(DocumentSnapshot doc) {
+        Long quantity = doc.getLong(QUANTITY_AVAILABLE);
+        Double purchaseCost = doc.getDouble("purchaseCost");
+        Double mrp = doc.getDouble("mrp");
+        return new ExpiringBatch(doc.getString("medicineId"), doc.getString("batchId"), doc.getString("batchNo"),
+                doc.getTimestamp(EXPIRY_DATE), quantity != null ? quantity.intValue() : 0,
+                purchaseCost != null ? purchaseCost : 0.0, mrp != null ? mrp : 0.0);
+    }
+}
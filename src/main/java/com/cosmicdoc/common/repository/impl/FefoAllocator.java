@@ -0,0 +1,77 @@
+package com.cosmicdoc.common.repository.impl;
+
+import com.cosmicdoc.common.model.BatchAllocation;
+import com.cosmicdoc.common.model.MedicineBatch;
+import com.google.cloud.Timestamp;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory First-Expiry-First-Out allocation over the candidate batches of several medicines.
+ * <p>
+ * Batches are consumed soonest-expiry first (batches without an expiry date last), splitting a
+ * batch when only part of it is needed. Remaining quantities are tracked across calls, so two
+ * lines for the same medicine never allocate the same units twice.
+ */
+final class FefoAllocator {
+
+    static final Comparator<MedicineBatch> FEFO_ORDER = Comparator
+            .comparing(MedicineBatch::getExpiryDate, Comparator.nullsLast(Comparator.<Timestamp>naturalOrder()))
+            .thenComparing(MedicineBatch::getBatchNo, Comparator.nullsLast(Comparator.<String>naturalOrder()));
+
+    private final Map<String, List<MedicineBatch>> batchesByMedicine = new HashMap<>();
+    private final Map<String, Integer> remainingByBatchId = new HashMap<>();
+
+    FefoAllocator(Map<String, List<MedicineBatch>> candidates) {
+        candidates.forEach((medicineId, batches) -> {
+            List<MedicineBatch> ordered = new ArrayList<>(batches);
+            ordered.sort(FEFO_ORDER);
+            batchesByMedicine.put(medicineId, ordered);
+            ordered.forEach(batch -> remainingByBatchId.put(batch.getBatchId(), batch.getQuantityAvailable()));
+        });
+    }
+
+    /**
+     * Takes {@code quantity} units of the medicine from its batches.
+     *
+     * @throws IllegalArgumentException if {@code quantity} is not positive.
+     * @throws IllegalStateException if the batches do not hold enough stock.
+     */
+    List<BatchAllocation> allocate(String medicineId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive for medicine: " + medicineId + ", got: " + quantity);
+        }
+        List<MedicineBatch> batches = batchesByMedicine.getOrDefault(medicineId, List.of());
+        List<BatchAllocation> allocations = new ArrayList<>();
+        int needed = quantity;
+        for (MedicineBatch batch : batches) {
+            if (needed == 0) {
+                break;
+            }
+            int remaining = remainingByBatchId.get(batch.getBatchId());
+            if (remaining <= 0) {
+                continue;
+            }
+            int taken = Math.min(remaining, needed);
+            remainingByBatchId.put(batch.getBatchId(), remaining - taken);
+            needed -= taken;
+            allocations.add(BatchAllocation.builder()
+                    .batchId(batch.getBatchId())
+                    .batchNo(batch.getBatchNo())
+                    .quantityTaken(taken)
+                    .expiryDate(batch.getExpiryDate())
+                    .build());
+        }
+        if (needed > 0) {
+            // Give back what was provisionally taken so the allocator stays consistent.
+            allocations.forEach(a -> remainingByBatchId.merge(a.getBatchId(), a.getQuantityTaken(), Integer::sum));
+            throw new IllegalStateException("Insufficient stock for medicine: " + medicineId
+                    + ". Requested: " + quantity + ", available: " + (quantity - needed));
+        }
+        return allocations;
+    }
+}
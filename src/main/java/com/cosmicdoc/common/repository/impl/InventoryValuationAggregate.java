@@ -0,0 +1,137 @@
+package com.cosmicdoc.common.repository.impl;
+
+import com.cosmicdoc.common.model.InventoryValuation;
+import com.cosmicdoc.common.model.MedicineBatch;
+import com.cosmicdoc.common.model.Money;
+import com.cosmicdoc.common.repository.mapper.MoneyCodec;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.UpdateBuilder;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The per-branch inventory valuation document, updated by delta in the transactions that change
+ * batch quantities so that reading a branch's valuation is a single document read.
+ * <p>
+ * Values are stored as integer paise ({@link MoneyCodec}): each batch's purchaseCost and mrp are
+ * rounded to paise once, and increments then add up exactly.
+ */
+final class InventoryValuationAggregate {
+
+    static final String AGGREGATES_COLLECTION = "aggregates";
+    static final String DOCUMENT_ID = "inventory_valuation";
+
+    private InventoryValuationAggregate() {
+    }
+
+    static DocumentReference document(Firestore firestore, String orgId, String branchId) {
+        return firestore.collection("organizations").document(orgId)
+                .collection("branches").document(branchId)
+                .collection(AGGREGATES_COLLECTION).document(DOCUMENT_ID);
+    }
+
+    /**
+     * Stages the valuation change of {@code quantityChange} units of the batch.
+     */
+    static void stageChange(UpdateBuilder<?> writes, Firestore firestore, String orgId, String branchId,
+                            MedicineBatch batch, int quantityChange) {
+        if (quantityChange == 0) {
+            return;
+        }
+        stageDelta(writes, firestore, orgId, branchId, quantityChange,
+                quantityChange * Money.toPaise(batch.getPurchaseCost()), quantityChange * Money.toPaise(batch.getMrp()));
+    }
+
+    /**
+     * Stages the valuation change of rewriting {@code previous} as {@code batch}, which may change
+     * its quantity as well as its cost and MRP.
+     */
+    static void stageReplace(UpdateBuilder<?> writes, Firestore firestore, String orgId, String branchId,
+                             MedicineBatch previous, MedicineBatch batch) {
+        stageDelta(writes, firestore, orgId, branchId,
+                batch.getQuantityAvailable() - previous.getQuantityAvailable(),
+                batch.getQuantityAvailable() * Money.toPaise(batch.getPurchaseCost())
+                        - previous.getQuantityAvailable() * Money.toPaise(previous.getPurchaseCost()),
+                batch.getQuantityAvailable() * Money.toPaise(batch.getMrp())
+                        - previous.getQuantityAvailable() * Money.toPaise(previous.getMrp()));
+    }
+
+    /**
+     * Stages the removal of the batches' remaining stock, e.g. when they are deleted.
+     */
+    static void stageRemove(UpdateBuilder<?> writes, Firestore firestore, String orgId, String branchId,
+                            Collection<MedicineBatch> batches) {
+        if (batches.isEmpty()) {
+            return;
+        }
+        Totals totals = new Totals();
+        batches.forEach(totals::add);
+        stageDelta(writes, firestore, orgId, branchId, -totals.unitsInStock, -totals.costValue, -totals.mrpValue);
+    }
+
+    private static void stageDelta(UpdateBuilder<?> writes, Firestore firestore, String orgId, String branchId,
+                                   long units, long costPaise, long mrpPaise) {
+        writes.set(document(firestore, orgId, branchId), Map.of(
+                "branchId", branchId,
+                "unitsInStock", FieldValue.increment(units),
+                "costValue", FieldValue.increment(costPaise),
+                "mrpValue", FieldValue.increment(mrpPaise),
+                "updatedAt", FieldValue.serverTimestamp()), SetOptions.merge());
+    }
+
+    static InventoryValuation fromSnapshot(DocumentSnapshot snapshot) {
+        Long units = snapshot.getLong("unitsInStock");
+        return InventoryValuation.builder()
+                .branchId(snapshot.getString("branchId"))
+                .unitsInStock(units != null ? units : 0L)
+                .costValue(amount(snapshot.get("costValue")))
+                .mrpValue(amount(snapshot.get("mrpValue")))
+                .updatedAt(snapshot.getTimestamp("updatedAt"))
+                .build();
+    }
+
+    static Map<String, Object> toDocument(InventoryValuation valuation) {
+        Map<String, Object> document = new HashMap<>();
+        document.put("branchId", valuation.getBranchId());
+        document.put("unitsInStock", valuation.getUnitsInStock());
+        document.put("costValue", MoneyCodec.encode(valuation.getCostValue()));
+        document.put("mrpValue", MoneyCodec.encode(valuation.getMrpValue()));
+        document.put("updatedAt", valuation.getUpdatedAt());
+        return document;
+    }
+
+    private static Money amount(Object value) {
+        Money amount = MoneyCodec.decode(value);
+        return amount != null ? amount : Money.ZERO;
+    }
+
+    /**
+     * Accumulates batches into a fresh valuation for a rebuild.
+     */
+    static final class Totals {
+        private long unitsInStock;
+        private long costValue;
+        private long mrpValue;
+
+        void add(MedicineBatch batch) {
+            unitsInStock += batch.getQuantityAvailable();
+            costValue += batch.getQuantityAvailable() * Money.toPaise(batch.getPurchaseCost());
+            mrpValue += batch.getQuantityAvailable() * Money.toPaise(batch.getMrp());
+        }
+
+        InventoryValuation toValuation(String branchId) {
+            return InventoryValuation.builder()
+                    .branchId(branchId)
+                    .unitsInStock(unitsInStock)
+                    .costValue(Money.ofPaise(costValue))
+                    .mrpValue(Money.ofPaise(mrpValue))
+                    .build();
+        }
+    }
+}
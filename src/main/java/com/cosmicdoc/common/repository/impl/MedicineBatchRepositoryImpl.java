@@ -1,16 +1,33 @@
 package com.cosmicdoc.common.repository.impl;
 
+import com.cosmicdoc.common.dto.ExpiringBatch;
+import com.cosmicdoc.common.model.BatchAllocation;
+import com.cosmicdoc.common.model.InventoryValuation;
 import com.cosmicdoc.common.model.MedicineBatch;
+import com.cosmicdoc.common.model.SaleItem;
+import com.cosmicdoc.common.repository.BulkWriteResult;
 import com.cosmicdoc.common.repository.MedicineBatchRepository;
+import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.*;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 public class MedicineBatchRepositoryImpl implements MedicineBatchRepository {
 
+    private static final int REBUILD_CONCURRENCY = 50;
+
     private Firestore firestore;
 
     public  MedicineBatchRepositoryImpl (Firestore firestore) {
@@ -26,10 +43,35 @@ public class MedicineBatchRepositoryImpl implements MedicineBatchRepository {
                 .collection("medicines").document(medicineId)
                 .collection("batches");
     }
+    @Deprecated
     @Override
     public void saveInTransaction(Transaction transaction, String orgId, String branchId, String medicineId, MedicineBatch batch) {
         DocumentReference batchRef = getCollection(orgId, branchId, medicineId).document(batch.getBatchId());
         transaction.set(batchRef, batch);
+        ExpiryIndex.stageSave(transaction, firestore, orgId, branchId, medicineId, batch);
+        InventoryValuationAggregate.stageChange(transaction, firestore, orgId, branchId, batch, batch.getQuantityAvailable());
+    }
+
+    @Override
+    public void createInTransaction(Transaction transaction, String orgId, String branchId, String medicineId, MedicineBatch batch) {
+        DocumentReference batchRef = getCollection(orgId, branchId, medicineId).document(batch.getBatchId());
+        // Create, so saving an existing batch fails the commit instead of valuing its stock twice.
+        transaction.create(batchRef, batch);
+        ExpiryIndex.stageSave(transaction, firestore, orgId, branchId, medicineId, batch);
+        InventoryValuationAggregate.stageChange(transaction, firestore, orgId, branchId, batch, batch.getQuantityAvailable());
+    }
+
+    @Override
+    public void saveInTransaction(Transaction transaction, String orgId, String branchId, String medicineId,
+                                  MedicineBatch batch, MedicineBatch previous) {
+        if (previous == null) {
+            createInTransaction(transaction, orgId, branchId, medicineId, batch);
+            return;
+        }
+        DocumentReference batchRef = getCollection(orgId, branchId, medicineId).document(batch.getBatchId());
+        transaction.set(batchRef, batch);
+        ExpiryIndex.stageSave(transaction, firestore, orgId, branchId, medicineId, batch);
+        InventoryValuationAggregate.stageReplace(transaction, firestore, orgId, branchId, previous, batch);
     }
 
     /**
@@ -56,16 +98,85 @@ public class MedicineBatchRepositoryImpl implements MedicineBatchRepository {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public Map<String, List<MedicineBatch>> findAvailableBatches(Transaction transaction, String orgId, String branchId, Collection<String> medicineIds)
+            throws ExecutionException, InterruptedException {
+        // 1. Send every query before waiting on any of them, so the reads overlap.
+        Map<String, ApiFuture<QuerySnapshot>> pending = new LinkedHashMap<>();
+        for (String medicineId : new LinkedHashSet<>(medicineIds)) {
+            Query query = getCollection(orgId, branchId, medicineId).whereGreaterThan("quantityAvailable", 0);
+            pending.put(medicineId, transaction.get(query));
+        }
+
+        // 2. Collect the results; ordering by expiry happens in memory.
+        Map<String, List<MedicineBatch>> batchesByMedicine = new LinkedHashMap<>();
+        for (Map.Entry<String, ApiFuture<QuerySnapshot>> entry : pending.entrySet()) {
+            List<MedicineBatch> batches = entry.getValue().get().getDocuments().stream()
+                    .map(doc -> doc.toObject(MedicineBatch.class))
+                    .collect(Collectors.toCollection(ArrayList::new));
+            batches.sort(FefoAllocator.FEFO_ORDER);
+            batchesByMedicine.put(entry.getKey(), batches);
+        }
+        return batchesByMedicine;
+    }
+
+    @Override
+    public void allocateFefoInTransaction(Transaction transaction, String orgId, String branchId, List<SaleItem> items)
+            throws ExecutionException, InterruptedException {
+        // Reject bad lines before reading anything; a negative quantity would otherwise add stock.
+        for (SaleItem item : items) {
+            if (item.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Quantity must be positive for medicine: " + item.getMedicineId()
+                        + ", got: " + item.getQuantity());
+            }
+        }
+        List<String> medicineIds = items.stream().map(SaleItem::getMedicineId).collect(Collectors.toList());
+        Map<String, List<MedicineBatch>> candidates = findAvailableBatches(transaction, orgId, branchId, medicineIds);
+        FefoAllocator allocator = new FefoAllocator(candidates);
+
+        // Allocate every line before staging anything, so a shortfall leaves the transaction untouched.
+        List<List<BatchAllocation>> allocations = new ArrayList<>(items.size());
+        for (SaleItem item : items) {
+            allocations.add(allocator.allocate(item.getMedicineId(), item.getQuantity()));
+        }
+        // Lines for the same medicine may draw on the same batch; stage one decrement per batch.
+        Map<String, Map<String, Integer>> takenByMedicineAndBatch = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            SaleItem item = items.get(i);
+            item.setBatchAllocations(allocations.get(i));
+            Map<String, Integer> takenByBatch = takenByMedicineAndBatch.computeIfAbsent(item.getMedicineId(), id -> new LinkedHashMap<>());
+            for (BatchAllocation allocation : allocations.get(i)) {
+                takenByBatch.merge(allocation.getBatchId(), allocation.getQuantityTaken(), Integer::sum);
+            }
+        }
+        Map<String, MedicineBatch> batchesById = new LinkedHashMap<>();
+        candidates.values().forEach(batches -> batches.forEach(batch -> batchesById.put(batch.getBatchId(), batch)));
+        takenByMedicineAndBatch.forEach((medicineId, takenByBatch) -> takenByBatch.forEach((batchId, taken) ->
+                updateStockInTransaction(transaction, orgId, branchId, medicineId, batchesById.get(batchId), -taken)));
+    }
+
     /**
      * This is the atomic stock update implementation for a specific batch.
      */
+    @Deprecated
     @Override
     public void updateStockInTransaction(Transaction transaction, String orgId, String branchId, String medicineId, String batchId, int quantityChange) {
+        stageStockChange(transaction, orgId, branchId, medicineId, batchId, quantityChange);
+    }
+
+    @Override
+    public void updateStockInTransaction(Transaction transaction, String orgId, String branchId, String medicineId, MedicineBatch batch, int quantityChange) {
+        stageStockChange(transaction, orgId, branchId, medicineId, batch.getBatchId(), quantityChange);
+        InventoryValuationAggregate.stageChange(transaction, firestore, orgId, branchId, batch, quantityChange);
+    }
+
+    private void stageStockChange(Transaction transaction, String orgId, String branchId, String medicineId, String batchId, int quantityChange) {
         // Get a direct reference to the specific batch document.
         DocumentReference batchRef = getCollection(orgId, branchId, medicineId).document(batchId);
 
         // Use the transaction object to stage an atomic increment/decrement operation.
         transaction.update(batchRef, "quantityAvailable", FieldValue.increment(quantityChange));
+        ExpiryIndex.stageStockChange(transaction, firestore, orgId, branchId, medicineId, batchId, quantityChange);
     }
 
     /**
@@ -117,13 +228,25 @@ public class MedicineBatchRepositoryImpl implements MedicineBatchRepository {
         return Optional.ofNullable(documents.get(0).toObject(MedicineBatch.class));
     }
 
+    @Deprecated
     @Override
     public void deleteByIdInTransaction(Transaction transaction, String orgId, String branchId, String medicineId, String batchId) {
+        stageDelete(transaction, orgId, branchId, medicineId, batchId);
+    }
+
+    @Override
+    public void deleteByIdInTransaction(Transaction transaction, String orgId, String branchId, String medicineId, MedicineBatch batch) {
+        stageDelete(transaction, orgId, branchId, medicineId, batch.getBatchId());
+        InventoryValuationAggregate.stageChange(transaction, firestore, orgId, branchId, batch, -batch.getQuantityAvailable());
+    }
+
+    private void stageDelete(Transaction transaction, String orgId, String branchId, String medicineId, String batchId) {
         // Use the correct helper to get the path to the 'batches' sub-collection
         DocumentReference batchRef = getCollection(orgId, branchId, medicineId).document(batchId);
 
         // Stage the delete operation on the transaction
         transaction.delete(batchRef);
+        ExpiryIndex.stageDelete(transaction, firestore, orgId, branchId, medicineId, batchId);
     }
 
     /**
@@ -155,4 +278,124 @@ public class MedicineBatchRepositoryImpl implements MedicineBatchRepository {
                 .collect(Collectors.toList());
         return transaction.getAll(docRefs.toArray(new DocumentReference[0])).get();
     }
+
+    @Override
+    public List<ExpiringBatch> findBatchesExpiringBetween(String orgId, String branchId, Timestamp from, Timestamp to) {
+        Query query = ExpiryIndex.collection(firestore, orgId, branchId);
+        if (from != null) {
+            query = query.whereGreaterThanOrEqualTo(ExpiryIndex.EXPIRY_DATE, from);
+        }
+        query = query.whereLessThan(ExpiryIndex.EXPIRY_DATE, to).orderBy(ExpiryIndex.EXPIRY_DATE);
+        try {
+            // Only one field may carry range filters, so empty batches are dropped here.
+            return query.get().get().getDocuments().stream()
+                    .map(ExpiryIndex::fromSnapshot)
+                    .filter(entry -> entry.quantityAvailable() > 0)
+                    .collect(Collectors.toList());
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error reading expiry index for branch: " + branchId, e);
+        }
+    }
+
+    @Override
+    public int rebuildExpiryIndex(String orgId, String branchId) {
+        List<Map<String, Object>> entries = new ArrayList<>();
+        Set<String> live = new HashSet<>();
+        forEachBatchInBranch(orgId, branchId, (medicineId, batch) -> {
+            entries.add(ExpiryIndex.toEntry(medicineId, batch));
+            live.add(ExpiryIndex.entry(firestore, orgId, branchId, medicineId, batch.getBatchId()).getId());
+        });
+
+        // Drop entries whose batch no longer exists, then write the fresh ones.
+        List<DocumentReference> stale = new ArrayList<>();
+        ExpiryIndex.collection(firestore, orgId, branchId).listDocuments().forEach(ref -> {
+            if (!live.contains(ref.getId())) {
+                stale.add(ref);
+            }
+        });
+        BulkWriteResult removed = BulkWriteSupport.deleteAll(firestore, stale);
+        if (!removed.isAllSucceeded()) {
+            throw new RuntimeException("Failed to delete " + removed.getFailed().size() + " stale expiry index entries for branch: " + branchId);
+        }
+        BulkWriteResult written = BulkWriteSupport.setAll(firestore, entries, entry -> ExpiryIndex.entry(firestore, orgId, branchId,
+                (String) entry.get("medicineId"), (String) entry.get("batchId")));
+        if (!written.isAllSucceeded()) {
+            throw new RuntimeException("Failed to write " + written.getFailed().size() + " expiry index entries for branch: " + branchId);
+        }
+        return entries.size();
+    }
+
+    @Override
+    public Optional<InventoryValuation> findInventoryValuation(String orgId, String branchId) {
+        try {
+            DocumentSnapshot snapshot = InventoryValuationAggregate.document(firestore, orgId, branchId).get().get();
+            return snapshot.exists() ? Optional.of(InventoryValuationAggregate.fromSnapshot(snapshot)) : Optional.empty();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error reading inventory valuation for branch: " + branchId, e);
+        }
+    }
+
+    @Override
+    public Map<String, InventoryValuation> findInventoryValuations(String orgId, Collection<String> branchIds) {
+        if (branchIds.isEmpty()) {
+            return Map.of();
+        }
+        DocumentReference[] refs = branchIds.stream()
+                .map(branchId -> InventoryValuationAggregate.document(firestore, orgId, branchId))
+                .toArray(DocumentReference[]::new);
+        try {
+            Map<String, InventoryValuation> valuations = new LinkedHashMap<>();
+            for (DocumentSnapshot snapshot : firestore.getAll(refs).get()) {
+                if (snapshot.exists()) {
+                    // aggregates/inventory_valuation -> the branch document is two levels up.
+                    valuations.put(snapshot.getReference().getParent().getParent().getId(), InventoryValuationAggregate.fromSnapshot(snapshot));
+                }
+            }
+            return valuations;
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error reading inventory valuations for organization: " + orgId, e);
+        }
+    }
+
+    @Override
+    public InventoryValuation rebuildInventoryValuation(String orgId, String branchId) {
+        InventoryValuationAggregate.Totals totals = new InventoryValuationAggregate.Totals();
+        forEachBatchInBranch(orgId, branchId, (medicineId, batch) -> totals.add(batch));
+        InventoryValuation valuation = totals.toValuation(branchId);
+        valuation.setUpdatedAt(Timestamp.now());
+        try {
+            InventoryValuationAggregate.document(firestore, orgId, branchId).set(InventoryValuationAggregate.toDocument(valuation)).get();
+            return valuation;
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error rebuilding inventory valuation for branch: " + branchId, e);
+        }
+    }
+
+    /**
+     * Visits every batch of every medicine in the branch, reading the batches of up to
+     * REBUILD_CONCURRENCY medicines at a time. Used by the rebuild jobs.
+     */
+    private void forEachBatchInBranch(String orgId, String branchId, BiConsumer<String, MedicineBatch> visitor) {
+        CollectionReference medicines = firestore.collection("organizations").document(orgId)
+                .collection("branches").document(branchId)
+                .collection("medicines");
+        try {
+            List<String> medicineIds = new ArrayList<>();
+            medicines.listDocuments().forEach(ref -> medicineIds.add(ref.getId()));
+            for (int start = 0; start < medicineIds.size(); start += REBUILD_CONCURRENCY) {
+                List<String> chunk = medicineIds.subList(start, Math.min(start + REBUILD_CONCURRENCY, medicineIds.size()));
+                List<ApiFuture<QuerySnapshot>> reads = new ArrayList<>(chunk.size());
+                for (String medicineId : chunk) {
+                    reads.add(getCollection(orgId, branchId, medicineId).get());
+                }
+                for (int i = 0; i < chunk.size(); i++) {
+                    for (QueryDocumentSnapshot doc : reads.get(i).get().getDocuments()) {
+                        visitor.accept(chunk.get(i), doc.toObject(MedicineBatch.class));
+                    }
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error reading batches for branch: " + branchId, e);
+        }
+    }
 }
@@ -1,19 +1,37 @@
 package com.cosmicdoc.common.repository.impl;
 
+import com.cosmicdoc.common.dto.BranchAvailability;
+import com.cosmicdoc.common.dto.MedicineSearchResult;
 import com.cosmicdoc.common.model.Medicine;
+import com.cosmicdoc.common.model.MedicineBatch;
+import com.cosmicdoc.common.repository.BulkWriteResult;
 import com.cosmicdoc.common.repository.MedicineRepository;
+import com.cosmicdoc.common.repository.Projection;
+import com.cosmicdoc.common.repository.cache.DocumentBatchLoader;
+import com.cosmicdoc.common.repository.cache.LowStockEvent;
+import com.cosmicdoc.common.repository.cache.LowStockWatch;
+import com.cosmicdoc.common.repository.cache.MedicineSearchIndex;
 import com.google.api.core.ApiFuture;
 import com.google.cloud.firestore.*;
+import jakarta.annotation.PreDestroy;
 import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Firestore implementation of the MedicineRepository.
@@ -24,12 +42,46 @@ import java.util.stream.Collectors;
 
 public class MedicineRepositoryImpl implements MedicineRepository {
 
+    private static final String LOW_STOCK_FIELD = "lowStock";
+    private static final int BATCH_DELETE_PAGE_SIZE = 200;
+
+    /**
+     * What a save writes for a sharded medicine: its master data only. The stock counter fields and
+     * the {@code lowStock} flag derived from them are left to {@link #refreshStockTotal}, so saving a
+     * medicine read before a stock change cannot overwrite the stock changed outside the shards.
+     */
+    private static final SetOptions SHARDED_SAVE = SetOptions.mergeFields("name", "genericName", "category",
+            "manufacturer", "sku", "hsnCode", "location", "unitOfMeasurement", "lowStockThreshold", "taxProfileId",
+            "unitPrice", "status");
+
     private Firestore firestore;
 
+    private volatile MedicineSearchIndex searchIndex;
+
    public  MedicineRepositoryImpl (Firestore firestore) {
        this.firestore = firestore;
    }
 
+    /**
+     * Opts in to serving {@link #searchByBranchId} from in-memory per-branch indexes that snapshot
+     * listeners keep current. Until a branch's index has loaded, searches use the bounded prefix lookup.
+     *
+     * @param maxBranches The number of branches indexed at once (least recently used are dropped).
+     */
+    public void enableSearchIndex(int maxBranches) {
+        disableSearchIndex();
+        this.searchIndex = new MedicineSearchIndex(this::getCollection, maxBranches);
+    }
+
+    @PreDestroy
+    public void disableSearchIndex() {
+        MedicineSearchIndex current = this.searchIndex;
+        this.searchIndex = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
     /**
      * A private helper method to get a reference to the 'medicines' sub-collection
      * for a specific organization and branch. This ensures all methods use the correct,
@@ -44,11 +96,21 @@ public class MedicineRepositoryImpl implements MedicineRepository {
     /**
      * Saves a medicine document (creates if new, overwrites if exists).
      * This is used for creating or updating the master details of a medicine.
+     * A sharded medicine only has its master data overwritten; see {@link #SHARDED_SAVE}.
      */
     @Override
     public Medicine save(String organizationId, String branchId, Medicine medicine) {
         try {
-            getCollection(organizationId, branchId).document(medicine.getMedicineId()).set(medicine).get();
+            SetOptions options = prepareForSave(medicine);
+            DocumentReference docRef = getCollection(organizationId, branchId).document(medicine.getMedicineId());
+            WriteBatch batch = firestore.batch();
+            if (options != null) {
+                batch.set(docRef, medicine, options);
+            } else {
+                batch.set(docRef, medicine);
+            }
+            AvailabilityIndex.stageSave(batch, firestore, organizationId, branchId, medicine);
+            batch.commit().get();
             return medicine;
         } catch (InterruptedException | ExecutionException e) {
             throw new RuntimeException("Error saving medicine with ID: " + medicine.getMedicineId(), e);
@@ -73,6 +135,12 @@ public class MedicineRepositoryImpl implements MedicineRepository {
         }
     }
 
+    @Override
+    public CompletableFuture<Optional<Medicine>> findById(DocumentBatchLoader loader, String organizationId, String branchId, String medicineId) {
+        return loader.load(getCollection(organizationId, branchId).document(medicineId),
+                snapshot -> snapshot.toObject(Medicine.class));
+    }
+
     /**
      * Finds all medicines for a specific branch.
      * Useful for listing inventory.
@@ -90,6 +158,32 @@ public class MedicineRepositoryImpl implements MedicineRepository {
         }
     }
 
+    /**
+     * Finds all medicines for a specific branch, fetching only the projected fields.
+     * Used for dropdowns and inventory grids that do not need the full document.
+     */
+    @Override
+    public <P> List<P> findAllByBranchId(String organizationId, String branchId, Projection<P> projection) {
+        try {
+            var documents = projection.applyTo(getCollection(organizationId, branchId)).get().get().getDocuments();
+            return documents.stream()
+                    .map(projection::map)
+                    .collect(Collectors.toList());
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error finding medicine summaries for branch: " + branchId, e);
+        }
+    }
+
+    /**
+     * Pages through the branch's medicines ordered by document ID, keeping at most
+     * two pages in memory at a time.
+     */
+    @Override
+    public Stream<Medicine> streamAllByBranchId(String organizationId, String branchId, int pageSize) {
+        return PagedQueryIterator.streamByDocumentId(getCollection(organizationId, branchId), pageSize,
+                doc -> doc.toObject(Medicine.class));
+    }
+
     /**
      * Adds an atomic stock update operation to a WriteBatch.
      * This is the core method for ensuring inventory consistency during
@@ -104,6 +198,7 @@ public class MedicineRepositoryImpl implements MedicineRepository {
         // Pass a positive value (e.g., 10) to increase stock (for purchases/sales returns).
         // Pass a negative value (e.g., -2) to decrease stock (for sales/purchase returns).
         batch.update(docRef, "quantityInStock", FieldValue.increment(quantityChange));
+        AvailabilityIndex.stageStockChange(batch, firestore, organizationId, branchId, medicineId, quantityChange);
     }
 
     /**
@@ -131,7 +226,13 @@ public class MedicineRepositoryImpl implements MedicineRepository {
             // 3. Execute the atomic update operation on the Firestore server.
             //    The .get() call waits for the operation to complete and will throw
             //    an exception if the document does not exist, which is correct behavior.
-            docRef.update(updates).get();
+            WriteBatch batch = firestore.batch();
+            batch.update(docRef, updates);
+            // Medicines without a row yet (not saved since the index was introduced) have nothing to update.
+            if (AvailabilityIndex.row(firestore, organizationId, branchId, medicineId).get().get().exists()) {
+                AvailabilityIndex.stageFields(batch, firestore, organizationId, branchId, medicineId, updates);
+            }
+            batch.commit().get();
 
         } catch (InterruptedException | ExecutionException e) {
             // In a production application, this exception should be logged for debugging.
@@ -147,6 +248,132 @@ public class MedicineRepositoryImpl implements MedicineRepository {
         // Pass a positive value (e.g., 10) to increase stock (for purchases/sales returns).
         // Pass a negative value (e.g., -2) to decrease stock (for sales/purchase returns).
         batch.update(docRef, "quantityInStock", FieldValue.increment(quantityChange));
+        AvailabilityIndex.stageStockChange(batch, firestore, organizationId, branchId, medicineId, quantityChange);
+    }
+
+    @Override
+    public void updateStockInTransaction(Transaction transaction, String organizationId, String branchId, Medicine medicine, int quantityChange) {
+        stageStockChange(transaction, organizationId, branchId, medicine, quantityChange);
+    }
+
+    @Override
+    public void updateStockInTransaction(WriteBatch batch, String organizationId, String branchId, Medicine medicine, int quantityChange) {
+        stageStockChange(batch, organizationId, branchId, medicine, quantityChange);
+    }
+
+    /**
+     * Stages the stock change and keeps the {@code lowStock} flag in step with it. The flag is
+     * computed from the medicine as the caller read it, so read it in the same transaction.
+     * Sharded medicines only touch their medicine document when the flag actually flips, and
+     * their availability index row is updated by {@link #refreshStockTotal} instead.
+     */
+    private void stageStockChange(UpdateBuilder<?> writes, String organizationId, String branchId, Medicine medicine, int quantityChange) {
+        var docRef = getCollection(organizationId, branchId).document(medicine.getMedicineId());
+        if (ShardedStockCounter.isSharded(medicine.getStockShardCount())) {
+            // The cached total is stale here, so the flag is left to refreshStockTotal, which reads the shards.
+            ShardedStockCounter.increment(writes, docRef, medicine.getStockShardCount(), quantityChange);
+        } else {
+            boolean lowStock = isBelowThreshold(medicine.getQuantityInStock() + quantityChange, medicine.getLowStockThreshold());
+            writes.update(docRef, Map.of("quantityInStock", FieldValue.increment(quantityChange), LOW_STOCK_FIELD, lowStock));
+            AvailabilityIndex.stageStockChange(writes, firestore, organizationId, branchId, medicine, quantityChange);
+        }
+    }
+
+    /**
+     * Sets the {@code lowStock} flag of a medicine about to be saved and returns how to write it:
+     * {@link #SHARDED_SAVE} for a sharded medicine, whose cached total may be stale, or {@code null}
+     * for a plain overwrite.
+     */
+    private static SetOptions prepareForSave(Medicine medicine) {
+        if (ShardedStockCounter.isSharded(medicine.getStockShardCount())) {
+            return SHARDED_SAVE;
+        }
+        medicine.setLowStock(isBelowThreshold(medicine.getQuantityInStock(), medicine.getLowStockThreshold()));
+        return null;
+    }
+
+    private static boolean isBelowThreshold(int quantityInStock, Integer lowStockThreshold) {
+        return lowStockThreshold != null && quantityInStock < lowStockThreshold;
+    }
+
+    @Override
+    public List<Medicine> findLowStockByBranchId(String organizationId, String branchId) {
+        try {
+            return getCollection(organizationId, branchId).whereEqualTo(LOW_STOCK_FIELD, true).get().get()
+                    .getDocuments().stream()
+                    .map(doc -> doc.toObject(Medicine.class))
+                    .collect(Collectors.toList());
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error finding low-stock medicines for branch: " + branchId, e);
+        }
+    }
+
+    @Override
+    public LowStockWatch watchLowStock(String organizationId, String branchId, Consumer<LowStockEvent> listener) {
+        Query query = getCollection(organizationId, branchId).whereEqualTo(LOW_STOCK_FIELD, true);
+        return new LowStockWatch(query, organizationId, branchId, listener);
+    }
+
+    @Override
+    public int refreshLowStockFlags(String organizationId, String branchId) {
+        CollectionReference collection = getCollection(organizationId, branchId);
+        List<DocumentReference> nowLow = new ArrayList<>();
+        List<DocumentReference> nowOk = new ArrayList<>();
+        try (Stream<Medicine> medicines = streamAllByBranchId(organizationId, branchId, PagedQueryIterator.DEFAULT_PAGE_SIZE)) {
+            medicines.forEach(medicine -> {
+                boolean lowStock = isBelowThreshold(medicine.getQuantityInStock(), medicine.getLowStockThreshold());
+                if (!Boolean.valueOf(lowStock).equals(medicine.getLowStock())) {
+                    (lowStock ? nowLow : nowOk).add(collection.document(medicine.getMedicineId()));
+                }
+            });
+        }
+        BulkWriteResult flagged = BulkWriteSupport.updateAll(firestore, nowLow, Map.of(LOW_STOCK_FIELD, true));
+        BulkWriteResult cleared = BulkWriteSupport.updateAll(firestore, nowOk, Map.of(LOW_STOCK_FIELD, false));
+        int failed = flagged.getFailed().size() + cleared.getFailed().size();
+        if (failed > 0) {
+            throw new RuntimeException("Failed to update " + failed + " of " + (nowLow.size() + nowOk.size())
+                    + " low-stock flags for branch: " + branchId);
+        }
+        return flagged.getSucceeded().size() + cleared.getSucceeded().size();
+    }
+
+    @Override
+    public long getStockLevel(String organizationId, String branchId, String medicineId) {
+        try {
+            var document = getCollection(organizationId, branchId).document(medicineId).get().get();
+            if (!document.exists()) {
+                throw new IllegalArgumentException("Medicine not found with ID: " + medicineId);
+            }
+            return ShardedStockCounter.total(document);
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error reading stock level for medicine with ID: " + medicineId, e);
+        }
+    }
+
+    @Override
+    public long refreshStockTotal(String organizationId, String branchId, String medicineId) {
+        try {
+            long total = ShardedStockCounter.refreshCachedTotal(firestore, getCollection(organizationId, branchId).document(medicineId));
+            // Rewrite the whole row, so a missing one is seeded rather than left holding only the quantity.
+            Optional<Medicine> medicine = findById(organizationId, branchId, medicineId);
+            if (medicine.isPresent()) {
+                Map<String, Object> row = AvailabilityIndex.toRow(branchId, medicine.get());
+                row.put(AvailabilityIndex.QUANTITY, total);
+                AvailabilityIndex.row(firestore, organizationId, branchId, medicineId).set(row).get();
+            }
+            return total;
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error refreshing stock total for medicine with ID: " + medicineId, e);
+        }
+    }
+
+    @Override
+    public void setStockShardCount(String organizationId, String branchId, String medicineId, int shardCount) {
+        try {
+            ShardedStockCounter.reshard(firestore, getCollection(organizationId, branchId).document(medicineId), shardCount);
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error changing stock shards for medicine with ID: " + medicineId, e);
+        }
     }
 
     @Override
@@ -235,34 +462,190 @@ public class MedicineRepositoryImpl implements MedicineRepository {
     @Override
     public void deleteByIdHard(String organizationId, String branchId, String medicineId) {
         try {
-            // 1. Get a reference to the 'batches' sub-collection for the given medicine.
-            CollectionReference batchesRef = getCollection(organizationId, branchId)
-                    .document(medicineId)
-                    .collection("batches");
+            // 1. Remove the medicine's entries from the branch expiry index and its availability row.
+            List<DocumentReference> indexEntries = ExpiryIndex.collection(firestore, organizationId, branchId)
+                    .whereEqualTo("medicineId", medicineId).get().get().getDocuments().stream()
+                    .map(QueryDocumentSnapshot::getReference)
+                    .collect(Collectors.toList());
+            indexEntries.add(AvailabilityIndex.row(firestore, organizationId, branchId, medicineId));
+            BulkWriteResult removed = BulkWriteSupport.deleteAll(firestore, indexEntries);
+            if (!removed.isAllSucceeded()) {
+                throw new RuntimeException("Failed to delete " + removed.getFailed().size() + " index entries of medicine: " + medicineId);
+            }
 
-            // 2. Get a reference to the parent Medicine document itself.
-            DocumentReference medicineRef = getCollection(organizationId, branchId).document(medicineId);
+            // 2. Delete the batches together with their share of the branch inventory valuation, a page
+            //    per transaction, so stock sold concurrently is not subtracted twice.
+            Query batchPage = getCollection(organizationId, branchId).document(medicineId)
+                    .collection("batches").limit(BATCH_DELETE_PAGE_SIZE);
+            boolean more = true;
+            while (more) {
+                more = firestore.runTransaction(transaction -> {
+                    List<QueryDocumentSnapshot> batches = transaction.get(batchPage).get().getDocuments();
+                    List<MedicineBatch> removedBatches = new ArrayList<>(batches.size());
+                    for (QueryDocumentSnapshot batch : batches) {
+                        removedBatches.add(batch.toObject(MedicineBatch.class));
+                        transaction.delete(batch.getReference());
+                    }
+                    InventoryValuationAggregate.stageRemove(transaction, firestore, organizationId, branchId, removedBatches);
+                    return !batches.isEmpty();
+                }).get();
+            }
 
-            // 3. Start a WriteBatch to group all delete operations.
-            WriteBatch batch = firestore.batch();
+            // 3. Delete the stock shards and any other sub-collections in chunks,
+            //    then the medicine document itself.
+            new RecursiveDelete(firestore).delete(getCollection(organizationId, branchId).document(medicineId));
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error performing hard delete on medicine with ID: " + medicineId, e);
+        }
+    }
+
+    @Override
+    public BulkWriteResult saveAll(String organizationId, String branchId, List<Medicine> medicines) {
+        CollectionReference collection = getCollection(organizationId, branchId);
+        BulkWriteResult result = BulkWriteSupport.setAll(firestore, medicines,
+                medicine -> collection.document(medicine.getMedicineId()), MedicineRepositoryImpl::prepareForSave);
+        // Index only the medicines that were written.
+        List<Integer> indexed = new ArrayList<>();
+        List<Medicine> saved = new ArrayList<>();
+        for (BulkWriteResult.DocumentOutcome outcome : result.getSucceeded()) {
+            indexed.add(outcome.getIndex());
+            saved.add(medicines.get(outcome.getIndex()));
+        }
+        BulkWriteResult rowsResult = writeAvailabilityRows(organizationId, branchId, saved);
+        return withRowFailures(result, indexed, rowsResult);
+    }
+
+    @Override
+    public BulkWriteResult deleteAll(String organizationId, String branchId, List<String> medicineIds) {
+        CollectionReference collection = getCollection(organizationId, branchId);
+        List<DocumentReference> refs = medicineIds.stream()
+                .map(collection::document)
+                .collect(Collectors.toList());
+        BulkWriteResult result = BulkWriteSupport.updateAll(firestore, refs, Map.of("status", "INACTIVE"));
+        List<DocumentReference> rows = medicineIds.stream()
+                .map(id -> AvailabilityIndex.row(firestore, organizationId, branchId, id))
+                .collect(Collectors.toList());
+        // Medicines without a row yet (not saved since the index was introduced) have nothing to update.
+        List<Integer> indexed = new ArrayList<>();
+        List<DocumentReference> existingRows = new ArrayList<>();
+        try {
+            List<DocumentSnapshot> snapshots = rows.isEmpty()
+                    ? Collections.emptyList()
+                    : firestore.getAll(rows.toArray(new DocumentReference[0])).get();
+            for (int i = 0; i < snapshots.size(); i++) {
+                if (snapshots.get(i).exists()) {
+                    indexed.add(i);
+                    existingRows.add(snapshots.get(i).getReference());
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error reading availability rows for branch: " + branchId, e);
+        }
+        BulkWriteResult rowsResult = BulkWriteSupport.updateAll(firestore, existingRows, Map.of("status", "INACTIVE"));
+        return withRowFailures(result, indexed, rowsResult);
+    }
 
-            // 4. Find all documents in the sub-collection and add them to the batch for deletion.
-            //    listDocuments() is efficient as it doesn't download the document data.
-            Iterable<DocumentReference> batchDocuments = batchesRef.listDocuments();
-            for (DocumentReference ref : batchDocuments) {
-                batch.delete(ref);
+    /**
+     * Reports a medicine whose availability row could not be written as failed, so a retry fixes the
+     * row too. {@code indexed} maps each row of {@code rowsResult} to its medicine in {@code result}.
+     */
+    private static BulkWriteResult withRowFailures(BulkWriteResult result, List<Integer> indexed, BulkWriteResult rowsResult) {
+        List<BulkWriteResult.DocumentOutcome> outcomes = new ArrayList<>(result.getOutcomes());
+        for (BulkWriteResult.DocumentOutcome rowOutcome : rowsResult.getFailed()) {
+            int index = indexed.get(rowOutcome.getIndex());
+            BulkWriteResult.DocumentOutcome outcome = outcomes.get(index);
+            if (outcome.isSuccess()) {
+                outcomes.set(index, new BulkWriteResult.DocumentOutcome(index, outcome.getDocumentId(), null, rowOutcome.getError()));
             }
+        }
+        return new BulkWriteResult(outcomes);
+    }
 
-            // 5. Add the parent Medicine document to the batch for deletion.
-            batch.delete(medicineRef);
+    @Override
+    public List<BranchAvailability> findAvailabilityAcrossBranches(String orgId, String nameOrSku) {
+        String key = AvailabilityIndex.normalize(nameOrSku);
+        if (key == null) {
+            return Collections.emptyList();
+        }
+        CollectionReference index = AvailabilityIndex.collection(firestore, orgId);
+        ApiFuture<QuerySnapshot> byName = index.whereEqualTo(AvailabilityIndex.NAME_KEY, key).get();
+        ApiFuture<QuerySnapshot> bySku = index.whereEqualTo(AvailabilityIndex.SKU_KEY, key).get();
+        try {
+            Map<String, BranchAvailability> rows = new LinkedHashMap<>();
+            for (ApiFuture<QuerySnapshot> lookup : List.of(byName, bySku)) {
+                for (QueryDocumentSnapshot doc : lookup.get().getDocuments()) {
+                    if (!"INACTIVE".equals(doc.getString("status"))) {
+                        rows.putIfAbsent(doc.getId(), AvailabilityIndex.fromSnapshot(doc));
+                    }
+                }
+            }
+            return rows.values().stream()
+                    .sorted(Comparator.comparingLong(BranchAvailability::quantityInStock).reversed())
+                    .collect(Collectors.toList());
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error finding availability for medicine: " + nameOrSku, e);
+        }
+    }
 
-            // 6. Atomically commit all the delete operations.
-            //    Either everything is deleted, or nothing is.
-            batch.commit().get();
+    @Override
+    public int rebuildAvailabilityIndex(String organizationId, String branchId) {
+        List<Medicine> medicines;
+        try (Stream<Medicine> stream = streamAllByBranchId(organizationId, branchId, PagedQueryIterator.DEFAULT_PAGE_SIZE)) {
+            medicines = stream.collect(Collectors.toList());
+        }
+        BulkWriteResult written = writeAvailabilityRows(organizationId, branchId, medicines);
+        if (!written.isAllSucceeded()) {
+            throw new RuntimeException("Failed to write " + written.getFailed().size() + " availability rows for branch: " + branchId);
+        }
+        return medicines.size();
+    }
 
+    @Override
+    public List<MedicineSearchResult> searchByBranchId(String organizationId, String branchId, String query, int limit) {
+        MedicineSearchIndex current = this.searchIndex;
+        if (current != null) {
+            Optional<List<MedicineSearchResult>> results = current.search(organizationId, branchId, query, limit);
+            if (results.isPresent()) {
+                return results.get();
+            }
+        }
+        return searchByPrefix(organizationId, branchId, query, limit);
+    }
+
+    /**
+     * Bounded direct read for {@link #searchByBranchId} while the in-memory index is disabled or still
+     * loading the branch: medicines whose whole name or SKU starts with the query, looked up in the
+     * availability index. Needs composite indexes on {@code medicine_availability}
+     * (branchId, nameKey) and (branchId, skuKey).
+     */
+    private List<MedicineSearchResult> searchByPrefix(String organizationId, String branchId, String query, int limit) {
+        String key = AvailabilityIndex.normalize(query);
+        if (key == null || limit <= 0) {
+            return Collections.emptyList();
+        }
+        Query branchRows = AvailabilityIndex.collection(firestore, organizationId).whereEqualTo("branchId", branchId);
+        List<ApiFuture<QuerySnapshot>> lookups = new ArrayList<>();
+        for (String field : List.of(AvailabilityIndex.NAME_KEY, AvailabilityIndex.SKU_KEY)) {
+            lookups.add(branchRows.orderBy(field).startAt(key).endAt(key + "\uf8ff").limit(limit).get());
+        }
+        try {
+            Set<String> medicineIds = new LinkedHashSet<>();
+            for (ApiFuture<QuerySnapshot> lookup : lookups) {
+                for (QueryDocumentSnapshot doc : lookup.get().getDocuments()) {
+                    medicineIds.add(doc.getString("medicineId"));
+                }
+            }
+            return MedicineSearchIndex.rank(findAllByIds(organizationId, branchId, new ArrayList<>(medicineIds)), query, limit);
         } catch (InterruptedException | ExecutionException e) {
-            throw new RuntimeException("Error performing hard delete on medicine with ID: " + medicineId, e);
+            throw new RuntimeException("Error searching medicines for branch: " + branchId, e);
         }
     }
-}
 
+    private BulkWriteResult writeAvailabilityRows(String organizationId, String branchId, List<Medicine> medicines) {
+        List<Map<String, Object>> rows = medicines.stream()
+                .map(medicine -> AvailabilityIndex.toRow(branchId, medicine))
+                .collect(Collectors.toList());
+        return BulkWriteSupport.setAll(firestore, rows,
+                row -> AvailabilityIndex.row(firestore, organizationId, branchId, (String) row.get("medicineId")));
+    }
+}
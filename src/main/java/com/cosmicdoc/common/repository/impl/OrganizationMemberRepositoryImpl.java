@@ -2,6 +2,8 @@ package com.cosmicdoc.common.repository.impl;
 
 import com.cosmicdoc.common.model.OrganizationMember;
 import com.cosmicdoc.common.repository.OrganizationMemberRepository;
+import com.cosmicdoc.common.repository.cache.SingleFlight;
+import com.cosmicdoc.common.repository.cache.SingleFlightStats;
 import com.google.cloud.firestore.CollectionReference;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
@@ -16,6 +18,8 @@ import java.util.stream.Collectors;
 @Repository
 public class OrganizationMemberRepositoryImpl extends BaseRepositoryImpl<OrganizationMember,String> implements OrganizationMemberRepository  {
 
+    private final SingleFlight<Optional<OrganizationMember>> membershipFlight = new SingleFlight<>("OrganizationMember.findByUserIdAndOrgId");
+
     public OrganizationMemberRepositoryImpl(Firestore firestore) {
         super();
         this.firestore = firestore;
@@ -43,6 +47,7 @@ public class OrganizationMemberRepositoryImpl extends BaseRepositoryImpl<Organiz
 
         // 4. Add the 'set' operation to the batch.
         batch.set(docRef, membership);
+        evictFromCache(documentId);
     }
 
     /**
@@ -50,11 +55,20 @@ public class OrganizationMemberRepositoryImpl extends BaseRepositoryImpl<Organiz
      */
     @Override
     public Optional<OrganizationMember> findByUserIdAndOrgId(String userId, String organizationId) {
-        try {
-            // 1. Construct the exact Document ID from the provided parts.
-            // This is the most efficient way to get a single document.
-            String documentId = userId + "_" + organizationId;
+        // 1. Construct the exact Document ID from the provided parts.
+        // This is the most efficient way to get a single document.
+        String documentId = userId + "_" + organizationId;
+
+        // Concurrent lookups of the same membership share a single read.
+        return membershipFlight.execute(documentId, () -> loadMembership(documentId, userId, organizationId));
+    }
 
+    public SingleFlightStats getMembershipFlightStats() {
+        return membershipFlight.stats();
+    }
+
+    private Optional<OrganizationMember> loadMembership(String documentId, String userId, String organizationId) {
+        try {
             // 2. Perform a direct lookup using the document ID.
             var documentSnapshot = getCollection().document(documentId).get().get();
 
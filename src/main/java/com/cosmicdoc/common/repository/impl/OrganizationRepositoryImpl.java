@@ -3,19 +3,26 @@ package com.cosmicdoc.common.repository.impl;
 import com.cosmicdoc.common.model.Organization;
 import com.cosmicdoc.common.model.Users;
 import com.cosmicdoc.common.repository.OrganizationRepository;
+import com.cosmicdoc.common.repository.cache.BoundedEntityCache;
 import com.google.cloud.firestore.CollectionReference;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.WriteBatch;
 import org.springframework.stereotype.Repository;
 
+import java.time.Duration;
 import java.util.Optional;
 
 @Repository
 public class OrganizationRepositoryImpl extends BaseRepositoryImpl <Organization,String> implements OrganizationRepository {
 
+    private static final Duration CACHE_TTL = Duration.ofMinutes(10);
+    private static final int CACHE_MAX_ENTRIES = 5_000;
+
     public OrganizationRepositoryImpl(Firestore firestore) {
        super();
        this.firestore = firestore;
+       // Organizations almost never change but are read on nearly every request.
+       setEntityCache(new BoundedEntityCache<>("organizations", CACHE_TTL, CACHE_MAX_ENTRIES));
     }
 
     @Override
@@ -40,7 +47,18 @@ public class OrganizationRepositoryImpl extends BaseRepositoryImpl <Organization
     public void saveInTransaction(WriteBatch batch, Organization org) {
         var docRef = getCollection().document(org.getOrgId());
         batch.set(docRef, org);
+        evictFromCache(org.getOrgId());
     }
-}
-
 
+    @Override
+    public void deleteByIdHard(String orgId) {
+        try {
+            RecursiveDelete delete = new RecursiveDelete(firestore);
+            // Drop the availability index first, so lookups stop returning branches that are being deleted.
+            delete.delete(AvailabilityIndex.collection(firestore, orgId));
+            delete.delete(getCollection().document(orgId));
+        } finally {
+            evictFromCache(orgId);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.cosmicdoc.common.repository.impl;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over the results of a Firestore query one page at a time using
+ * {@code startAfter(lastDocument).limit(pageSize)} cursors.
+ * <p>
+ * At most two pages are held in memory: the one being consumed and the next one,
+ * which is requested as soon as the current page arrives so the RPC overlaps with
+ * the consumer's work. Closing the iterator (or the stream built from it) cancels
+ * the outstanding prefetch, so callers can stop early without reading the rest.
+ */
+public final class PagedQueryIterator<T> implements Iterator<T>, AutoCloseable {
+
+    public static final int DEFAULT_PAGE_SIZE = 300;
+
+    private final Query orderedQuery;
+    private final int pageSize;
+    private final Function<? super QueryDocumentSnapshot, ? extends T> mapper;
+
+    private Iterator<QueryDocumentSnapshot> currentPage = Collections.emptyIterator();
+    private ApiFuture<QuerySnapshot> nextPage;
+
+    /**
+     * @param orderedQuery A query with a total, stable ordering (it must end in a unique key,
+     *                     e.g. the document ID) so that page cursors never skip or repeat documents.
+     * @param pageSize     The number of documents fetched per RPC.
+     * @param mapper       Converts each document into the element type.
+     */
+    public PagedQueryIterator(Query orderedQuery, int pageSize, Function<? super QueryDocumentSnapshot, ? extends T> mapper) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        this.orderedQuery = orderedQuery;
+        this.pageSize = pageSize;
+        this.mapper = mapper;
+        this.nextPage = orderedQuery.limit(pageSize).get();
+    }
+
+    /**
+     * Streams every document of the query in document-ID order.
+     * The returned stream should be closed (e.g. with try-with-resources) when abandoned early.
+     */
+    public static <T> Stream<T> streamByDocumentId(Query query, int pageSize, Function<? super QueryDocumentSnapshot, ? extends T> mapper) {
+        return stream(query.orderBy(FieldPath.documentId()), pageSize, mapper);
+    }
+
+    /**
+     * Streams every document of an already totally-ordered query.
+     * The returned stream should be closed (e.g. with try-with-resources) when abandoned early.
+     */
+    public static <T> Stream<T> stream(Query orderedQuery, int pageSize, Function<? super QueryDocumentSnapshot, ? extends T> mapper) {
+        PagedQueryIterator<T> iterator = new PagedQueryIterator<>(orderedQuery, pageSize, mapper);
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!currentPage.hasNext()) {
+            if (nextPage == null) {
+                return false;
+            }
+            List<QueryDocumentSnapshot> documents = awaitPage(nextPage);
+            // Prefetch the following page before handing this one to the consumer.
+            nextPage = documents.size() < pageSize
+                    ? null
+                    : orderedQuery.startAfter(documents.get(documents.size() - 1)).limit(pageSize).get();
+            currentPage = documents.iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return mapper.apply(currentPage.next());
+    }
+
+    @Override
+    public void close() {
+        if (nextPage != null) {
+            nextPage.cancel(true);
+            nextPage = null;
+        }
+        currentPage = Collections.emptyIterator();
+    }
+
+    private List<QueryDocumentSnapshot> awaitPage(ApiFuture<QuerySnapshot> page) {
+        try {
+            return page.get().getDocuments();
+        } catch (InterruptedException | ExecutionException e) {
+            close();
+            throw new RuntimeException("Error fetching next page of documents", e);
+        }
+    }
+}
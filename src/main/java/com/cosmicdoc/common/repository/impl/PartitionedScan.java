@@ -0,0 +1,187 @@
+package com.cosmicdoc.common.repository.impl;
+
+import com.google.cloud.firestore.CollectionGroup;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QueryPartition;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+/**
+ * Scans every document of a collection group (e.g. all {@code sales}, {@code purchases} or
+ * {@code batches}) in parallel and folds them into one result with a {@link Collector}.
+ * <p>
+ * {@link CollectionGroup#getPartitions(long)} splits the group into key ranges; each range is paged
+ * with {@link PagedQueryIterator} on a fixed pool of {@code parallelism} threads, so at most
+ * {@code parallelism} RPC streams run at once and at most two pages per range are in memory.
+ * Every range accumulates into its own container, and the containers are merged with the
+ * collector's combiner once all ranges are done, so the accumulator needs no synchronization.
+ * <p>
+ * Partitions cover the collection group of the whole database; the organization-scoped variant
+ * narrows them to the organization's key range, so other tenants' documents are never read.
+ */
+public class PartitionedScan {
+
+    public static final int DEFAULT_PARALLELISM = 8;
+    /** Ranges requested per thread, so uneven ranges still keep every thread busy. */
+    private static final int PARTITIONS_PER_THREAD = 4;
+
+    private final Firestore firestore;
+    private final int parallelism;
+    private final int pageSize;
+
+    public PartitionedScan(Firestore firestore) {
+        this(firestore, DEFAULT_PARALLELISM, PagedQueryIterator.DEFAULT_PAGE_SIZE);
+    }
+
+    public PartitionedScan(Firestore firestore, int parallelism, int pageSize) {
+        if (parallelism <= 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("parallelism and pageSize must be positive");
+        }
+        this.firestore = firestore;
+        this.parallelism = parallelism;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Scans every document of the collection group across the database.
+     *
+     * @param collectionId The collection ID, e.g. "sales".
+     * @param mapper       Converts each document; called concurrently from the worker threads.
+     * @param collector    Folds the mapped documents; one container per range, merged with its combiner.
+     */
+    public <T, A, R> R scan(String collectionId, Function<? super QueryDocumentSnapshot, ? extends T> mapper,
+                            Collector<? super T, A, R> collector) {
+        return scan(collectionId, null, mapper, collector);
+    }
+
+    /**
+     * Scans the documents of the collection group that belong to one organization. Each partition
+     * is clamped to the organization's document-ID range and partitions outside it are skipped,
+     * so only the organization's documents are read. The partitions are cut for the whole group,
+     * so a small organization may fall into a single range and be scanned by one thread.
+     */
+    public <T, A, R> R scanOrganization(String organizationId, String collectionId,
+                                        Function<? super QueryDocumentSnapshot, ? extends T> mapper,
+                                        Collector<? super T, A, R> collector) {
+        return scan(collectionId, organizationId, mapper, collector);
+    }
+
+    private <T, A, R> R scan(String collectionId, String organizationId,
+                             Function<? super QueryDocumentSnapshot, ? extends T> mapper,
+                             Collector<? super T, A, R> collector) {
+        CollectionGroup group = firestore.collectionGroup(collectionId);
+        List<QueryPartition> partitions;
+        try {
+            partitions = group.getPartitions((long) parallelism * PARTITIONS_PER_THREAD).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error partitioning collection group: " + collectionId, e);
+        }
+        List<Query> queries = new ArrayList<>(partitions.size());
+        for (QueryPartition partition : partitions) {
+            if (organizationId == null) {
+                queries.add(partition.createQuery());
+            } else {
+                Query clamped = clamp(group, partition, organizationId);
+                if (clamped != null) {
+                    queries.add(clamped);
+                }
+            }
+        }
+        if (queries.isEmpty()) {
+            return collector.finisher().apply(collector.supplier().get());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, queries.size()), runnable -> {
+            Thread thread = new Thread(runnable, "partitioned-scan-" + collectionId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<CompletableFuture<A>> ranges = new ArrayList<>(queries.size());
+            for (Query query : queries) {
+                ranges.add(CompletableFuture.supplyAsync(() -> scanRange(query, mapper, collector), pool));
+            }
+            A merged = collector.supplier().get();
+            for (CompletableFuture<A> range : ranges) {
+                merged = collector.combiner().apply(merged, range.join());
+            }
+            return collector.finisher().apply(merged);
+        } catch (CompletionException e) {
+            throw new RuntimeException("Error scanning collection group: " + collectionId, e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Intersects the partition with the organization's range: from {@code organizations/{org}} up to
+     * (excluding) {@code organizations/{org}/U+F8FF/U+F8FF}, which sorts after every path below the
+     * organization. Appending U+F8FF to the organization ID itself would also take in organizations
+     * whose IDs extend it ("org1" would include "org10").
+     *
+     * @return The clamped query, or null if the partition holds none of the organization's documents.
+     */
+    private Query clamp(CollectionGroup group, QueryPartition partition, String organizationId) {
+        DocumentReference start = firestore.document("organizations/" + organizationId);
+        DocumentReference end = firestore.document("organizations/" + organizationId + "/\uf8ff/\uf8ff");
+        DocumentReference partitionStart = cursor(partition.getStartAt());
+        DocumentReference partitionEnd = cursor(partition.getEndBefore());
+        if (partitionStart != null && comparePaths(partitionStart, start) > 0) {
+            start = partitionStart;
+        }
+        if (partitionEnd != null && comparePaths(partitionEnd, end) < 0) {
+            end = partitionEnd;
+        }
+        if (comparePaths(start, end) >= 0) {
+            return null;
+        }
+        return group.orderBy(FieldPath.documentId()).startAt(start).endBefore(end);
+    }
+
+    private static DocumentReference cursor(Object[] values) {
+        return values != null && values.length > 0 && values[0] instanceof DocumentReference
+                ? (DocumentReference) values[0]
+                : null;
+    }
+
+    /** Orders document paths the way Firestore orders document IDs: segment by segment. */
+    private static int comparePaths(DocumentReference left, DocumentReference right) {
+        String[] a = left.getPath().split("/");
+        String[] b = right.getPath().split("/");
+        for (int i = 0; i < Math.min(a.length, b.length); i++) {
+            int order = a[i].compareTo(b[i]);
+            if (order != 0) {
+                return order;
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    private <T, A> A scanRange(Query rangeQuery, Function<? super QueryDocumentSnapshot, ? extends T> mapper,
+                               Collector<? super T, A, ?> collector) {
+        A container = collector.supplier().get();
+        // The range query is ordered by document ID and bounded by the range's cursors;
+        // paging replaces its start cursor, the end cursor is kept.
+        try (Stream<QueryDocumentSnapshot> documents = PagedQueryIterator.stream(rangeQuery, pageSize, doc -> doc)) {
+            Iterator<QueryDocumentSnapshot> iterator = documents.iterator();
+            while (iterator.hasNext()) {
+                collector.accumulator().accept(container, mapper.apply(iterator.next()));
+            }
+        }
+        return container;
+    }
+}
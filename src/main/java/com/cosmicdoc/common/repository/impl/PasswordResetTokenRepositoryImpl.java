@@ -39,5 +39,6 @@ public class PasswordResetTokenRepositoryImpl extends BaseRepositoryImpl<Passwor
         }
         var docRef = getCollection().document(token);
         batch.delete(docRef);
+        evictFromCache(token);
     }
 }
\ No newline at end of file
@@ -2,6 +2,8 @@ package com.cosmicdoc.common.repository.impl;
 
 import com.cosmicdoc.common.model.Purchase;
 import com.cosmicdoc.common.repository.PurchaseRepository;
+import com.cosmicdoc.common.repository.StockMovements;
+import com.cosmicdoc.common.repository.mapper.PurchaseMapper;
 import com.google.cloud.firestore.*;
 import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
@@ -11,6 +13,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Firestore implementation of the PurchaseRepository.
@@ -48,7 +51,7 @@ public class PurchaseRepositoryImpl implements PurchaseRepository {
             var document = getCollection(organizationId, branchId).document(purchaseId).get().get();
             if (document.exists()) {
                 // Use ofNullable for safety against malformed data in the database
-                return Optional.ofNullable(document.toObject(Purchase.class));
+                return Optional.ofNullable(PurchaseMapper.INSTANCE.fromSnapshot(document));
             }
             // Return an empty Optional if the document is not found
             return Optional.empty();
@@ -70,7 +73,7 @@ public class PurchaseRepositoryImpl implements PurchaseRepository {
 
             // Use a modern Java Stream to map the Firestore documents to your Purchase model class
             return documents.stream()
-                    .map(doc -> doc.toObject(Purchase.class))
+                    .map(PurchaseMapper.INSTANCE::fromSnapshot)
                     .collect(Collectors.toList());
         } catch (InterruptedException | ExecutionException e) {
             // Log this error in a real application
@@ -78,6 +81,16 @@ public class PurchaseRepositoryImpl implements PurchaseRepository {
         }
     }
 
+    /**
+     * Pages through the branch's purchases ordered by document ID, keeping at most
+     * two pages in memory at a time.
+     */
+    @Override
+    public Stream<Purchase> streamAllByBranchId(String organizationId, String branchId, int pageSize) {
+        return PagedQueryIterator.streamByDocumentId(getCollection(organizationId, branchId), pageSize,
+                PurchaseMapper.INSTANCE::fromSnapshot);
+    }
+
     /**
      * Adds a "set" operation for a new Purchase document to a given WriteBatch.
      * This method's responsibility is only to add the operation to the transaction.
@@ -89,7 +102,9 @@ public class PurchaseRepositoryImpl implements PurchaseRepository {
         var docRef = getCollection(organizationId, branchId).document(purchase.getPurchaseId());
 
         // Stage the 'set' operation in the batch.
-        batch.set(docRef, purchase);
+        batch.set(docRef, PurchaseMapper.INSTANCE.toMap(purchase));
+        StockLedger.stageForSource(batch, firestore, organizationId, branchId, purchase.getPurchaseId(),
+                purchase.getCreatedAt(), StockMovements.fromPurchase(purchase));
     }
 
     @Override
@@ -102,7 +117,9 @@ public class PurchaseRepositoryImpl implements PurchaseRepository {
         //    This assumes a sub-collection model: /organizations/{orgId}/purchases/{purchaseId}
         var docRef = getCollection(purchase.getOrganizationId(),purchase.getBranchId()).document(purchase.getPurchaseId());
         // 3. Queue the 'set' operation on the transaction.
-        transaction.set(docRef, purchase);
+        transaction.set(docRef, PurchaseMapper.INSTANCE.toMap(purchase));
+        StockLedger.stageForSource(transaction, firestore, purchase.getOrganizationId(), purchase.getBranchId(),
+                purchase.getPurchaseId(), purchase.getCreatedAt(), StockMovements.fromPurchase(purchase));
     }
 
     /**
@@ -121,7 +138,7 @@ public class PurchaseRepositoryImpl implements PurchaseRepository {
 
         // 3. Check if the document exists and map it to the Purchase object.
         if (snapshot.exists()) {
-            return Optional.ofNullable(snapshot.toObject(Purchase.class));
+            return Optional.ofNullable(PurchaseMapper.INSTANCE.fromSnapshot(snapshot));
         } else {
             return Optional.empty();
         }
@@ -146,7 +163,7 @@ public class PurchaseRepositoryImpl implements PurchaseRepository {
 
             // 3. Execute the query and map the results to Purchase objects.
             return query.get().get().getDocuments().stream()
-                    .map(doc -> doc.toObject(Purchase.class))
+                    .map(PurchaseMapper.INSTANCE::fromSnapshot)
                     .collect(Collectors.toList());
 
         } catch (InterruptedException | ExecutionException e) {
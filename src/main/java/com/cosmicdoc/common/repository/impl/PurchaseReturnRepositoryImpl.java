@@ -2,6 +2,7 @@ package com.cosmicdoc.common.repository.impl;
 
 import com.cosmicdoc.common.model.PurchaseReturn;
 import com.cosmicdoc.common.repository.PurchaseReturnRepository;
+import com.cosmicdoc.common.repository.StockMovements;
 import com.google.cloud.firestore.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
@@ -10,6 +11,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
 
@@ -46,6 +48,8 @@ public class PurchaseReturnRepositoryImpl implements PurchaseReturnRepository {
         var docRef = getCollection(organizationId, branchId).document(purchaseReturn.getPurchaseReturnId());
         // Add the 'set' operation to the batch. The batch will be committed by the service layer.
         transaction.set(docRef, purchaseReturn);
+        StockLedger.stageForSource(transaction, firestore, organizationId, branchId, purchaseReturn.getPurchaseReturnId(),
+                purchaseReturn.getReturnDate(), StockMovements.fromPurchaseReturn(purchaseReturn));
     }
 
     @Override
@@ -60,6 +64,16 @@ public class PurchaseReturnRepositoryImpl implements PurchaseReturnRepository {
 
         }
     }
+
+    /**
+     * Pages through the branch's purchase returns ordered by document ID, keeping at most
+     * two pages in memory at a time.
+     */
+    @Override
+    public Stream<PurchaseReturn> streamAllByBranchId(String organizationId, String branchId, int pageSize) {
+        return PagedQueryIterator.streamByDocumentId(getCollection(organizationId, branchId), pageSize,
+                doc -> doc.toObject(PurchaseReturn.class));
+    }
     /**
      * Implementation for finding all purchase returns for a specific supplier.
      */
@@ -0,0 +1,197 @@
+package com.cosmicdoc.common.repository.impl;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.cloud.firestore.WriteResult;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static com.cosmicdoc.common.util.FirestoreFutures.toCompletableFuture;
+
+/**
+ * Deletes a document or collection together with everything nested under it.
+ * <p>
+ * Collections are paged by document ID (fetching IDs only). Each document's subcollections are
+ * emptied before the document itself, and deletes are committed in chunks of up to
+ * {@code chunkSize}, with at most {@code maxConcurrentCommits} commits in flight. A document is
+ * only deleted after everything below it is gone, so if a run fails or is interrupted, running it
+ * again on the same reference picks up where it stopped.
+ * <p>
+ * Progress counters accumulate over the lifetime of an instance, so use one instance per job.
+ */
+public final class RecursiveDelete {
+
+    public static final int DEFAULT_PAGE_SIZE = 500;
+    public static final int DEFAULT_CHUNK_SIZE = 100;
+    public static final int DEFAULT_MAX_CONCURRENT_COMMITS = 8;
+    private static final int MAX_WRITES_PER_BATCH = 500;
+
+    private final Firestore firestore;
+    private final int pageSize;
+    private final int chunkSize;
+    private final Semaphore commitPermits;
+    private final int maxConcurrentCommits;
+    private final Consumer<Progress> progressListener;
+
+    private final long startNanos = System.nanoTime();
+    private final LongAdder documentsDeleted = new LongAdder();
+    private final LongAdder commitsCompleted = new LongAdder();
+    private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+    public RecursiveDelete(Firestore firestore) {
+        this(firestore, DEFAULT_PAGE_SIZE, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_CONCURRENT_COMMITS, null);
+    }
+
+    /**
+     * @param progressListener Called after every commit, possibly from a Firestore callback thread; may be null.
+     */
+    public RecursiveDelete(Firestore firestore, int pageSize, int chunkSize, int maxConcurrentCommits,
+                           Consumer<Progress> progressListener) {
+        if (pageSize <= 0 || maxConcurrentCommits <= 0 || chunkSize <= 0 || chunkSize > MAX_WRITES_PER_BATCH) {
+            throw new IllegalArgumentException("pageSize and maxConcurrentCommits must be positive and chunkSize between 1 and "
+                    + MAX_WRITES_PER_BATCH);
+        }
+        this.firestore = firestore;
+        this.pageSize = pageSize;
+        this.chunkSize = chunkSize;
+        this.maxConcurrentCommits = maxConcurrentCommits;
+        this.commitPermits = new Semaphore(maxConcurrentCommits);
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Deletes the document and all of its subcollections, recursively.
+     *
+     * @return Progress counters at completion.
+     */
+    public Progress delete(DocumentReference document) {
+        return run(() -> {
+            deleteSubcollections(document);
+            awaitCommits();
+            commit(List.of(document));
+        }, document.getPath());
+    }
+
+    /**
+     * Deletes every document of the collection, recursively.
+     *
+     * @return Progress counters at completion.
+     */
+    public Progress delete(CollectionReference collection) {
+        return run(() -> deleteCollection(collection), collection.getPath());
+    }
+
+    public Progress progress() {
+        return new Progress(documentsDeleted.sum(), commitsCompleted.sum(), Duration.ofNanos(System.nanoTime() - startNanos));
+    }
+
+    @FunctionalInterface
+    private interface Work {
+        void run() throws InterruptedException, ExecutionException;
+    }
+
+    private Progress run(Work work, String path) {
+        try {
+            work.run();
+            awaitCommits();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Recursive delete interrupted at: " + path, e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error during recursive delete of: " + path, e);
+        }
+        return progress();
+    }
+
+    private void deleteCollection(CollectionReference collection) throws InterruptedException, ExecutionException {
+        Query page = collection.select(FieldPath.documentId()).orderBy(FieldPath.documentId()).limit(pageSize);
+        QueryDocumentSnapshot last = null;
+        while (true) {
+            List<QueryDocumentSnapshot> documents = (last == null ? page : page.startAfter(last)).get().get().getDocuments();
+            if (documents.isEmpty()) {
+                break;
+            }
+            for (QueryDocumentSnapshot document : documents) {
+                deleteSubcollections(document.getReference());
+            }
+            // Children of this page are being deleted; they must be gone before their parents go.
+            awaitCommits();
+            List<DocumentReference> chunk = new ArrayList<>(chunkSize);
+            for (QueryDocumentSnapshot document : documents) {
+                chunk.add(document.getReference());
+                if (chunk.size() == chunkSize) {
+                    commit(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                commit(chunk);
+            }
+            if (documents.size() < pageSize) {
+                break;
+            }
+            last = documents.get(documents.size() - 1);
+        }
+    }
+
+    private void deleteSubcollections(DocumentReference document) throws InterruptedException, ExecutionException {
+        for (CollectionReference subcollection : document.listCollections()) {
+            deleteCollection(subcollection);
+        }
+    }
+
+    /**
+     * Sends one commit once a permit is free; the permit is released when it completes.
+     */
+    private void commit(List<DocumentReference> refs) throws InterruptedException {
+        failIfAnyCommitFailed();
+        commitPermits.acquire();
+        WriteBatch batch = firestore.batch();
+        refs.forEach(batch::delete);
+        ApiFuture<List<WriteResult>> commit = batch.commit();
+        toCompletableFuture(commit).whenComplete((results, error) -> {
+            if (error != null) {
+                firstFailure.compareAndSet(null, error);
+            } else {
+                documentsDeleted.add(refs.size());
+                commitsCompleted.increment();
+            }
+            commitPermits.release();
+            if (error == null && progressListener != null) {
+                progressListener.accept(progress());
+            }
+        });
+    }
+
+    /**
+     * Waits until every commit sent so far has finished.
+     */
+    private void awaitCommits() throws InterruptedException {
+        commitPermits.acquire(maxConcurrentCommits);
+        commitPermits.release(maxConcurrentCommits);
+        failIfAnyCommitFailed();
+    }
+
+    private void failIfAnyCommitFailed() {
+        Throwable failure = firstFailure.get();
+        if (failure != null) {
+            throw new RuntimeException("A delete commit failed; run the delete again to resume", failure);
+        }
+    }
+
+    public record Progress(long documentsDeleted, long commitsCompleted, Duration elapsed) {
+    }
+}
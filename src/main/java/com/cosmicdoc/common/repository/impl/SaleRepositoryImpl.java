@@ -2,19 +2,26 @@ package com.cosmicdoc.common.repository.impl;
 
 import com.cosmicdoc.common.model.Purchase;
 import com.cosmicdoc.common.model.Sale;
+import com.cosmicdoc.common.model.SalesSummary;
+import com.cosmicdoc.common.model.StockMovement;
 import com.cosmicdoc.common.repository.SaleRepository;
+import com.cosmicdoc.common.repository.StockMovements;
+import com.cosmicdoc.common.repository.mapper.SaleMapper;
 import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Firestore implementation of the SaleRepository.
@@ -52,7 +59,7 @@ public class SaleRepositoryImpl implements SaleRepository {
             var document = getCollection(organizationId, branchId).document(saleId).get().get();
             if (document.exists()) {
                 // Use ofNullable for safety against malformed data in the database
-                return Optional.ofNullable(document.toObject(Sale.class));
+                return Optional.ofNullable(SaleMapper.INSTANCE.fromSnapshot(document));
             }
             // Return an empty Optional if the document is not found
             return Optional.empty();
@@ -74,7 +81,7 @@ public class SaleRepositoryImpl implements SaleRepository {
 
             // Use a modern Java Stream to map the Firestore documents to your Sale model class
             return documents.stream()
-                    .map(doc -> doc.toObject(Sale.class))
+                    .map(SaleMapper.INSTANCE::fromSnapshot)
                     .collect(Collectors.toList());
         } catch (InterruptedException | ExecutionException e) {
             // Log this error in a real application
@@ -82,20 +89,34 @@ public class SaleRepositoryImpl implements SaleRepository {
         }
     }
 
+    /**
+     * Pages through the branch's sales ordered by document ID, keeping at most
+     * two pages in memory at a time.
+     */
+    @Override
+    public Stream<Sale> streamAllByBranchId(String organizationId, String branchId, int pageSize) {
+        return PagedQueryIterator.streamByDocumentId(getCollection(organizationId, branchId), pageSize,
+                SaleMapper.INSTANCE::fromSnapshot);
+    }
+
     /**
      * Adds a "set" operation for a new Sale document to a given WriteBatch.
      * This method's responsibility is only to add the operation to the transaction.
      * The calling service is responsible for committing the batch.
      */
+    @Deprecated
     @Override
     public void saveInTransaction(WriteBatch batch, String organizationId, String branchId, Sale sale) {
         // Get a reference to the new document within the correct sub-collection path
         var docRef = getCollection(organizationId, branchId).document(sale.getSaleId());
 
         // Stage the 'set' operation in the batch.
-        batch.set(docRef, sale);
+        batch.set(docRef, SaleMapper.INSTANCE.toMap(sale));
+        new SalesRollup().add(sale).stage(batch, firestore, organizationId, branchId);
+        StockLedger.stageAppend(batch, firestore, organizationId, branchId, StockMovements.fromSale(sale));
     }
 
+    @Deprecated
     @Override
     public void saveInTransaction(Transaction transaction, Sale sale) {
         // 1. Validate that the purchase object contains the necessary context.
@@ -106,7 +127,42 @@ public class SaleRepositoryImpl implements SaleRepository {
         //    This assumes a sub-collection model: /organizations/{orgId}/purchases/{purchaseId}
         var docRef = getCollection(sale.getOrganizationId(),sale.getBranchId()).document(sale.getSaleId());
         // 3. Queue the 'set' operation on the transaction.
-        transaction.set(docRef, sale);
+        transaction.set(docRef, SaleMapper.INSTANCE.toMap(sale));
+        new SalesRollup().add(sale).stage(transaction, firestore, sale.getOrganizationId(), sale.getBranchId());
+        StockLedger.stageAppend(transaction, firestore, sale.getOrganizationId(), sale.getBranchId(), StockMovements.fromSale(sale));
+    }
+
+    @Override
+    public void createInTransaction(WriteBatch batch, String organizationId, String branchId, Sale sale) {
+        var docRef = getCollection(organizationId, branchId).document(sale.getSaleId());
+        // Create, so an existing sale fails the commit instead of being counted twice.
+        batch.create(docRef, SaleMapper.INSTANCE.toMap(sale));
+        new SalesRollup().add(sale).stage(batch, firestore, organizationId, branchId);
+        StockLedger.stageAppend(batch, firestore, organizationId, branchId, StockMovements.fromSale(sale));
+    }
+
+    @Override
+    public void saveInTransaction(Transaction transaction, Sale sale, Sale previous) {
+        if (sale.getOrganizationId() == null || sale.getBranchId() == null  || sale.getSaleId() == null) {
+            throw new IllegalArgumentException("OrganizationId ,Branch Id and SaleId must not be null to save a sale.");
+        }
+        var docRef = getCollection(sale.getOrganizationId(), sale.getBranchId()).document(sale.getSaleId());
+        if (previous != null) {
+            transaction.set(docRef, SaleMapper.INSTANCE.toMap(sale));
+        } else {
+            // A new sale: create, so an existing one fails the commit instead of being counted twice.
+            transaction.create(docRef, SaleMapper.INSTANCE.toMap(sale));
+        }
+        // One rollup write per day, also when the edit keeps the sale on the same day
+        SalesRollup rollup = new SalesRollup().add(sale);
+        List<StockMovement> movements = new ArrayList<>();
+        if (previous != null) {
+            rollup.subtract(previous);
+            movements.addAll(StockMovements.reversalOf(StockMovements.fromSale(previous)));
+        }
+        movements.addAll(StockMovements.fromSale(sale));
+        rollup.stage(transaction, firestore, sale.getOrganizationId(), sale.getBranchId());
+        StockLedger.stageAppend(transaction, firestore, sale.getOrganizationId(), sale.getBranchId(), movements);
     }
 
     /**
@@ -124,7 +180,7 @@ public class SaleRepositoryImpl implements SaleRepository {
 
         // 3. Check if the document exists and map it to the Sale object.
         if (snapshot.exists()) {
-            return Optional.ofNullable(snapshot.toObject(Sale.class));
+            return Optional.ofNullable(SaleMapper.INSTANCE.fromSnapshot(snapshot));
         } else {
             return Optional.empty();
         }
@@ -133,23 +189,9 @@ public class SaleRepositoryImpl implements SaleRepository {
     @Override
     public List<Sale> findAllByBranchIdAndDate(String orgId, String branchId, LocalDate date) {
         try {
-            // 1. Calculate the start of the target day in UTC.
-            // e.g., for date "2025-06-30", this becomes Timestamp("2025-06-30T00:00:00Z")
-            Timestamp startOfDay = Timestamp.of(Date.from(date.atStartOfDay().toInstant(ZoneOffset.UTC)));
-
-            // 2. Calculate the start of the NEXT day in UTC.
-            // e.g., for date "2025-06-30", this becomes Timestamp("2025-07-01T00:00:00Z")
-            Timestamp startOfNextDay = Timestamp.of(Date.from(date.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC)));
-
-            // 3. Build the Firestore range query.
-            // Find all documents where 'saleDate' is >= startOfDay AND < startOfNextDay.
-            Query query = getCollection(orgId, branchId)
-                    .whereGreaterThanOrEqualTo("saleDate", startOfDay)
-                    .whereLessThan("saleDate", startOfNextDay);
-
-            // 4. Execute the query and map the results.
-            return query.get().get().getDocuments().stream()
-                    .map(doc -> doc.toObject(Sale.class))
+            // Execute the query and map the results.
+            return dayQuery(orgId, branchId, date).get().get().getDocuments().stream()
+                    .map(SaleMapper.INSTANCE::fromSnapshot)
                     .collect(Collectors.toList());
 
         } catch (InterruptedException | ExecutionException e) {
@@ -158,7 +200,27 @@ public class SaleRepositoryImpl implements SaleRepository {
         }
     }
 
+    /**
+     * The branch's sales whose saleDate falls on the UTC day.
+     */
+    private Query dayQuery(String orgId, String branchId, LocalDate date) {
+        // 1. Calculate the start of the target day in UTC.
+        // e.g., for date "2025-06-30", this becomes Timestamp("2025-06-30T00:00:00Z")
+        Timestamp startOfDay = Timestamp.of(Date.from(date.atStartOfDay().toInstant(ZoneOffset.UTC)));
+
+        // 2. Calculate the start of the NEXT day in UTC.
+        // e.g., for date "2025-06-30", this becomes Timestamp("2025-07-01T00:00:00Z")
+        Timestamp startOfNextDay = Timestamp.of(Date.from(date.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC)));
+
+        // 3. Build the Firestore range query.
+        // Find all documents where 'saleDate' is >= startOfDay AND < startOfNextDay.
+        return getCollection(orgId, branchId)
+                .whereGreaterThanOrEqualTo("saleDate", startOfDay)
+                .whereLessThan("saleDate", startOfNextDay);
+    }
+
     @Override
+    @Deprecated
     public void deleteByIdInTransaction(Transaction transaction, String orgId, String branchId, String saleId) {
         // 1. Get a direct reference to the document using the full path context.
         DocumentReference docRef = getCollection(orgId, branchId).document(saleId);
@@ -167,4 +229,73 @@ public class SaleRepositoryImpl implements SaleRepository {
         //    This does not execute immediately; it becomes part of the atomic transaction.
         transaction.delete(docRef);
     }
+
+    @Override
+    public void deleteByIdInTransaction(Transaction transaction, String orgId, String branchId, Sale sale) {
+        transaction.delete(getCollection(orgId, branchId).document(sale.getSaleId()));
+        new SalesRollup().subtract(sale).stage(transaction, firestore, orgId, branchId);
+        StockLedger.stageAppend(transaction, firestore, orgId, branchId, StockMovements.reversalOf(StockMovements.fromSale(sale)));
+    }
+
+    @Override
+    public Optional<SalesSummary> findDailySummary(String orgId, String branchId, LocalDate date) {
+        try {
+            DocumentSnapshot document = SalesRollup.daily(firestore, orgId, branchId).document(date.toString()).get().get();
+            return document.exists() ? Optional.of(SalesRollup.fromSnapshot(document)) : Optional.empty();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error finding sales summary for branch " + branchId + " on date " + date, e);
+        }
+    }
+
+    /**
+     * The daily documents are keyed by ISO date, so a document-ID range query returns
+     * them in date order.
+     */
+    @Override
+    public List<SalesSummary> findDailySummaries(String orgId, String branchId, LocalDate from, LocalDate to) {
+        try {
+            return SalesRollup.daily(firestore, orgId, branchId)
+                    .orderBy(FieldPath.documentId())
+                    .startAt(from.toString())
+                    .endAt(to.toString())
+                    .get().get().getDocuments().stream()
+                    .map(SalesRollup::fromSnapshot)
+                    .collect(Collectors.toList());
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error finding sales summaries for branch " + branchId + " from " + from + " to " + to, e);
+        }
+    }
+
+    @Override
+    public SalesSummary findMonthlySummary(String orgId, String branchId, YearMonth month) {
+        SalesSummary summary = SalesSummary.builder().period(month.toString()).build();
+        findDailySummaries(orgId, branchId, month.atDay(1), month.atEndOfMonth()).forEach(summary::add);
+        return summary;
+    }
+
+    /**
+     * Reads the day's sales in the same transaction that rewrites the rollup, so a sale committed
+     * meanwhile makes the transaction retry instead of being left out of the summary.
+     */
+    @Override
+    public SalesSummary rebuildDailySummary(String orgId, String branchId, LocalDate date) {
+        Query sales = dayQuery(orgId, branchId, date);
+        DocumentReference daily = SalesRollup.daily(firestore, orgId, branchId).document(date.toString());
+        try {
+            firestore.runTransaction(transaction -> {
+                SalesRollup rollup = new SalesRollup();
+                transaction.get(sales).get().getDocuments().stream()
+                        .map(SaleMapper.INSTANCE::fromSnapshot)
+                        .forEach(rollup::add);
+                // Replace rather than merge so totals of deleted sales do not survive
+                transaction.delete(daily);
+                rollup.stage(transaction, firestore, orgId, branchId);
+                return null;
+            }).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error rebuilding sales summary for branch " + branchId + " on date " + date, e);
+        }
+        return findDailySummary(orgId, branchId, date)
+                .orElseGet(() -> SalesSummary.builder().period(date.toString()).build());
+    }
 }
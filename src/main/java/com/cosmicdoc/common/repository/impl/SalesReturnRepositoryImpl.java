@@ -2,6 +2,7 @@ package com.cosmicdoc.common.repository.impl;
 
 import com.cosmicdoc.common.model.SalesReturn;
 import com.cosmicdoc.common.repository.SalesReturnRepository;
+import com.cosmicdoc.common.repository.StockMovements;
 import com.google.cloud.firestore.CollectionReference;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.Transaction;
@@ -13,6 +14,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 @Repository
 
 public class SalesReturnRepositoryImpl  implements SalesReturnRepository {
@@ -59,11 +61,23 @@ public class SalesReturnRepositoryImpl  implements SalesReturnRepository {
         }
     }
 
+    /**
+     * Pages through the branch's sales returns ordered by document ID, keeping at most
+     * two pages in memory at a time.
+     */
+    @Override
+    public Stream<SalesReturn> streamAllByBranchId(String organizationId, String branchId, int pageSize) {
+        return PagedQueryIterator.streamByDocumentId(getCollection(organizationId, branchId), pageSize,
+                doc -> doc.toObject(SalesReturn.class));
+    }
+
     @Override
     public void saveInTransaction(Transaction transaction, String organizationId, String branchId, SalesReturn salesReturn) {
         var docRef = getCollection(organizationId, branchId).document(salesReturn.getSalesReturnId());
         // Add the operation to the batch. The service layer will handle the commit.
         transaction.set(docRef, salesReturn);
+        StockLedger.stageForSource(transaction, firestore, organizationId, branchId, salesReturn.getSalesReturnId(),
+                salesReturn.getReturnDate(), StockMovements.fromSalesReturn(salesReturn));
     }
 
 
@@ -0,0 +1,149 @@
+package com.cosmicdoc.common.repository.impl;
+
+import com.cosmicdoc.common.model.Money;
+import com.cosmicdoc.common.model.Sale;
+import com.cosmicdoc.common.model.SalesSummary;
+import com.cosmicdoc.common.model.SalesTotals;
+import com.cosmicdoc.common.repository.mapper.MoneyCodec;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.UpdateBuilder;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects the rollup deltas of the sales written in one transaction and stages them as one
+ * increment per affected day in {@code sales_daily/{yyyy-MM-dd}}. Days are UTC, like
+ * {@code findAllByBranchIdAndDate}. Sales without a saleDate are not rolled up.
+ * <p>
+ * Amounts are stored as integer paise ({@link MoneyCodec}), so increments from many sales add
+ * up exactly instead of accumulating floating-point error.
+ */
+final class SalesRollup {
+
+    static final String DAILY_COLLECTION = "sales_daily";
+    static final String UNSPECIFIED = "UNSPECIFIED";
+
+    private final Map<LocalDate, Totals> days = new LinkedHashMap<>();
+
+    static CollectionReference daily(Firestore firestore, String orgId, String branchId) {
+        return firestore.collection("organizations").document(orgId)
+                .collection("branches").document(branchId)
+                .collection(DAILY_COLLECTION);
+    }
+
+    static LocalDate dayOf(Sale sale) {
+        return sale.getSaleDate() == null ? null
+                : sale.getSaleDate().toDate().toInstant().atOffset(ZoneOffset.UTC).toLocalDate();
+    }
+
+    SalesRollup add(Sale sale) {
+        return accumulate(sale, 1);
+    }
+
+    SalesRollup subtract(Sale sale) {
+        return accumulate(sale, -1);
+    }
+
+    private SalesRollup accumulate(Sale sale, int sign) {
+        LocalDate day = dayOf(sale);
+        if (day != null) {
+            Totals totals = days.computeIfAbsent(day, d -> new Totals());
+            String paymentMode = sale.getPaymentMode() != null ? sale.getPaymentMode().name() : UNSPECIFIED;
+            String gstType = sale.getGstType() != null ? sale.getGstType().name() : UNSPECIFIED;
+            totals.add(sale, sign);
+            totals.byPaymentMode.computeIfAbsent(paymentMode, key -> new Totals()).add(sale, sign);
+            totals.byGstType.computeIfAbsent(gstType, key -> new Totals()).add(sale, sign);
+        }
+        return this;
+    }
+
+    void stage(UpdateBuilder<?> writes, Firestore firestore, String orgId, String branchId) {
+        CollectionReference collection = daily(firestore, orgId, branchId);
+        days.forEach((day, totals) -> {
+            Map<String, Object> document = totals.toIncrements();
+            document.put("period", day.toString());
+            document.put("byPaymentMode", toIncrements(totals.byPaymentMode));
+            document.put("byGstType", toIncrements(totals.byGstType));
+            writes.set(collection.document(day.toString()), document, SetOptions.merge());
+        });
+    }
+
+    static SalesSummary fromSnapshot(DocumentSnapshot document) {
+        SalesTotals totals = toTotals(document.getData());
+        return SalesSummary.builder()
+                .period(document.getString("period"))
+                .count(totals.getCount())
+                .grandTotal(totals.getGrandTotal())
+                .totalTaxAmount(totals.getTotalTaxAmount())
+                .totalDiscountAmount(totals.getTotalDiscountAmount())
+                .byPaymentMode(toGroups(document.get("byPaymentMode")))
+                .byGstType(toGroups(document.get("byGstType")))
+                .build();
+    }
+
+    private static Map<String, SalesTotals> toGroups(Object value) {
+        Map<String, SalesTotals> groups = new HashMap<>();
+        if (value instanceof Map<?, ?> map) {
+            map.forEach((key, totals) -> {
+                if (totals instanceof Map<?, ?> fields) {
+                    groups.put(key.toString(), toTotals(fields));
+                }
+            });
+        }
+        return groups;
+    }
+
+    private static SalesTotals toTotals(Map<?, ?> fields) {
+        Object count = fields != null ? fields.get("count") : null;
+        return SalesTotals.builder()
+                .count(count instanceof Number number ? number.longValue() : 0)
+                .grandTotal(amount(fields, "grandTotal"))
+                .totalTaxAmount(amount(fields, "totalTaxAmount"))
+                .totalDiscountAmount(amount(fields, "totalDiscountAmount"))
+                .build();
+    }
+
+    private static Money amount(Map<?, ?> fields, String name) {
+        Money amount = fields != null ? MoneyCodec.decode(fields.get(name)) : null;
+        return amount != null ? amount : Money.ZERO;
+    }
+
+    private static Map<String, Object> toIncrements(Map<String, Totals> groups) {
+        Map<String, Object> increments = new HashMap<>();
+        groups.forEach((key, totals) -> increments.put(key, totals.toIncrements()));
+        return increments;
+    }
+
+    private static final class Totals {
+        long count;
+        long grandTotal;
+        long totalTaxAmount;
+        long totalDiscountAmount;
+        final Map<String, Totals> byPaymentMode = new HashMap<>();
+        final Map<String, Totals> byGstType = new HashMap<>();
+
+        void add(Sale sale, int sign) {
+            count += sign;
+            grandTotal += sign * Money.toPaise(sale.getGrandTotal());
+            totalTaxAmount += sign * Money.toPaise(sale.getTotalTaxAmount());
+            totalDiscountAmount += sign * Money.toPaise(sale.getTotalDiscountAmount());
+        }
+
+        Map<String, Object> toIncrements() {
+            Map<String, Object> increments = new HashMap<>();
+            increments.put("count", FieldValue.increment(count));
+            increments.put("grandTotal", FieldValue.increment(grandTotal));
+            increments.put("totalTaxAmount", FieldValue.increment(totalTaxAmount));
+            increments.put("totalDiscountAmount", FieldValue.increment(totalDiscountAmount));
+            return increments;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.cosmicdoc.common.repository.impl;
+
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.Transaction;
+import com.google.cloud.firestore.UpdateBuilder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Distributed counter for a medicine's stock.
+ * <p>
+ * Firestore sustains roughly one write per second per document, so a single {@code quantityInStock}
+ * field becomes a contention point for fast-selling medicines. In sharded mode the stock lives in
+ * {@code stock_shards/{0..n-1}} under the medicine document, each write increments one random
+ * shard, and reads add the shards up. The medicine's own {@code quantityInStock} is then a
+ * cached total for listings, rewritten by {@link #refreshCachedTotal}.
+ * <p>
+ * Writers that only know the medicine ID (the id-based {@code updateStockInTransaction}
+ * overloads) cannot pick a shard, so they keep incrementing {@code quantityInStock}. Every time the
+ * cached total is written, {@code stockShardBase} records its value, so the difference between the
+ * two is stock changed outside the shards. Reads add that difference to the shard sum, and
+ * {@link #refreshCachedTotal} and {@link #reshard} fold it into shard 0 instead of overwriting it.
+ * Medicine saves write only the master data of a sharded medicine, so they never reset the base.
+ */
+final class ShardedStockCounter {
+
+    static final String SHARDS_COLLECTION = "stock_shards";
+    static final String SHARD_COUNT_FIELD = "stockShardCount";
+    static final String COUNT_FIELD = "count";
+    static final String TOTAL_FIELD = "quantityInStock";
+    static final String BASE_FIELD = "stockShardBase";
+    static final String LOW_STOCK_FIELD = "lowStock";
+    static final String THRESHOLD_FIELD = "lowStockThreshold";
+
+    private ShardedStockCounter() {
+    }
+
+    static boolean isSharded(Integer shardCount) {
+        return shardCount != null && shardCount > 1;
+    }
+
+    /**
+     * Stages an increment of one randomly chosen shard. Creates the shard if it is missing.
+     */
+    static void increment(UpdateBuilder<?> writes, DocumentReference medicineRef, int shardCount, int quantityChange) {
+        int shard = ThreadLocalRandom.current().nextInt(shardCount);
+        DocumentReference shardRef = medicineRef.collection(SHARDS_COLLECTION).document(String.valueOf(shard));
+        writes.set(shardRef, Map.of(COUNT_FIELD, FieldValue.increment(quantityChange)), SetOptions.merge());
+    }
+
+    /**
+     * Adds up the shards of a sharded medicine plus the stock changed outside them,
+     * or returns the plain counter otherwise.
+     */
+    static long total(DocumentSnapshot medicine) throws ExecutionException, InterruptedException {
+        if (!isSharded(shardCount(medicine))) {
+            return plainTotal(medicine);
+        }
+        return sum(medicine.getReference().collection(SHARDS_COLLECTION).get().get().getDocuments()) + unfolded(medicine);
+    }
+
+    /**
+     * Like {@link #total(DocumentSnapshot)}, but reads the shards in the transaction.
+     */
+    static long total(Transaction transaction, DocumentSnapshot medicine) throws ExecutionException, InterruptedException {
+        if (!isSharded(shardCount(medicine))) {
+            return plainTotal(medicine);
+        }
+        return sum(transaction.get(medicine.getReference().collection(SHARDS_COLLECTION)).get().getDocuments()) + unfolded(medicine);
+    }
+
+    /**
+     * Rewrites the cached {@code quantityInStock} of a sharded medicine with the current total,
+     * first moving stock changed outside the shards into shard 0. The {@code lowStock} flag is set
+     * from that total too, since shard increments leave it alone.
+     *
+     * @return The total that was written.
+     */
+    static long refreshCachedTotal(Firestore firestore, DocumentReference medicineRef) throws ExecutionException, InterruptedException {
+        CollectionReference shards = medicineRef.collection(SHARDS_COLLECTION);
+        return firestore.runTransaction(transaction -> {
+            DocumentSnapshot medicine = transaction.get(medicineRef).get();
+            if (!medicine.exists()) {
+                throw new IllegalArgumentException("Medicine does not exist: " + medicineRef.getPath());
+            }
+            if (!isSharded(shardCount(medicine))) {
+                return plainTotal(medicine);
+            }
+            long unfolded = unfolded(medicine);
+            long total = sum(transaction.get(shards).get().getDocuments()) + unfolded;
+            if (unfolded != 0) {
+                transaction.set(shards.document("0"), Map.of(COUNT_FIELD, FieldValue.increment(unfolded)), SetOptions.merge());
+            }
+            transaction.update(medicineRef, Map.of(TOTAL_FIELD, total, BASE_FIELD, total, LOW_STOCK_FIELD, isLow(medicine, total)));
+            return total;
+        }).get();
+    }
+
+    /**
+     * Moves a medicine to {@code newShardCount} shards (or back to a single counter when it is 1 or less).
+     * The current total, including stock changed outside the shards, is read and rewritten in one
+     * transaction, so no stock is lost. It goes into shard 0, and shards beyond the new count are deleted.
+     */
+    static void reshard(Firestore firestore, DocumentReference medicineRef, int newShardCount)
+            throws ExecutionException, InterruptedException {
+        CollectionReference shards = medicineRef.collection(SHARDS_COLLECTION);
+        firestore.runTransaction(transaction -> {
+            DocumentSnapshot medicine = transaction.get(medicineRef).get();
+            if (!medicine.exists()) {
+                throw new IllegalArgumentException("Medicine does not exist: " + medicineRef.getPath());
+            }
+            List<QueryDocumentSnapshot> existingShards = transaction.get(shards).get().getDocuments();
+            long total = isSharded(shardCount(medicine)) ? sum(existingShards) + unfolded(medicine) : plainTotal(medicine);
+
+            Map<String, Object> updates = new HashMap<>();
+            updates.put(TOTAL_FIELD, total);
+            if (isSharded(newShardCount)) {
+                updates.put(SHARD_COUNT_FIELD, newShardCount);
+                updates.put(BASE_FIELD, total);
+                for (int i = 0; i < newShardCount; i++) {
+                    transaction.set(shards.document(String.valueOf(i)), Map.of(COUNT_FIELD, i == 0 ? total : 0L));
+                }
+            } else {
+                updates.put(SHARD_COUNT_FIELD, FieldValue.delete());
+                updates.put(BASE_FIELD, FieldValue.delete());
+            }
+            for (QueryDocumentSnapshot shard : existingShards) {
+                if (shardIndex(shard.getId()) >= (isSharded(newShardCount) ? newShardCount : 0)) {
+                    transaction.delete(shard.getReference());
+                }
+            }
+            transaction.update(medicineRef, updates);
+            return null;
+        }).get();
+    }
+
+    private static boolean isLow(DocumentSnapshot medicine, long total) {
+        Long threshold = medicine.getLong(THRESHOLD_FIELD);
+        return threshold != null && total < threshold;
+    }
+
+    private static long plainTotal(DocumentSnapshot medicine) {
+        Long total = medicine.getLong(TOTAL_FIELD);
+        return total != null ? total : 0L;
+    }
+
+    /**
+     * Stock changed by increments of {@code quantityInStock} since the cached total was last written.
+     * A sharded medicine without a base predates it and counts as fully folded.
+     */
+    private static long unfolded(DocumentSnapshot medicine) {
+        Long base = medicine.getLong(BASE_FIELD);
+        return base != null ? plainTotal(medicine) - base : 0L;
+    }
+
+    private static Integer shardCount(DocumentSnapshot medicine) {
+        Long shardCount = medicine.getLong(SHARD_COUNT_FIELD);
+        return shardCount != null ? shardCount.intValue() : null;
+    }
+
+    private static long sum(List<QueryDocumentSnapshot> shards) {
+        long total = 0;
+        for (QueryDocumentSnapshot shard : shards) {
+            Long count = shard.getLong(COUNT_FIELD);
+            total += count != null ? count : 0L;
+        }
+        return total;
+    }
+
+    private static int shardIndex(String shardId) {
+        try {
+            return Integer.parseInt(shardId);
+        } catch (NumberFormatException e) {
+            return Integer.MAX_VALUE; // Not one of ours; always outside the live range.
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.cosmicdoc.common.repository.impl;
+
+import com.cosmicdoc.common.model.StockMovement;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.UpdateBuilder;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Stages stock ledger appends next to the writes that change the stock, so the sale, purchase and
+ * return repositories record their movements in the caller's transaction or batch.
+ */
+final class StockLedger {
+
+    static final String MOVEMENTS_COLLECTION = "stock_movements";
+    static final String OCCURRED_AT = "occurredAt";
+    static final String COMPACTED_UP_TO = "compactedUpTo";
+
+    private StockLedger() {
+    }
+
+    static CollectionReference movements(Firestore firestore, String orgId, String branchId) {
+        return branch(firestore, orgId, branchId).collection(MOVEMENTS_COLLECTION);
+    }
+
+    /**
+     * The branch's ledger state, holding the compaction watermark.
+     */
+    static DocumentReference state(Firestore firestore, String orgId, String branchId) {
+        return branch(firestore, orgId, branchId).collection(InventoryValuationAggregate.AGGREGATES_COLLECTION).document("stock_ledger");
+    }
+
+    private static DocumentReference branch(Firestore firestore, String orgId, String branchId) {
+        return firestore.collection("organizations").document(orgId)
+                .collection("branches").document(branchId);
+    }
+
+    /**
+     * Appends each movement under a generated ID.
+     */
+    static void stageAppend(UpdateBuilder<?> writes, Firestore firestore, String orgId, String branchId,
+                            List<StockMovement> movements) {
+        CollectionReference collection = movements(firestore, orgId, branchId);
+        movements.forEach(movement -> writes.create(collection.document(), movement));
+    }
+
+    /**
+     * Writes the movements of a document that may be saved again under {@code {sourceId}_{index}},
+     * so a re-save rewrites the same entries instead of appending them twice. Entries of an earlier
+     * save beyond the new number of lines are deleted.
+     * <p>
+     * The existing entries and the compaction watermark are read outside the caller's transaction,
+     * so concurrent saves of the same source must not overlap. A source whose entries are (or would
+     * be) dated at or before the watermark is rejected: its checkpoints would never see the change.
+     *
+     * @param occurredAt The source's own date, so a re-save does not move its entries past a
+     *                   compaction; null keeps the time of the earlier entries, or leaves it to the
+     *                   server timestamp on the first save.
+     * @throws IllegalStateException If the source's movements have already been compacted.
+     */
+    static void stageForSource(UpdateBuilder<?> writes, Firestore firestore, String orgId, String branchId,
+                               String sourceId, Timestamp occurredAt, List<StockMovement> movements) {
+        CollectionReference collection = movements(firestore, orgId, branchId);
+        List<QueryDocumentSnapshot> existing;
+        Timestamp compactedUpTo;
+        try {
+            existing = collection.whereEqualTo("sourceId", sourceId).get().get().getDocuments();
+            DocumentSnapshot state = state(firestore, orgId, branchId).get().get();
+            compactedUpTo = state.exists() ? state.getTimestamp(COMPACTED_UP_TO) : null;
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error reading stock movements of: " + sourceId, e);
+        }
+
+        Timestamp at = occurredAt;
+        for (QueryDocumentSnapshot entry : existing) {
+            Timestamp entryAt = entry.getTimestamp(OCCURRED_AT);
+            if (at == null) {
+                at = entryAt;
+            }
+            if (isCompacted(entryAt, compactedUpTo)) {
+                throw new IllegalStateException("Stock movements of " + sourceId + " are already compacted");
+            }
+        }
+        if (isCompacted(at, compactedUpTo)) {
+            throw new IllegalStateException("Stock movements of " + sourceId + " fall before the compacted ledger");
+        }
+
+        Set<String> written = new HashSet<>();
+        for (int i = 0; i < movements.size(); i++) {
+            StockMovement movement = movements.get(i);
+            if (at != null) {
+                movement.setOccurredAt(at);
+            }
+            DocumentReference ref = collection.document(sourceId + "_" + i);
+            writes.set(ref, movement);
+            written.add(ref.getId());
+        }
+        for (QueryDocumentSnapshot entry : existing) {
+            if (entry.getId().startsWith(sourceId + "_") && !written.contains(entry.getId())) {
+                writes.delete(entry.getReference());
+            }
+        }
+    }
+
+    private static boolean isCompacted(Timestamp occurredAt, Timestamp compactedUpTo) {
+        return occurredAt != null && compactedUpTo != null && occurredAt.compareTo(compactedUpTo) <= 0;
+    }
+}
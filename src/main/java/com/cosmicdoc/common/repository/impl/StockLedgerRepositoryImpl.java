@@ -0,0 +1,256 @@
+package com.cosmicdoc.common.repository.impl;
+
+import com.cosmicdoc.common.dto.StockPosition;
+import com.cosmicdoc.common.model.StockCheckpoint;
+import com.cosmicdoc.common.model.StockMovement;
+import com.cosmicdoc.common.model.StockMovementType;
+import com.cosmicdoc.common.repository.BulkWriteResult;
+import com.cosmicdoc.common.repository.StockLedgerRepository;
+import com.cosmicdoc.common.repository.StockMovements;
+import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.*;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Firestore implementation of the StockLedgerRepository.
+ * <p>
+ * Movements live in {@code stock_movements} and checkpoints in {@code stock_checkpoints}
+ * (ID {@code {medicineId}_{asOf millis}}) under the branch. The compaction watermark is kept in
+ * {@code aggregates/stock_ledger}. Point-in-time reads need composite indexes on
+ * (medicineId, occurredAt) for movements and (medicineId, asOf desc) for checkpoints.
+ */
+@Repository
+public class StockLedgerRepositoryImpl implements StockLedgerRepository {
+
+    private static final String OCCURRED_AT = StockLedger.OCCURRED_AT;
+    private static final String AS_OF = "asOf";
+    private static final String MEDICINE_ID = "medicineId";
+    private static final String COMPACTED_UP_TO = StockLedger.COMPACTED_UP_TO;
+
+    private final Firestore firestore;
+
+    public StockLedgerRepositoryImpl(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    private DocumentReference getBranch(String orgId, String branchId) {
+        return firestore.collection("organizations").document(orgId)
+                .collection("branches").document(branchId);
+    }
+
+    private CollectionReference getMovements(String orgId, String branchId) {
+        return StockLedger.movements(firestore, orgId, branchId);
+    }
+
+    private CollectionReference getCheckpoints(String orgId, String branchId) {
+        return getBranch(orgId, branchId).collection("stock_checkpoints");
+    }
+
+    private DocumentReference getLedgerState(String orgId, String branchId) {
+        return StockLedger.state(firestore, orgId, branchId);
+    }
+
+    @Override
+    public void appendInTransaction(Transaction transaction, String orgId, String branchId, List<StockMovement> movements) {
+        StockLedger.stageAppend(transaction, firestore, orgId, branchId, movements);
+    }
+
+    @Override
+    public void appendInTransaction(WriteBatch batch, String orgId, String branchId, List<StockMovement> movements) {
+        StockLedger.stageAppend(batch, firestore, orgId, branchId, movements);
+    }
+
+    @Override
+    public List<StockMovement> findMovements(String orgId, String branchId, String medicineId, Timestamp from, Timestamp to) {
+        Query query = getMovements(orgId, branchId).whereEqualTo(MEDICINE_ID, medicineId);
+        if (from != null) {
+            query = query.whereGreaterThan(OCCURRED_AT, from);
+        }
+        query = query.whereLessThanOrEqualTo(OCCURRED_AT, to).orderBy(OCCURRED_AT);
+        try {
+            return query.get().get().getDocuments().stream()
+                    .map(doc -> doc.toObject(StockMovement.class))
+                    .collect(Collectors.toList());
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error finding stock movements for medicine: " + medicineId, e);
+        }
+    }
+
+    @Override
+    public StockPosition findStockAt(String orgId, String branchId, String medicineId, Timestamp at) {
+        try {
+            List<QueryDocumentSnapshot> checkpoints = getCheckpoints(orgId, branchId)
+                    .whereEqualTo(MEDICINE_ID, medicineId)
+                    .whereLessThanOrEqualTo(AS_OF, at)
+                    .orderBy(AS_OF, Query.Direction.DESCENDING)
+                    .limit(1)
+                    .get().get().getDocuments();
+            StockCheckpoint checkpoint = checkpoints.isEmpty() ? null : checkpoints.get(0).toObject(StockCheckpoint.class);
+
+            long quantity = checkpoint != null ? checkpoint.getQuantity() : 0L;
+            Map<String, Long> batchQuantities = new HashMap<>();
+            if (checkpoint != null && checkpoint.getBatchQuantities() != null) {
+                batchQuantities.putAll(checkpoint.getBatchQuantities());
+            }
+            for (StockMovement movement : findMovements(orgId, branchId, medicineId, checkpoint != null ? checkpoint.getAsOf() : null, at)) {
+                quantity += movement.getQuantityChange();
+                batchQuantities.merge(String.valueOf(movement.getBatchNo()), (long) movement.getQuantityChange(), Long::sum);
+            }
+            return new StockPosition(medicineId, at, quantity, batchQuantities);
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error reconstructing stock for medicine: " + medicineId, e);
+        }
+    }
+
+    @Override
+    public int compact(String orgId, String branchId, Timestamp upTo) {
+        try {
+            DocumentSnapshot state = getLedgerState(orgId, branchId).get().get();
+            Timestamp compactedUpTo = state.exists() ? state.getTimestamp(COMPACTED_UP_TO) : null;
+            if (compactedUpTo != null && compactedUpTo.compareTo(upTo) >= 0) {
+                return 0;
+            }
+
+            // 1. Sum the new movements per medicine, paging through them in commit order.
+            Query query = getMovements(orgId, branchId);
+            if (compactedUpTo != null) {
+                query = query.whereGreaterThan(OCCURRED_AT, compactedUpTo);
+            }
+            query = query.whereLessThanOrEqualTo(OCCURRED_AT, upTo).orderBy(OCCURRED_AT).orderBy(FieldPath.documentId());
+            Map<String, StockCheckpoint> deltas = new LinkedHashMap<>();
+            try (Stream<StockMovement> movements = PagedQueryIterator.stream(query, PagedQueryIterator.DEFAULT_PAGE_SIZE,
+                    doc -> doc.toObject(StockMovement.class))) {
+                movements.forEach(movement -> {
+                    StockCheckpoint delta = deltas.computeIfAbsent(movement.getMedicineId(), id -> StockCheckpoint.builder()
+                            .medicineId(id).batchQuantities(new HashMap<>()).build());
+                    delta.setQuantity(delta.getQuantity() + movement.getQuantityChange());
+                    delta.getBatchQuantities().merge(String.valueOf(movement.getBatchNo()), (long) movement.getQuantityChange(), Long::sum);
+                    delta.setMovementCount(delta.getMovementCount() + 1);
+                });
+            }
+
+            // 2. Fetch the previous checkpoint of every touched medicine in parallel. Bounding it by the
+            //    watermark ignores checkpoints left behind by an earlier, failed run of this compaction.
+            Map<String, ApiFuture<QuerySnapshot>> previous = new LinkedHashMap<>();
+            if (compactedUpTo != null) {
+                for (String medicineId : deltas.keySet()) {
+                    previous.put(medicineId, getCheckpoints(orgId, branchId)
+                            .whereEqualTo(MEDICINE_ID, medicineId)
+                            .whereLessThanOrEqualTo(AS_OF, compactedUpTo)
+                            .orderBy(AS_OF, Query.Direction.DESCENDING)
+                            .limit(1)
+                            .get());
+                }
+            }
+
+            // 3. Write previous + delta as the new checkpoints, then advance the watermark.
+            List<StockCheckpoint> checkpoints = new ArrayList<>(deltas.size());
+            for (Map.Entry<String, StockCheckpoint> entry : deltas.entrySet()) {
+                ApiFuture<QuerySnapshot> lookup = previous.get(entry.getKey());
+                List<QueryDocumentSnapshot> found = lookup != null ? lookup.get().getDocuments() : List.of();
+                StockCheckpoint checkpoint = found.isEmpty() ? emptyCheckpoint(entry.getKey()) : found.get(0).toObject(StockCheckpoint.class);
+                if (checkpoint.getBatchQuantities() == null) {
+                    checkpoint.setBatchQuantities(new HashMap<>());
+                }
+                StockCheckpoint delta = entry.getValue();
+                delta.getBatchQuantities().forEach((batchNo, change) -> checkpoint.getBatchQuantities().merge(batchNo, change, Long::sum));
+                checkpoint.setQuantity(checkpoint.getQuantity() + delta.getQuantity());
+                checkpoint.setMovementCount(checkpoint.getMovementCount() + delta.getMovementCount());
+                checkpoint.setAsOf(upTo);
+                checkpoint.setCheckpointId(entry.getKey() + "_" + upTo.toDate().getTime());
+                checkpoints.add(checkpoint);
+            }
+            CollectionReference collection = getCheckpoints(orgId, branchId);
+            BulkWriteResult written = BulkWriteSupport.setAll(firestore, checkpoints, checkpoint -> collection.document(checkpoint.getCheckpointId()));
+            if (!written.isAllSucceeded()) {
+                // Leave the watermark alone; the next run rewrites the same checkpoint IDs.
+                throw new RuntimeException("Failed to write " + written.getFailed().size() + " stock checkpoints for branch: " + branchId);
+            }
+            getLedgerState(orgId, branchId).set(Map.of(COMPACTED_UP_TO, upTo)).get();
+            return checkpoints.size();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error compacting stock ledger for branch: " + branchId, e);
+        }
+    }
+
+    @Override
+    public int backfillOpeningBalances(String orgId, String branchId, String createdBy) {
+        try {
+            DocumentSnapshot state = getLedgerState(orgId, branchId).get().get();
+            if (state.exists() && state.getTimestamp(COMPACTED_UP_TO) != null) {
+                throw new IllegalStateException("Stock ledger of branch " + branchId + " is already compacted");
+            }
+            Timestamp now = Timestamp.now();
+            List<StockMovement> openings = new ArrayList<>();
+            CollectionReference medicines = getBranch(orgId, branchId).collection("medicines");
+            try (Stream<QueryDocumentSnapshot> stream = PagedQueryIterator.streamByDocumentId(medicines,
+                    PagedQueryIterator.DEFAULT_PAGE_SIZE, doc -> doc)) {
+                for (Iterator<QueryDocumentSnapshot> it = stream.iterator(); it.hasNext(); ) {
+                    QueryDocumentSnapshot medicine = it.next();
+                    openings.addAll(openingBalances(orgId, branchId, medicine, now, createdBy));
+                }
+            }
+            CollectionReference collection = getMovements(orgId, branchId);
+            BulkWriteResult written = BulkWriteSupport.setAll(firestore, openings, opening -> collection.document(opening.getMovementId()));
+            if (!written.isAllSucceeded()) {
+                throw new RuntimeException("Failed to write " + written.getFailed().size() + " opening balances for branch: " + branchId);
+            }
+            return openings.size();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error backfilling opening balances for branch: " + branchId, e);
+        }
+    }
+
+    /**
+     * One opening per batch plus a batch-less one, such that the medicine's movements add up to its
+     * stock. They are dated at the epoch so they come before every recorded movement.
+     */
+    private List<StockMovement> openingBalances(String orgId, String branchId, QueryDocumentSnapshot medicine,
+                                                Timestamp now, String createdBy) throws ExecutionException, InterruptedException {
+        String medicineId = medicine.getId();
+        Map<String, Long> recorded = new HashMap<>();
+        long recordedTotal = 0;
+        for (StockMovement movement : findMovements(orgId, branchId, medicineId, null, now)) {
+            if (movement.getType() != StockMovementType.OPENING_BALANCE) {
+                recorded.merge(String.valueOf(movement.getBatchNo()), (long) movement.getQuantityChange(), Long::sum);
+                recordedTotal += movement.getQuantityChange();
+            }
+        }
+
+        List<StockMovement> openings = new ArrayList<>();
+        long opened = 0;
+        for (QueryDocumentSnapshot batch : medicine.getReference().collection("batches").get().get().getDocuments()) {
+            Long available = batch.getLong("quantityAvailable");
+            String batchNo = batch.getString("batchNo");
+            long opening = (available != null ? available : 0L) - recorded.getOrDefault(String.valueOf(batchNo), 0L);
+            openings.add(opening(medicineId, batchNo, batch.getId(), opening, createdBy));
+            opened += opening;
+        }
+        long remainder = ShardedStockCounter.total(medicine) - opened - recordedTotal;
+        openings.add(opening(medicineId, null, null, remainder, createdBy));
+        return openings;
+    }
+
+    private static StockMovement opening(String medicineId, String batchNo, String batchId, long quantity, String createdBy) {
+        StockMovement opening = StockMovements.adjustment(medicineId, batchNo, batchId, Math.toIntExact(quantity), createdBy);
+        opening.setType(StockMovementType.OPENING_BALANCE);
+        opening.setMovementId("opening_" + medicineId + (batchId != null ? "_" + batchId : ""));
+        opening.setOccurredAt(Timestamp.ofTimeSecondsAndNanos(0, 0));
+        return opening;
+    }
+
+    private static StockCheckpoint emptyCheckpoint(String medicineId) {
+        return StockCheckpoint.builder().medicineId(medicineId).batchQuantities(new HashMap<>()).build();
+    }
+}
@@ -0,0 +1,217 @@
+package com.cosmicdoc.common.repository.impl;
+
+import com.cosmicdoc.common.repository.StockReconciliationReport;
+import com.cosmicdoc.common.repository.StockReconciliationReport.Drift;
+import com.cosmicdoc.common.repository.StockReconciliationReport.Progress;
+import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Compares every medicine's {@code quantityInStock} with the sum of its batches'
+ * {@code quantityAvailable} across all branches of an organization, and optionally repairs drift.
+ * <p>
+ * Medicines are paged per branch in document-ID order and cut into work units of
+ * {@code unitSize} medicines. Units run on a fixed pool of {@code parallelism} threads, and at most
+ * twice that many are queued, so memory stays bounded however large the organization is. Within a
+ * unit the batch queries of all medicines are sent at once. These reads are not transactional, so
+ * a sale committed between reading a medicine and its batches shows up as drift. When repairing,
+ * each drifting medicine is therefore re-read with its shards and batches in its own transaction,
+ * and only drift confirmed there is reported and corrected.
+ */
+@Slf4j
+public class StockReconciliationJob {
+
+    public static final int DEFAULT_PARALLELISM = 8;
+    public static final int DEFAULT_UNIT_SIZE = 200;
+
+    private final Firestore firestore;
+    private final int parallelism;
+    private final int unitSize;
+
+    public StockReconciliationJob(Firestore firestore) {
+        this(firestore, DEFAULT_PARALLELISM, DEFAULT_UNIT_SIZE);
+    }
+
+    public StockReconciliationJob(Firestore firestore, int parallelism, int unitSize) {
+        if (parallelism <= 0 || unitSize <= 0) {
+            throw new IllegalArgumentException("parallelism and unitSize must be positive");
+        }
+        this.firestore = firestore;
+        this.parallelism = parallelism;
+        this.unitSize = unitSize;
+    }
+
+    /**
+     * Reconciles the whole organization.
+     *
+     * @param repair           Whether to correct the medicine totals to match their batches.
+     * @param progressListener Called after each completed unit, from the worker threads; may be null.
+     */
+    public StockReconciliationReport run(String organizationId, boolean repair, Consumer<Progress> progressListener) {
+        Run run = new Run(repair, progressListener);
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "stock-reconciliation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Semaphore queued = new Semaphore(parallelism * 2);
+        List<CompletableFuture<Void>> units = new ArrayList<>();
+        try {
+            Iterable<DocumentReference> branches = firestore.collection("organizations").document(organizationId)
+                    .collection("branches").listDocuments();
+            for (DocumentReference branch : branches) {
+                try (Stream<QueryDocumentSnapshot> medicines = PagedQueryIterator.streamByDocumentId(
+                        branch.collection("medicines"), unitSize, doc -> doc)) {
+                    Iterator<QueryDocumentSnapshot> iterator = medicines.iterator();
+                    while (iterator.hasNext()) {
+                        List<QueryDocumentSnapshot> unit = new ArrayList<>(unitSize);
+                        while (iterator.hasNext() && unit.size() < unitSize) {
+                            unit.add(iterator.next());
+                        }
+                        queued.acquire();
+                        units.add(CompletableFuture.runAsync(() -> run.reconcile(branch.getId(), unit), pool)
+                                .whenComplete((ignored, error) -> queued.release()));
+                    }
+                }
+            }
+            CompletableFuture.allOf(units.toArray(new CompletableFuture[0])).join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Stock reconciliation interrupted for organization: " + organizationId, e);
+        } finally {
+            pool.shutdownNow();
+        }
+        return new StockReconciliationReport(organizationId, List.copyOf(run.drifts), run.progress(), run.failedUnits.get());
+    }
+
+    private final class Run {
+        final boolean repair;
+        final Consumer<Progress> progressListener;
+        final long startNanos = System.nanoTime();
+        final List<Drift> drifts = Collections.synchronizedList(new ArrayList<>());
+        final LongAdder unitsCompleted = new LongAdder();
+        final LongAdder medicinesChecked = new LongAdder();
+        final LongAdder batchesRead = new LongAdder();
+        final LongAdder driftsFound = new LongAdder();
+        final LongAdder repaired = new LongAdder();
+        final AtomicInteger failedUnits = new AtomicInteger();
+
+        Run(boolean repair, Consumer<Progress> progressListener) {
+            this.repair = repair;
+            this.progressListener = progressListener;
+        }
+
+        void reconcile(String branchId, List<QueryDocumentSnapshot> medicines) {
+            try {
+                // 1. Send the batch queries of the whole unit before waiting on any of them.
+                List<ApiFuture<QuerySnapshot>> batchReads = new ArrayList<>(medicines.size());
+                for (QueryDocumentSnapshot medicine : medicines) {
+                    batchReads.add(medicine.getReference().collection("batches").get());
+                }
+
+                // 2. Compare. The medicine and its batches were read at different times, so a
+                //    mismatch may just be a sale that committed in between; repairs re-check it.
+                List<Drift> unitDrifts = new ArrayList<>();
+                for (int i = 0; i < medicines.size(); i++) {
+                    QueryDocumentSnapshot medicine = medicines.get(i);
+                    List<QueryDocumentSnapshot> batches = batchReads.get(i).get().getDocuments();
+                    batchesRead.add(batches.size());
+                    long batchTotal = sumAvailable(batches);
+                    long total = ShardedStockCounter.total(medicine);
+                    if (total == batchTotal) {
+                        continue;
+                    }
+                    Drift drift = repair
+                            ? repair(branchId, medicine.getReference())
+                            : new Drift(branchId, medicine.getId(), medicine.getString("name"), total, batchTotal, false);
+                    if (drift != null) {
+                        unitDrifts.add(drift);
+                        if (drift.repaired()) {
+                            repaired.increment();
+                        }
+                    }
+                }
+
+                drifts.addAll(unitDrifts);
+                driftsFound.add(unitDrifts.size());
+                medicinesChecked.add(medicines.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failedUnits.incrementAndGet();
+                return;
+            } catch (ExecutionException | RuntimeException e) {
+                log.warn("Stock reconciliation failed for a unit of {} medicines in branch {}", medicines.size(), branchId, e);
+                failedUnits.incrementAndGet();
+                return;
+            }
+            unitsCompleted.increment();
+            if (progressListener != null) {
+                progressListener.accept(progress());
+            }
+        }
+
+        /**
+         * Re-reads the medicine, its shards and its batches in one transaction and corrects the
+         * total by the difference seen there, so a stock change committed concurrently is neither
+         * mistaken for drift nor applied twice.
+         *
+         * @return The confirmed drift, or null if the medicine turned out to be consistent.
+         */
+        private Drift repair(String branchId, DocumentReference medicineRef) throws ExecutionException, InterruptedException {
+            return firestore.runTransaction(transaction -> {
+                DocumentSnapshot medicine = transaction.get(medicineRef).get();
+                if (!medicine.exists()) {
+                    return null;
+                }
+                long total = ShardedStockCounter.total(transaction, medicine);
+                long batchTotal = sumAvailable(transaction.get(medicineRef.collection("batches")).get().getDocuments());
+                if (total == batchTotal) {
+                    return null;
+                }
+                long difference = batchTotal - total;
+                Long shardCount = medicine.getLong(ShardedStockCounter.SHARD_COUNT_FIELD);
+                if (shardCount != null && ShardedStockCounter.isSharded(shardCount.intValue())) {
+                    ShardedStockCounter.increment(transaction, medicineRef, shardCount.intValue(), Math.toIntExact(difference));
+                } else {
+                    transaction.update(medicineRef, ShardedStockCounter.TOTAL_FIELD, FieldValue.increment(difference));
+                }
+                return new Drift(branchId, medicine.getId(), medicine.getString("name"), total, batchTotal, true);
+            }).get();
+        }
+
+        private long sumAvailable(List<QueryDocumentSnapshot> batches) {
+            long batchTotal = 0;
+            for (QueryDocumentSnapshot batch : batches) {
+                Long quantity = batch.getLong("quantityAvailable");
+                batchTotal += quantity != null ? quantity : 0L;
+            }
+            return batchTotal;
+        }
+
+        Progress progress() {
+            return new Progress(unitsCompleted.sum(), medicinesChecked.sum(), batchesRead.sum(), driftsFound.sum(),
+                    repaired.sum(), Duration.ofNanos(System.nanoTime() - startNanos));
+        }
+    }
+}
@@ -1,14 +1,20 @@
 package com.cosmicdoc.common.repository.impl;
 
 import com.cosmicdoc.common.model.Supplier;
+import com.cosmicdoc.common.repository.BulkWriteResult;
+import com.cosmicdoc.common.repository.Projection;
 import com.cosmicdoc.common.repository.SupplierRepository;
+import com.cosmicdoc.common.repository.cache.CollectionMirror;
+import com.cosmicdoc.common.repository.cache.DocumentBatchLoader;
 import com.google.cloud.firestore.*;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
@@ -23,9 +29,36 @@ public class SupplierRepositoryImpl implements SupplierRepository {
 
     private final Firestore firestore;
 
+    /**
+     * Optional listener-backed copy of each organization's suppliers; null unless enabled.
+     */
+    private volatile CollectionMirror<Supplier> mirror;
+
     public SupplierRepositoryImpl (Firestore firestore) {
         this.firestore = firestore;
     }
+
+    /**
+     * Opts in to serving findById from an in-process mirror that a snapshot listener
+     * keeps up to date. Organizations are subscribed lazily.
+     *
+     * @param maxOrganizations The number of organizations mirrored at once (least recently used are dropped).
+     * @param maxSuppliersPerOrganization Organizations with more suppliers than this are read directly.
+     */
+    public void enableMirroring(int maxOrganizations, int maxSuppliersPerOrganization) {
+        disableMirroring();
+        this.mirror = new CollectionMirror<>("suppliers", this::getCollection, Supplier.class,
+                maxOrganizations, maxSuppliersPerOrganization);
+    }
+
+    @PreDestroy
+    public void disableMirroring() {
+        CollectionMirror<Supplier> current = this.mirror;
+        this.mirror = null;
+        if (current != null) {
+            current.close();
+        }
+    }
     /**
      * A private helper method to get a reference to the 'suppliers' sub-collection
      * for a specific organization. This ensures all methods use the correct,
@@ -55,11 +88,30 @@ public class SupplierRepositoryImpl implements SupplierRepository {
         }
     }
 
+    /**
+     * Finds all suppliers for a specific organization, fetching only the projected fields.
+     */
+    @Override
+    public <P> List<P> findAllByOrganizationId(String organizationId, Projection<P> projection) {
+        try {
+            var documents = projection.applyTo(getCollection(organizationId)).get().get().getDocuments();
+            return documents.stream()
+                    .map(projection::map)
+                    .collect(Collectors.toList());
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error finding supplier summaries for organization: " + organizationId, e);
+        }
+    }
+
 
     @Override
     public Supplier save(String organizationId, Supplier supplier) {
         try {
             getCollection(organizationId).document(supplier.getSupplierId()).set(supplier).get();
+            CollectionMirror<Supplier> current = this.mirror;
+            if (current != null) {
+                current.put(organizationId, supplier.getSupplierId(), supplier);
+            }
             return supplier;
         } catch (InterruptedException | ExecutionException e) {
             throw new RuntimeException("Error saving supplier: " + supplier.getName(), e);
@@ -90,6 +142,7 @@ public class SupplierRepositoryImpl implements SupplierRepository {
             //    If the document with supplierId does not exist, this will throw an exception,
             //    which is the correct behavior.
             docRef.update(updates).get();
+            markInactiveInMirror(organizationId, supplierId);
 
         } catch (InterruptedException | ExecutionException e) {
             // In a real application, log this exception for debugging.
@@ -102,6 +155,11 @@ public class SupplierRepositoryImpl implements SupplierRepository {
      */
     @Override
     public Optional<Supplier> findById(String organizationId, String supplierId) {
+        CollectionMirror<Supplier> current = this.mirror;
+        Optional<Map<String, Supplier>> mirrored = current != null ? current.documents(organizationId) : Optional.empty();
+        if (mirrored.isPresent()) {
+            return Optional.ofNullable(mirrored.get().get(supplierId));
+        }
         try {
             // 1. Get a direct reference to the document using the full path context.
             var documentSnapshot = getCollection(organizationId).document(supplierId).get().get();
@@ -123,6 +181,17 @@ public class SupplierRepositoryImpl implements SupplierRepository {
         }
     }
 
+    @Override
+    public CompletableFuture<Optional<Supplier>> findById(DocumentBatchLoader loader, String organizationId, String supplierId) {
+        CollectionMirror<Supplier> current = this.mirror;
+        Optional<Map<String, Supplier>> mirrored = current != null ? current.documents(organizationId) : Optional.empty();
+        if (mirrored.isPresent()) {
+            return CompletableFuture.completedFuture(Optional.ofNullable(mirrored.get().get(supplierId)));
+        }
+        return loader.load(getCollection(organizationId).document(supplierId),
+                snapshot -> snapshot.toObject(Supplier.class));
+    }
+
     @Override
     public boolean existsById(Transaction transaction, String orgId, String supplierId) throws ExecutionException, InterruptedException {
         DocumentReference docRef = getCollection(orgId).document(supplierId);
@@ -160,4 +229,40 @@ public class SupplierRepositoryImpl implements SupplierRepository {
             return Optional.empty();
         }
     }
+
+    @Override
+    public BulkWriteResult saveAll(String organizationId, List<Supplier> suppliers) {
+        CollectionReference collection = getCollection(organizationId);
+        BulkWriteResult result = BulkWriteSupport.setAll(firestore, suppliers, supplier -> collection.document(supplier.getSupplierId()));
+        CollectionMirror<Supplier> current = this.mirror;
+        if (current != null) {
+            for (BulkWriteResult.DocumentOutcome outcome : result.getSucceeded()) {
+                current.put(organizationId, outcome.getDocumentId(), suppliers.get(outcome.getIndex()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public BulkWriteResult deleteAll(String organizationId, List<String> supplierIds) {
+        CollectionReference collection = getCollection(organizationId);
+        List<DocumentReference> refs = supplierIds.stream()
+                .map(collection::document)
+                .collect(Collectors.toList());
+        BulkWriteResult result = BulkWriteSupport.updateAll(firestore, refs, Map.of("status", "INACTIVE"));
+        for (BulkWriteResult.DocumentOutcome outcome : result.getSucceeded()) {
+            markInactiveInMirror(organizationId, outcome.getDocumentId());
+        }
+        return result;
+    }
+
+    /**
+     * Mirrors a soft delete, so this instance reads it without waiting for the listener, as save does.
+     */
+    private void markInactiveInMirror(String organizationId, String supplierId) {
+        CollectionMirror<Supplier> current = this.mirror;
+        if (current != null) {
+            current.update(organizationId, supplierId, supplier -> supplier.toBuilder().status("INACTIVE").build());
+        }
+    }
 }
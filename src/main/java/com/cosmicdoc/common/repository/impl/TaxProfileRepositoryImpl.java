@@ -2,12 +2,23 @@ package com.cosmicdoc.common.repository.impl;
 
 import com.cosmicdoc.common.model.TaxProfile;
 import com.cosmicdoc.common.repository.TaxProfileRepository;
+import com.cosmicdoc.common.repository.cache.BoundedEntityCache;
+import com.cosmicdoc.common.repository.cache.CacheStats;
+import com.cosmicdoc.common.repository.cache.CollectionMirror;
+import com.cosmicdoc.common.repository.cache.DocumentBatchLoader;
+import com.cosmicdoc.common.repository.cache.EntityCache;
+import com.cosmicdoc.common.tax.TaxRateTable;
 import com.google.cloud.firestore.*;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
@@ -20,12 +31,61 @@ import java.util.stream.Collectors;
 
 public class TaxProfileRepositoryImpl implements TaxProfileRepository {
 
+    private static final Duration RATE_TABLE_TTL = Duration.ofMinutes(10);
+    private static final int RATE_TABLE_MAX_ENTRIES = 1_000;
+
     private final Firestore firestore;
 
+    /**
+     * Compiled rate tables keyed by organization ID. Every sale and purchase line needs one,
+     * while tax profiles change rarely.
+     */
+    private EntityCache<TaxRateTable> rateTableCache = new BoundedEntityCache<>("tax_rate_tables", RATE_TABLE_TTL, RATE_TABLE_MAX_ENTRIES);
+
+    /**
+     * Optional listener-backed copy of each organization's tax profiles; null unless enabled.
+     */
+    private volatile CollectionMirror<TaxProfile> mirror;
+
     public TaxProfileRepositoryImpl (Firestore firestore) {
         this.firestore = firestore;
     }
 
+    public void setRateTableCache(EntityCache<TaxRateTable> rateTableCache) {
+        this.rateTableCache = rateTableCache != null ? rateTableCache : EntityCache.disabled();
+    }
+
+    public CacheStats getRateTableCacheStats() {
+        return rateTableCache.stats();
+    }
+
+    /**
+     * Opts in to serving findById and findAllByOrganizationId from an in-process mirror
+     * that a snapshot listener keeps up to date. Organizations are subscribed lazily.
+     *
+     * @param maxOrganizations The number of organizations mirrored at once (least recently used are dropped).
+     * @param maxProfilesPerOrganization Organizations with more tax profiles than this are read directly.
+     */
+    public void enableMirroring(int maxOrganizations, int maxProfilesPerOrganization) {
+        disableMirroring();
+        this.mirror = new CollectionMirror<>("tax_profiles", this::getCollection, TaxProfile.class,
+                maxOrganizations, maxProfilesPerOrganization);
+    }
+
+    @PreDestroy
+    public void disableMirroring() {
+        CollectionMirror<TaxProfile> current = this.mirror;
+        this.mirror = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private Optional<Map<String, TaxProfile>> mirrored(String organizationId) {
+        CollectionMirror<TaxProfile> current = this.mirror;
+        return current != null ? current.documents(organizationId) : Optional.empty();
+    }
+
     /**
      * A private helper method to get a reference to the 'tax_profiles' sub-collection
      * for a specific organization. This ensures all methods use the correct,
@@ -41,6 +101,10 @@ public class TaxProfileRepositoryImpl implements TaxProfileRepository {
      */
     @Override
     public List<TaxProfile> findAllByOrganizationId(String organizationId) {
+        Optional<Map<String, TaxProfile>> mirrored = mirrored(organizationId);
+        if (mirrored.isPresent()) {
+            return new ArrayList<>(mirrored.get().values());
+        }
         try {
             // Get all documents from the specific organization's 'tax_profiles' collection
             var documents = getCollection(organizationId).get().get().getDocuments();
@@ -60,6 +124,11 @@ public class TaxProfileRepositoryImpl implements TaxProfileRepository {
     public TaxProfile save(String organizationId, TaxProfile taxProfile) {
         try {
             getCollection(organizationId).document(taxProfile.getTaxProfileId()).set(taxProfile).get();
+            rateTableCache.invalidate(organizationId);
+            CollectionMirror<TaxProfile> current = this.mirror;
+            if (current != null) {
+                current.put(organizationId, taxProfile.getTaxProfileId(), taxProfile);
+            }
             return taxProfile;
         } catch (InterruptedException | ExecutionException e) {
             throw new RuntimeException("Error saving tax profile: " + taxProfile.getProfileName(), e);
@@ -72,6 +141,10 @@ public class TaxProfileRepositoryImpl implements TaxProfileRepository {
      */
     @Override
     public Optional<TaxProfile> findById(String organizationId, String taxProfileId) {
+        Optional<Map<String, TaxProfile>> mirrored = mirrored(organizationId);
+        if (mirrored.isPresent()) {
+            return Optional.ofNullable(mirrored.get().get(taxProfileId));
+        }
         try {
             // 1. Get a direct reference to the document using the full path context.
             var documentSnapshot = getCollection(organizationId).document(taxProfileId).get().get();
@@ -90,6 +163,16 @@ public class TaxProfileRepositoryImpl implements TaxProfileRepository {
         }
     }
 
+    @Override
+    public CompletableFuture<Optional<TaxProfile>> findById(DocumentBatchLoader loader, String organizationId, String taxProfileId) {
+        Optional<Map<String, TaxProfile>> mirrored = mirrored(organizationId);
+        if (mirrored.isPresent()) {
+            return CompletableFuture.completedFuture(Optional.ofNullable(mirrored.get().get(taxProfileId)));
+        }
+        return loader.load(getCollection(organizationId).document(taxProfileId),
+                snapshot -> snapshot.toObject(TaxProfile.class));
+    }
+
     @Override
     public List<DocumentSnapshot> getAll(Transaction transaction, String orgId, List<String> taxProfileIds) throws ExecutionException, InterruptedException {
         List<DocumentReference> docRefs = taxProfileIds.stream()
@@ -138,10 +221,26 @@ public class TaxProfileRepositoryImpl implements TaxProfileRepository {
         try {
             // Get a direct reference to the document and call the delete() method.
             getCollection(organizationId).document(taxProfileId).delete().get();
+            rateTableCache.invalidate(organizationId);
+            CollectionMirror<TaxProfile> current = this.mirror;
+            if (current != null) {
+                current.remove(organizationId, taxProfileId);
+            }
         } catch (InterruptedException | ExecutionException e) {
             // In a production app, log this exception.
             throw new RuntimeException("Error deleting tax profile with ID: " + taxProfileId, e);
         }
     }
 
+    @Override
+    public TaxRateTable findRateTable(String organizationId) {
+        TaxRateTable cached = rateTableCache.getIfPresent(organizationId);
+        if (cached != null) {
+            return cached;
+        }
+        long token = rateTableCache.invalidationToken(organizationId);
+        TaxRateTable table = TaxRateTable.compile(organizationId, findAllByOrganizationId(organizationId));
+        rateTableCache.putIfNotInvalidated(organizationId, table, token);
+        return table;
+    }
 }
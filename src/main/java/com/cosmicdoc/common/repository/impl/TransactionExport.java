@@ -0,0 +1,461 @@
+package com.cosmicdoc.common.repository.impl;
+
+import com.cosmicdoc.common.model.BatchAllocation;
+import com.cosmicdoc.common.model.Purchase;
+import com.cosmicdoc.common.model.PurchaseItem;
+import com.cosmicdoc.common.model.PurchaseReturn;
+import com.cosmicdoc.common.model.PurchaseReturnItem;
+import com.cosmicdoc.common.model.Sale;
+import com.cosmicdoc.common.model.SaleItem;
+import com.cosmicdoc.common.model.SalesReturn;
+import com.cosmicdoc.common.model.SalesReturnItem;
+import com.cosmicdoc.common.model.TaxComponent;
+import com.cosmicdoc.common.repository.ExportFormat;
+import com.cosmicdoc.common.repository.ExportResult;
+import com.cosmicdoc.common.repository.mapper.PurchaseMapper;
+import com.cosmicdoc.common.repository.mapper.SaleMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams a branch's sales, purchases, sales returns or purchase returns for a date range
+ * into an {@link OutputStream} as CSV or JSON Lines, optionally gzip-compressed.
+ * <p>
+ * Documents are read with {@link PagedQueryIterator} ordered by date and then document ID,
+ * and each document is flattened and written before the next page is consumed, so heap use
+ * is bounded by two pages regardless of the size of the export. Line items become rows:
+ * one per batch allocation for sales, one per item for purchases and returns. Document
+ * columns repeat on every row of the document, so sum document totals over distinct ids only.
+ * <p>
+ * Dates are UTC days, like {@code SaleRepository.findAllByBranchIdAndDate}; both ends of the
+ * range are inclusive. The caller's stream is flushed but not closed.
+ */
+public class TransactionExport {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Firestore firestore;
+    private final int pageSize;
+
+    public TransactionExport(Firestore firestore) {
+        this(firestore, PagedQueryIterator.DEFAULT_PAGE_SIZE);
+    }
+
+    public TransactionExport(Firestore firestore, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        this.firestore = firestore;
+        this.pageSize = pageSize;
+    }
+
+    public ExportResult exportSales(String orgId, String branchId, LocalDate from, LocalDate to,
+                                    ExportFormat format, boolean gzip, OutputStream out) throws IOException {
+        return export(branchCollection(orgId, branchId, "sales"), "saleDate", from, to,
+                SaleMapper.INSTANCE::fromSnapshot, TransactionExport::saleRows, SALE_COLUMNS, format, gzip, out);
+    }
+
+    public ExportResult exportPurchases(String orgId, String branchId, LocalDate from, LocalDate to,
+                                        ExportFormat format, boolean gzip, OutputStream out) throws IOException {
+        return export(branchCollection(orgId, branchId, "purchases"), "invoiceDate", from, to,
+                PurchaseMapper.INSTANCE::fromSnapshot, purchase -> rows(purchase, purchase.getItems()),
+                PURCHASE_COLUMNS, format, gzip, out);
+    }
+
+    public ExportResult exportSalesReturns(String orgId, String branchId, LocalDate from, LocalDate to,
+                                           ExportFormat format, boolean gzip, OutputStream out) throws IOException {
+        return export(branchCollection(orgId, branchId, "sales_returns"), "returnDate", from, to,
+                doc -> doc.toObject(SalesReturn.class), salesReturn -> rows(salesReturn, salesReturn.getItems()),
+                SALES_RETURN_COLUMNS, format, gzip, out);
+    }
+
+    public ExportResult exportPurchaseReturns(String orgId, String branchId, LocalDate from, LocalDate to,
+                                              ExportFormat format, boolean gzip, OutputStream out) throws IOException {
+        return export(branchCollection(orgId, branchId, "purchase_returns"), "returnDate", from, to,
+                doc -> doc.toObject(PurchaseReturn.class), purchaseReturn -> rows(purchaseReturn, purchaseReturn.getItems()),
+                PURCHASE_RETURN_COLUMNS, format, gzip, out);
+    }
+
+    private <T, R> ExportResult export(CollectionReference collection, String dateField, LocalDate from, LocalDate to,
+                                       Function<? super QueryDocumentSnapshot, T> mapper, Function<T, List<R>> flatten,
+                                       List<Column<R>> columns, ExportFormat format, boolean gzip,
+                                       OutputStream out) throws IOException {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Export range ends before it starts: " + from + " to " + to);
+        }
+        Query query = collection
+                .whereGreaterThanOrEqualTo(dateField, startOfDay(from))
+                .whereLessThan(dateField, startOfDay(to.plusDays(1)))
+                .orderBy(dateField)
+                .orderBy(FieldPath.documentId());
+
+        OutputStream target = new NonClosingOutputStream(out);
+        long documents = 0;
+        long rows = 0;
+        // Closing the writer chain finishes the gzip trailer but leaves the caller's stream open
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                gzip ? new GZIPOutputStream(target, BUFFER_SIZE) : target, StandardCharsets.UTF_8), BUFFER_SIZE);
+             Stream<T> stream = PagedQueryIterator.stream(query, pageSize, mapper);
+             RowWriter rowWriter = format == ExportFormat.CSV ? new CsvRowWriter(writer) : new JsonLinesRowWriter(writer)) {
+            rowWriter.start(columns);
+            Iterator<T> iterator = stream.iterator();
+            Object[] values = new Object[columns.size()];
+            while (iterator.hasNext()) {
+                documents++;
+                for (R row : flatten.apply(iterator.next())) {
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = columns.get(i).value().apply(row);
+                    }
+                    rowWriter.write(values);
+                    rows++;
+                }
+            }
+        }
+        out.flush();
+        return new ExportResult(documents, rows);
+    }
+
+    private CollectionReference branchCollection(String orgId, String branchId, String name) {
+        return firestore.collection("organizations").document(orgId)
+                .collection("branches").document(branchId)
+                .collection(name);
+    }
+
+    private static Timestamp startOfDay(LocalDate date) {
+        return Timestamp.of(Date.from(date.atStartOfDay().toInstant(ZoneOffset.UTC)));
+    }
+
+    // --- Flattening ---
+
+    /** A document paired with one of its line items (null for a document without items). */
+    private record Line<D, I>(D document, int lineNo, I item) {
+    }
+
+    private record SaleLine(Sale sale, int lineNo, SaleItem item, BatchAllocation allocation) {
+    }
+
+    private static <D, I> List<Line<D, I>> rows(D document, List<I> items) {
+        if (items == null || items.isEmpty()) {
+            return List.of(new Line<>(document, 0, null));
+        }
+        List<Line<D, I>> lines = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            lines.add(new Line<>(document, i + 1, items.get(i)));
+        }
+        return lines;
+    }
+
+    private static List<SaleLine> saleRows(Sale sale) {
+        List<SaleLine> lines = new ArrayList<>();
+        List<SaleItem> items = sale.getItems() != null ? sale.getItems() : List.of();
+        for (int i = 0; i < items.size(); i++) {
+            SaleItem item = items.get(i);
+            if (item.getBatchAllocations() == null || item.getBatchAllocations().isEmpty()) {
+                lines.add(new SaleLine(sale, i + 1, item, null));
+            } else {
+                for (BatchAllocation allocation : item.getBatchAllocations()) {
+                    lines.add(new SaleLine(sale, i + 1, item, allocation));
+                }
+            }
+        }
+        if (lines.isEmpty()) {
+            lines.add(new SaleLine(sale, 0, null, null));
+        }
+        return lines;
+    }
+
+    /** Rate of the named component (CGST, SGST, IGST), or null when the item does not carry it. */
+    private static Double taxRate(PurchaseItem item, String name) {
+        if (item.getTaxComponents() == null) {
+            return null;
+        }
+        for (TaxComponent component : item.getTaxComponents()) {
+            if (name.equalsIgnoreCase(component.getName())) {
+                return component.getRate();
+            }
+        }
+        return null;
+    }
+
+    /** Components other than CGST/SGST/IGST as "NAME:rate" pairs separated by '|'. */
+    private static String otherTaxComponents(PurchaseItem item) {
+        if (item.getTaxComponents() == null) {
+            return null;
+        }
+        String others = item.getTaxComponents().stream()
+                .filter(component -> !List.of("CGST", "SGST", "IGST").contains(
+                        component.getName() == null ? "" : component.getName().toUpperCase()))
+                .map(component -> component.getName() + ":" + component.getRate())
+                .collect(Collectors.joining("|"));
+        return others.isEmpty() ? null : others;
+    }
+
+    // --- Columns ---
+
+    private record Column<R>(String name, Function<R, Object> value) {
+
+        /** A column read from a part of the row that may be absent. */
+        static <R, P> Column<R> of(String name, Function<R, P> part, Function<P, Object> getter) {
+            return new Column<>(name, row -> {
+                P value = part.apply(row);
+                return value == null ? null : getter.apply(value);
+            });
+        }
+    }
+
+    private static final List<Column<SaleLine>> SALE_COLUMNS = List.of(
+            Column.of("saleId", SaleLine::sale, Sale::getSaleId),
+            Column.of("saleDate", SaleLine::sale, Sale::getSaleDate),
+            Column.of("saleType", SaleLine::sale, Sale::getSaleType),
+            Column.of("patientId", SaleLine::sale, Sale::getPatientId),
+            Column.of("doctorName", SaleLine::sale, Sale::getDoctorName),
+            Column.of("walkInCustomerName", SaleLine::sale, Sale::getWalkInCustomerName),
+            Column.of("paymentMode", SaleLine::sale, Sale::getPaymentMode),
+            Column.of("gstType", SaleLine::sale, Sale::getGstType),
+            Column.of("totalTaxableAmount", SaleLine::sale, Sale::getTotalTaxableAmount),
+            Column.of("totalTaxAmount", SaleLine::sale, Sale::getTotalTaxAmount),
+            Column.of("totalDiscountAmount", SaleLine::sale, Sale::getTotalDiscountAmount),
+            Column.of("grandTotal", SaleLine::sale, Sale::getGrandTotal),
+            new Column<>("lineNo", SaleLine::lineNo),
+            Column.of("medicineId", SaleLine::item, SaleItem::getMedicineId),
+            Column.of("quantity", SaleLine::item, SaleItem::getQuantity),
+            Column.of("mrpPerItem", SaleLine::item, SaleItem::getMrpPerItem),
+            Column.of("salePrice", SaleLine::item, SaleItem::getSalePrice),
+            Column.of("discountPercentage", SaleLine::item, SaleItem::getDiscountPercentage),
+            Column.of("lineItemDiscountAmount", SaleLine::item, SaleItem::getLineItemDiscountAmount),
+            Column.of("lineItemTaxableAmount", SaleLine::item, SaleItem::getLineItemTaxableAmount),
+            Column.of("taxProfileId", SaleLine::item, SaleItem::getTaxProfileId),
+            Column.of("taxRateApplied", SaleLine::item, SaleItem::getTaxRateApplied),
+            Column.of("taxAmount", SaleLine::item, SaleItem::getTaxAmount),
+            Column.of("lineItemTotalAmount", SaleLine::item, SaleItem::getLineItemTotalAmount),
+            Column.of("batchId", SaleLine::allocation, BatchAllocation::getBatchId),
+            Column.of("batchNo", SaleLine::allocation, BatchAllocation::getBatchNo),
+            Column.of("expiryDate", SaleLine::allocation, BatchAllocation::getExpiryDate),
+            Column.of("quantityTaken", SaleLine::allocation, BatchAllocation::getQuantityTaken));
+
+    private static final List<Column<Line<Purchase, PurchaseItem>>> PURCHASE_COLUMNS = List.of(
+            Column.of("purchaseId", Line::document, Purchase::getPurchaseId),
+            Column.of("invoiceDate", Line::document, Purchase::getInvoiceDate),
+            Column.of("referenceId", Line::document, Purchase::getReferenceId),
+            Column.of("supplierId", Line::document, Purchase::getSupplierId),
+            Column.of("supplierName", Line::document, Purchase::getSupplierName),
+            Column.of("gstType", Line::document, Purchase::getGstType),
+            Column.of("paymentStatus", Line::document, Purchase::getPaymentStatus),
+            Column.of("totalTaxableAmount", Line::document, Purchase::getTotalTaxableAmount),
+            Column.of("totalDiscountAmount", Line::document, Purchase::getTotalDiscountAmount),
+            Column.of("totalTaxAmount", Line::document, Purchase::getTotalTaxAmount),
+            Column.of("totalAmount", Line::document, Purchase::getTotalAmount),
+            Column.of("amountPaid", Line::document, Purchase::getAmountPaid),
+            Column.of("dueAmount", Line::document, Purchase::getDueAmount),
+            new Column<>("lineNo", Line::lineNo),
+            Column.of("medicineId", Line::item, PurchaseItem::getMedicineId),
+            Column.of("medicineName", Line::item, PurchaseItem::getMedicineName),
+            Column.of("batchNo", Line::item, PurchaseItem::getBatchNo),
+            Column.of("expiryDate", Line::item, PurchaseItem::getExpiryDate),
+            Column.of("packQuantity", Line::item, PurchaseItem::getPackQuantity),
+            Column.of("freePackQuantity", Line::item, PurchaseItem::getFreePackQuantity),
+            Column.of("itemsPerPack", Line::item, PurchaseItem::getItemsPerPack),
+            Column.of("totalReceivedQuantity", Line::item, PurchaseItem::getTotalReceivedQuantity),
+            Column.of("purchaseCostPerPack", Line::item, PurchaseItem::getPurchaseCostPerPack),
+            Column.of("mrpPerItem", Line::item, PurchaseItem::getMrpPerItem),
+            Column.of("discountPercentage", Line::item, PurchaseItem::getDiscountPercentage),
+            Column.of("lineItemDiscountAmount", Line::item, PurchaseItem::getLineItemDiscountAmount),
+            Column.of("lineItemTaxableAmount", Line::item, PurchaseItem::getLineItemTaxableAmount),
+            Column.of("taxProfileId", Line::item, PurchaseItem::getTaxProfileId),
+            Column.of("taxRateApplied", Line::item, PurchaseItem::getTaxRateApplied),
+            Column.of("cgstRate", Line::item, item -> taxRate(item, "CGST")),
+            Column.of("sgstRate", Line::item, item -> taxRate(item, "SGST")),
+            Column.of("igstRate", Line::item, item -> taxRate(item, "IGST")),
+            Column.of("otherTaxComponents", Line::item, TransactionExport::otherTaxComponents),
+            Column.of("lineItemTaxAmount", Line::item, PurchaseItem::getLineItemTaxAmount),
+            Column.of("lineItemTotalAmount", Line::item, PurchaseItem::getLineItemTotalAmount));
+
+    private static final List<Column<Line<SalesReturn, SalesReturnItem>>> SALES_RETURN_COLUMNS = List.of(
+            Column.of("salesReturnId", Line::document, SalesReturn::getSalesReturnId),
+            Column.of("returnDate", Line::document, SalesReturn::getReturnDate),
+            Column.of("originalSaleId", Line::document, SalesReturn::getOriginalSaleId),
+            Column.of("patientId", Line::document, SalesReturn::getPatientId),
+            Column.of("refundMode", Line::document, SalesReturn::getRefundMode),
+            Column.of("refundReference", Line::document, SalesReturn::getRefundReference),
+            Column.of("totalReturnedMrp", Line::document, SalesReturn::getTotalReturnedMrp),
+            Column.of("totalReturnedDiscount", Line::document, SalesReturn::getTotalReturnedDiscount),
+            Column.of("totalReturnedTaxable", Line::document, SalesReturn::getTotalReturnedTaxable),
+            Column.of("totalReturnedTax", Line::document, SalesReturn::getTotalReturnedTax),
+            Column.of("overallDiscountAmount", Line::document, SalesReturn::getOverallDiscountAmount),
+            Column.of("netRefundAmount", Line::document, SalesReturn::getNetRefundAmount),
+            new Column<>("lineNo", Line::lineNo),
+            Column.of("medicineId", Line::item, SalesReturnItem::getMedicineId),
+            Column.of("batchNo", Line::item, SalesReturnItem::getBatchNo),
+            Column.of("returnQuantity", Line::item, SalesReturnItem::getReturnQuantity),
+            Column.of("returnPrice", Line::item, SalesReturnItem::getReturnPrice),
+            Column.of("mrpAtTimeOfSale", Line::item, SalesReturnItem::getMrpAtTimeOfSale),
+            Column.of("discountPercentageAtSale", Line::item, SalesReturnItem::getDiscountPercentageAtSale),
+            Column.of("lineItemReturnValue", Line::item, SalesReturnItem::getLineItemReturnValue),
+            Column.of("lineItemTaxAmount", Line::item, SalesReturnItem::getLineItemTaxAmount));
+
+    private static final List<Column<Line<PurchaseReturn, PurchaseReturnItem>>> PURCHASE_RETURN_COLUMNS = List.of(
+            Column.of("purchaseReturnId", Line::document, PurchaseReturn::getPurchaseReturnId),
+            Column.of("returnDate", Line::document, PurchaseReturn::getReturnDate),
+            Column.of("originalPurchaseId", Line::document, PurchaseReturn::getOriginalPurchaseId),
+            Column.of("supplierId", Line::document, PurchaseReturn::getSupplierId),
+            Column.of("supplierName", Line::document, PurchaseReturn::getSupplierName),
+            Column.of("reason", Line::document, PurchaseReturn::getReason),
+            Column.of("totalReturnedAmount", Line::document, PurchaseReturn::getTotalReturnedAmount),
+            new Column<>("lineNo", Line::lineNo),
+            Column.of("medicineId", Line::item, PurchaseReturnItem::getMedicineId),
+            Column.of("batchNo", Line::item, PurchaseReturnItem::getBatchNo),
+            Column.of("returnQuantity", Line::item, PurchaseReturnItem::getReturnQuantity),
+            Column.of("costAtTimeOfPurchase", Line::item, PurchaseReturnItem::getCostAtTimeOfPurchase),
+            Column.of("lineItemReturnValue", Line::item, PurchaseReturnItem::getLineItemReturnValue));
+
+    // --- Writers ---
+
+    private interface RowWriter extends AutoCloseable {
+        void start(List<? extends Column<?>> columns) throws IOException;
+
+        void write(Object[] values) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void start(List<? extends Column<?>> columns) throws IOException {
+            Object[] header = columns.stream().map(Column::name).toArray();
+            write(header);
+        }
+
+        @Override
+        public void write(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                String text = text(values[i]);
+                if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+                    writer.write('"');
+                    writer.write(text.replace("\"", "\"\""));
+                    writer.write('"');
+                } else {
+                    writer.write(text);
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        private static String text(Object value) {
+            if (value == null) {
+                return "";
+            }
+            if (value instanceof Double number) {
+                // Avoid scientific notation such as 1.0E7 for large amounts
+                return BigDecimal.valueOf(number).stripTrailingZeros().toPlainString();
+            }
+            if (value instanceof Timestamp timestamp) {
+                return timestamp.toDate().toInstant().toString();
+            }
+            if (value instanceof Enum<?> constant) {
+                return constant.name();
+            }
+            return value.toString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private static final class JsonLinesRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+        private String[] names;
+
+        JsonLinesRowWriter(Writer writer) throws IOException {
+            this.generator = new JsonFactory().createGenerator(writer)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void start(List<? extends Column<?>> columns) {
+            names = columns.stream().map(Column::name).toArray(String[]::new);
+        }
+
+        @Override
+        public void write(Object[] values) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < values.length; i++) {
+                Object value = values[i];
+                generator.writeFieldName(names[i]);
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof Double number) {
+                    generator.writeNumber(number);
+                } else if (value instanceof Integer number) {
+                    generator.writeNumber(number);
+                } else if (value instanceof Timestamp timestamp) {
+                    generator.writeString(timestamp.toDate().toInstant().toString());
+                } else if (value instanceof Enum<?> constant) {
+                    generator.writeString(constant.name());
+                } else {
+                    generator.writeString(value.toString());
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+
+    /** Lets the writer chain be closed (finishing gzip) without closing the caller's stream. */
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -1,20 +1,24 @@
 package com.cosmicdoc.common.repository.impl;
 
 import com.cosmicdoc.common.model.Users;
-import com.cosmicdoc.common.model.UserStatus;
 import com.cosmicdoc.common.repository.UsersRepository;
+import com.cosmicdoc.common.repository.cache.SingleFlight;
+import com.cosmicdoc.common.repository.cache.SingleFlightStats;
+import com.cosmicdoc.common.repository.mapper.UsersMapper;
 import com.google.cloud.firestore.CollectionReference;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.WriteBatch;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
-import java.util.List;
 import java.util.Optional;
 
 @Repository
 public class UsersRepositoryImpl extends BaseRepositoryImpl<Users,String> implements UsersRepository {
 
+    private final SingleFlight<Optional<Users>> findByEmailFlight = new SingleFlight<>("Users.findByEmail");
+
    public UsersRepositoryImpl (Firestore firestore) {
         super();
         this.firestore = firestore;
@@ -26,8 +30,19 @@ public class UsersRepositoryImpl extends BaseRepositoryImpl<Users,String> implem
     }
 
 
+    /**
+     * Concurrent logins with the same email (e.g. when a clinic opens) share one query.
+     */
     @Override
     public Optional<Users> findByEmail(String email) {
+        return findByEmailFlight.execute(email, () -> loadByEmail(email));
+    }
+
+    public SingleFlightStats getFindByEmailFlightStats() {
+        return findByEmailFlight.stats();
+    }
+
+    private Optional<Users> loadByEmail(String email) {
         try {
             System.out.println("DEBUG: Starting findByEmail with email: " + email);
             
@@ -47,83 +62,11 @@ public class UsersRepositoryImpl extends BaseRepositoryImpl<Users,String> implem
             if (!documents.isEmpty()) {
                 System.out.println("DEBUG: Found user document by email");
                 
-                // Manual conversion to avoid type mismatch errors
+                // Reflection-free conversion that also tolerates legacy field names
                 var doc = documents.get(0);
                 System.out.println("DEBUG: Document ID: " + doc.getId());
-                
-                var userData = doc.getData();
-                System.out.println("DEBUG: Document data keys: " + String.join(", ", userData.keySet()));
-                
-                Users user = new Users();
-                user.setUserId(doc.getId());
-                System.out.println("DEBUG: Set userId: " + doc.getId());
-                
-                // Email
-                if (userData.get("email") != null) {
-                    user.setEmail((String) userData.get("email"));
-                    System.out.println("DEBUG: Set email: " + userData.get("email"));
-                } else {
-                    System.out.println("DEBUG: No email field in document");
-                }
-                
-                // Hashed Password - try multiple possible field names
-                if (userData.get("hashedPassword") != null) {
-                    user.setHashedPassword((String) userData.get("hashedPassword"));
-                    System.out.println("DEBUG: Password hash present as 'hashedPassword'");
-                } else if (userData.get("password_hash") != null) {
-                    user.setHashedPassword((String) userData.get("password_hash"));
-                    System.out.println("DEBUG: Password hash present as 'password_hash'");
-                } else if (userData.get("passwordHash") != null) {
-                    user.setHashedPassword((String) userData.get("passwordHash"));
-                    System.out.println("DEBUG: Password hash present as 'passwordHash'");
-                } else {
-                    System.out.println("DEBUG: No password hash field found in document under any known name");
-                }
-                
-                // Display Name
-                if (userData.get("displayName") != null) {
-                    user.setDisplayName((String) userData.get("displayName"));
-                    System.out.println("DEBUG: Set displayName: " + userData.get("displayName"));
-                }
-                
-                // Mobile
-                if (userData.get("mobileNumber") != null) {
-                    user.setMobileNumber((String) userData.get("mobileNumber"));
-                    System.out.println("DEBUG: Set mobileNumber: " + userData.get("mobileNumber"));
-                }
-                
-                // Handle status enum
-                if (userData.get("status") != null) {
-                    String statusStr = userData.get("status").toString();
-                    System.out.println("DEBUG: Raw status value: " + statusStr);
-                    
-                    try {
-                        user.setStatus(UserStatus.valueOf(statusStr));
-                        System.out.println("DEBUG: Set status to: " + statusStr);
-                    } catch (IllegalArgumentException ex) {
-                        System.out.println("DEBUG: Invalid status value, defaulting to PENDING_VERIFICATION");
-                        user.setStatus(UserStatus.PENDING_VERIFICATION); 
-                    }
-                } else {
-                    System.out.println("DEBUG: No status field in document, defaulting to PENDING_VERIFICATION");
-                    user.setStatus(UserStatus.PENDING_VERIFICATION);
-                }
-                
-                // Handle organizations list
-                if (userData.get("organizations") != null) {
-                    try {
-                        @SuppressWarnings("unchecked")
-                        List<String> orgs = (List<String>) userData.get("organizations");
-                        user.setOrganizations(orgs);
-                        System.out.println("DEBUG: Set organizations: " + orgs.size() + " orgs");
-                    } catch (ClassCastException e) {
-                        System.out.println("DEBUG: Error casting organizations field: " + e.getMessage());
-                        user.setOrganizations(List.of());
-                    }
-                } else {
-                    System.out.println("DEBUG: No organizations field in document");
-                    user.setOrganizations(List.of()); // Empty list
-                }
+
+                Users user = UsersMapper.INSTANCE.fromSnapshot(doc);
                 
                 System.out.println("DEBUG: Successfully mapped user data");
                 return Optional.of(user);
@@ -160,7 +103,7 @@ public class UsersRepositoryImpl extends BaseRepositoryImpl<Users,String> implem
                 
                 if (!documents.isEmpty()) {
                     System.out.println("DEBUG: Found user document by mobile");
-                    return Optional.ofNullable(documents.get(0).toObject(Users.class));
+                    return Optional.ofNullable(toEntity(documents.get(0)));
                 }
             } catch (java.util.concurrent.TimeoutException e) {
                 System.err.println("DEBUG: Timeout when querying Firestore: " + e.getMessage());
@@ -183,6 +126,7 @@ public class UsersRepositoryImpl extends BaseRepositoryImpl<Users,String> implem
     public void saveInTransaction(WriteBatch batch, Users user) {
         var docRef = getCollection().document(user.getUserId());
         batch.set(docRef, user);
+        evictFromCache(user.getUserId());
     }
 
     @Override
@@ -193,7 +137,9 @@ public class UsersRepositoryImpl extends BaseRepositoryImpl<Users,String> implem
 
             // Create a map which we don't
             // need to wait for, making the sign-in process faster.
-            docRef.update("lastLoginAt", new Timestamp(System.currentTimeMillis()));
+            docRef.update("lastLoginAt", new Timestamp(System.currentTimeMillis()))
+                    .addListener(() -> evictFromCache(userId), MoreExecutors.directExecutor());
+            evictFromCache(userId);
 
         } catch (Exception e) {
             throw new RuntimeException("Error while update the timestamp");
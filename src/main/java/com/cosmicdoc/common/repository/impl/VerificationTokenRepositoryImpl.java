@@ -32,11 +32,13 @@ public class VerificationTokenRepositoryImpl extends BaseRepositoryImpl<Verifica
     public void deleteInTransaction(WriteBatch batch, String token) {
         var docRef = getCollection().document(token);
         batch.delete(docRef);
+        evictFromCache(token);
     }
 
     @Override
     public void saveInTransaction(WriteBatch batch, VerificationToken verificationToken) {
         var docRef = getCollection().document(verificationToken.getUserId());
         batch.set(docRef, verificationToken);
+        evictFromCache(verificationToken.getUserId());
     }
 }
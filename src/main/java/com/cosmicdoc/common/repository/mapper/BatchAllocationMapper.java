@@ -0,0 +1,40 @@
+package com.cosmicdoc.common.repository.mapper;
+
+import com.cosmicdoc.common.model.BatchAllocation;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getInt;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getString;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getTimestamp;
+
+/**
+ * Reflection-free mapping for nested BatchAllocation values.
+ */
+public final class BatchAllocationMapper implements DocumentMapper<BatchAllocation> {
+
+    public static final BatchAllocationMapper INSTANCE = new BatchAllocationMapper();
+
+    private BatchAllocationMapper() {}
+
+    @Override
+    public Map<String, Object> toMap(BatchAllocation entity) {
+        Map<String, Object> data = new HashMap<>(6);
+        data.put("batchId", entity.getBatchId());
+        data.put("batchNo", entity.getBatchNo());
+        data.put("quantityTaken", entity.getQuantityTaken());
+        data.put("expiryDate", entity.getExpiryDate());
+        return data;
+    }
+
+    @Override
+    public BatchAllocation fromMap(String documentId, Map<String, Object> data) {
+        return BatchAllocation.builder()
+                .batchId(getString(data, "batchId"))
+                .batchNo(getString(data, "batchNo"))
+                .quantityTaken(getInt(data, "quantityTaken"))
+                .expiryDate(getTimestamp(data, "expiryDate"))
+                .build();
+    }
+}
@@ -0,0 +1,33 @@
+package com.cosmicdoc.common.repository.mapper;
+
+import com.google.cloud.firestore.DocumentSnapshot;
+
+import java.util.Map;
+
+/**
+ * Converts a model class to and from the plain map Firestore stores, without the
+ * reflection {@code DocumentSnapshot.toObject(Class)} and POJO serialization use.
+ * <p>
+ * Implementations must produce exactly the field names and value types that Firestore's
+ * own POJO mapping produces, so documents written either way stay interchangeable.
+ */
+public interface DocumentMapper<T> {
+
+    /**
+     * @return The document data; the {@code @DocumentId} field is not included, as with POJO writes.
+     */
+    Map<String, Object> toMap(T entity);
+
+    /**
+     * @param documentId The ID to place in the {@code @DocumentId} field, or null for nested values.
+     */
+    T fromMap(String documentId, Map<String, Object> data);
+
+    /**
+     * @return The mapped entity, or null if the document does not exist.
+     */
+    default T fromSnapshot(DocumentSnapshot snapshot) {
+        Map<String, Object> data = snapshot.getData();
+        return data != null ? fromMap(snapshot.getId(), data) : null;
+    }
+}
@@ -0,0 +1,27 @@
+package com.cosmicdoc.common.repository.mapper;
+
+import com.cosmicdoc.common.model.Purchase;
+import com.cosmicdoc.common.model.Sale;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Registry of the reflection-free mappers, used by repositories to decide between a
+ * dedicated mapper and Firestore's reflective {@code toObject}. Only mappers that decode
+ * exactly like {@code toObject} are registered; {@link UsersMapper} is not.
+ */
+public final class DocumentMappers {
+
+    private static final Map<Class<?>, DocumentMapper<?>> MAPPERS = Map.of(
+            Sale.class, SaleMapper.INSTANCE,
+            Purchase.class, PurchaseMapper.INSTANCE
+    );
+
+    private DocumentMappers() {}
+
+    @SuppressWarnings("unchecked")
+    public static <T> Optional<DocumentMapper<T>> find(Class<T> type) {
+        return Optional.ofNullable((DocumentMapper<T>) MAPPERS.get(type));
+    }
+}
@@ -0,0 +1,71 @@
+package com.cosmicdoc.common.repository.mapper;
+
+import com.google.cloud.Timestamp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typed accessors shared by the hand-written mappers. They coerce values the same way
+ * Firestore's POJO mapping does: integers come back as Long, whole doubles may come back
+ * as Long, and missing primitive fields default to zero.
+ */
+final class MapperSupport {
+
+    private MapperSupport() {}
+
+    static String getString(Map<String, Object> data, String field) {
+        Object value = data.get(field);
+        return value != null ? value.toString() : null;
+    }
+
+    static int getInt(Map<String, Object> data, String field) {
+        Object value = data.get(field);
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+
+    static double getDouble(Map<String, Object> data, String field) {
+        Object value = data.get(field);
+        return value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+    }
+
+    static Timestamp getTimestamp(Map<String, Object> data, String field) {
+        Object value = data.get(field);
+        return value instanceof Timestamp ? (Timestamp) value : null;
+    }
+
+    static <E extends Enum<E>> E getEnum(Map<String, Object> data, String field, Class<E> type) {
+        Object value = data.get(field);
+        return value != null ? Enum.valueOf(type, value.toString()) : null;
+    }
+
+    static String enumName(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> List<T> getList(Map<String, Object> data, String field, DocumentMapper<T> elementMapper) {
+        Object value = data.get(field);
+        if (!(value instanceof List)) {
+            return null;
+        }
+        List<Object> raw = (List<Object>) value;
+        List<T> result = new ArrayList<>(raw.size());
+        for (Object element : raw) {
+            result.add(element instanceof Map ? elementMapper.fromMap(null, (Map<String, Object>) element) : null);
+        }
+        return result;
+    }
+
+    static <T> List<Map<String, Object>> toMaps(List<T> values, DocumentMapper<T> elementMapper) {
+        if (values == null) {
+            return null;
+        }
+        List<Map<String, Object>> result = new ArrayList<>(values.size());
+        for (T value : values) {
+            result.add(value != null ? elementMapper.toMap(value) : null);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,60 @@
+package com.cosmicdoc.common.repository.mapper;
+
+import com.cosmicdoc.common.model.Money;
+
+import java.math.BigDecimal;
+
+/**
+ * Firestore representation of {@link Money}: a whole number of paise stored as an integer,
+ * so stored amounts are exact and can still be summed with {@code FieldValue.increment}.
+ * <p>
+ * The existing money fields (the {@code double} amounts of Sale, Purchase and friends) hold rupees,
+ * and clients may have written whole amounts there as integers, so an integer means paise in a
+ * Money field but rupees in a legacy field. Read legacy fields with {@link #decodeLegacy(Object)}.
+ */
+public final class MoneyCodec {
+
+    private MoneyCodec() {}
+
+    /**
+     * @return The amount in paise, or null for a null amount. Finer scales are rounded half up.
+     */
+    public static Long encode(Money money) {
+        return money != null ? money.toPaise() : null;
+    }
+
+    /**
+     * Reads a field written by {@link #encode(Money)}. Doubles and decimal strings are read as rupees.
+     *
+     * @return The decoded amount, or null if the value is absent or not a money representation.
+     */
+    public static Money decode(Object value) {
+        if (value instanceof Long || value instanceof Integer) {
+            return Money.ofPaise(((Number) value).longValue());
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return Money.of(((Number) value).doubleValue());
+        }
+        if (value instanceof BigDecimal) {
+            return Money.of((BigDecimal) value);
+        }
+        if (value instanceof String) {
+            try {
+                return Money.parse((String) value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads a legacy rupee amount (any number or decimal string), rounding half up to paise.
+     */
+    public static Money decodeLegacy(Object value) {
+        if (value instanceof Long || value instanceof Integer) {
+            return Money.of(BigDecimal.valueOf(((Number) value).longValue()));
+        }
+        return decode(value);
+    }
+}
@@ -0,0 +1,73 @@
+package com.cosmicdoc.common.repository.mapper;
+
+import com.cosmicdoc.common.model.PurchaseItem;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getDouble;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getInt;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getList;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getString;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getTimestamp;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.toMaps;
+
+/**
+ * Reflection-free mapping for nested PurchaseItem values.
+ */
+public final class PurchaseItemMapper implements DocumentMapper<PurchaseItem> {
+
+    public static final PurchaseItemMapper INSTANCE = new PurchaseItemMapper();
+
+    private PurchaseItemMapper() {}
+
+    @Override
+    public Map<String, Object> toMap(PurchaseItem entity) {
+        Map<String, Object> data = new HashMap<>(26);
+        data.put("medicineId", entity.getMedicineId());
+        data.put("medicineName", entity.getMedicineName());
+        data.put("batchNo", entity.getBatchNo());
+        data.put("expiryDate", entity.getExpiryDate());
+        data.put("packQuantity", entity.getPackQuantity());
+        data.put("freePackQuantity", entity.getFreePackQuantity());
+        data.put("itemsPerPack", entity.getItemsPerPack());
+        data.put("totalReceivedQuantity", entity.getTotalReceivedQuantity());
+        data.put("purchaseCostPerPack", entity.getPurchaseCostPerPack());
+        data.put("discountPercentage", entity.getDiscountPercentage());
+        data.put("lineItemDiscountAmount", entity.getLineItemDiscountAmount());
+        data.put("lineItemTaxableAmount", entity.getLineItemTaxableAmount());
+        data.put("lineItemTaxAmount", entity.getLineItemTaxAmount());
+        data.put("lineItemTotalAmount", entity.getLineItemTotalAmount());
+        data.put("mrpPerItem", entity.getMrpPerItem());
+        data.put("createdBatchId", entity.getCreatedBatchId());
+        data.put("taxProfileId", entity.getTaxProfileId());
+        data.put("taxRateApplied", entity.getTaxRateApplied());
+        data.put("taxComponents", toMaps(entity.getTaxComponents(), TaxComponentMapper.INSTANCE));
+        return data;
+    }
+
+    @Override
+    public PurchaseItem fromMap(String documentId, Map<String, Object> data) {
+        return PurchaseItem.builder()
+                .medicineId(getString(data, "medicineId"))
+                .medicineName(getString(data, "medicineName"))
+                .batchNo(getString(data, "batchNo"))
+                .expiryDate(getTimestamp(data, "expiryDate"))
+                .packQuantity(getInt(data, "packQuantity"))
+                .freePackQuantity(getInt(data, "freePackQuantity"))
+                .itemsPerPack(getInt(data, "itemsPerPack"))
+                .totalReceivedQuantity(getInt(data, "totalReceivedQuantity"))
+                .purchaseCostPerPack(getDouble(data, "purchaseCostPerPack"))
+                .discountPercentage(getDouble(data, "discountPercentage"))
+                .lineItemDiscountAmount(getDouble(data, "lineItemDiscountAmount"))
+                .lineItemTaxableAmount(getDouble(data, "lineItemTaxableAmount"))
+                .lineItemTaxAmount(getDouble(data, "lineItemTaxAmount"))
+                .lineItemTotalAmount(getDouble(data, "lineItemTotalAmount"))
+                .mrpPerItem(getDouble(data, "mrpPerItem"))
+                .createdBatchId(getString(data, "createdBatchId"))
+                .taxProfileId(getString(data, "taxProfileId"))
+                .taxRateApplied(getDouble(data, "taxRateApplied"))
+                .taxComponents(getList(data, "taxComponents", TaxComponentMapper.INSTANCE))
+                .build();
+    }
+}
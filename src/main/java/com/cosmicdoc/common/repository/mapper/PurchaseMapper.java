@@ -0,0 +1,80 @@
+package com.cosmicdoc.common.repository.mapper;
+
+import com.cosmicdoc.common.model.AdjustmentType;
+import com.cosmicdoc.common.model.GstType;
+import com.cosmicdoc.common.model.PaymentStatus;
+import com.cosmicdoc.common.model.Purchase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.enumName;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getDouble;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getEnum;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getList;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getString;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getTimestamp;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.toMaps;
+
+/**
+ * Reflection-free mapping for Purchase documents and their line items.
+ */
+public final class PurchaseMapper implements DocumentMapper<Purchase> {
+
+    public static final PurchaseMapper INSTANCE = new PurchaseMapper();
+
+    private PurchaseMapper() {}
+
+    @Override
+    public Map<String, Object> toMap(Purchase entity) {
+        Map<String, Object> data = new HashMap<>(27);
+        data.put("organizationId", entity.getOrganizationId());
+        data.put("branchId", entity.getBranchId());
+        data.put("supplierId", entity.getSupplierId());
+        data.put("supplierName", entity.getSupplierName());
+        data.put("invoiceDate", entity.getInvoiceDate());
+        data.put("referenceId", entity.getReferenceId());
+        data.put("totalTaxableAmount", entity.getTotalTaxableAmount());
+        data.put("totalDiscountAmount", entity.getTotalDiscountAmount());
+        data.put("totalTaxAmount", entity.getTotalTaxAmount());
+        data.put("totalAmount", entity.getTotalAmount());
+        data.put("createdBy", entity.getCreatedBy());
+        data.put("createdAt", entity.getCreatedAt());
+        data.put("gstType", enumName(entity.getGstType()));
+        data.put("amountPaid", entity.getAmountPaid());
+        data.put("dueAmount", entity.getDueAmount());
+        data.put("paymentStatus", enumName(entity.getPaymentStatus()));
+        data.put("overallAdjustmentType", enumName(entity.getOverallAdjustmentType()));
+        data.put("overallAdjustmentValue", entity.getOverallAdjustmentValue());
+        data.put("calculatedOverallAdjustmentAmount", entity.getCalculatedOverallAdjustmentAmount());
+        data.put("items", toMaps(entity.getItems(), PurchaseItemMapper.INSTANCE));
+        return data;
+    }
+
+    @Override
+    public Purchase fromMap(String documentId, Map<String, Object> data) {
+        return Purchase.builder()
+                .purchaseId(documentId)
+                .organizationId(getString(data, "organizationId"))
+                .branchId(getString(data, "branchId"))
+                .supplierId(getString(data, "supplierId"))
+                .supplierName(getString(data, "supplierName"))
+                .invoiceDate(getTimestamp(data, "invoiceDate"))
+                .referenceId(getString(data, "referenceId"))
+                .totalTaxableAmount(getDouble(data, "totalTaxableAmount"))
+                .totalDiscountAmount(getDouble(data, "totalDiscountAmount"))
+                .totalTaxAmount(getDouble(data, "totalTaxAmount"))
+                .totalAmount(getDouble(data, "totalAmount"))
+                .createdBy(getString(data, "createdBy"))
+                .createdAt(getTimestamp(data, "createdAt"))
+                .gstType(getEnum(data, "gstType", GstType.class))
+                .amountPaid(getDouble(data, "amountPaid"))
+                .dueAmount(getDouble(data, "dueAmount"))
+                .paymentStatus(getEnum(data, "paymentStatus", PaymentStatus.class))
+                .overallAdjustmentType(getEnum(data, "overallAdjustmentType", AdjustmentType.class))
+                .overallAdjustmentValue(getDouble(data, "overallAdjustmentValue"))
+                .calculatedOverallAdjustmentAmount(getDouble(data, "calculatedOverallAdjustmentAmount"))
+                .items(getList(data, "items", PurchaseItemMapper.INSTANCE))
+                .build();
+    }
+}
@@ -0,0 +1,60 @@
+package com.cosmicdoc.common.repository.mapper;
+
+import com.cosmicdoc.common.model.SaleItem;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getDouble;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getInt;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getList;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getString;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.toMaps;
+
+/**
+ * Reflection-free mapping for nested SaleItem values.
+ */
+public final class SaleItemMapper implements DocumentMapper<SaleItem> {
+
+    public static final SaleItemMapper INSTANCE = new SaleItemMapper();
+
+    private SaleItemMapper() {}
+
+    @Override
+    public Map<String, Object> toMap(SaleItem entity) {
+        Map<String, Object> data = new HashMap<>(18);
+        data.put("medicineId", entity.getMedicineId());
+        data.put("batchAllocations", toMaps(entity.getBatchAllocations(), BatchAllocationMapper.INSTANCE));
+        data.put("quantity", entity.getQuantity());
+        data.put("salePrice", entity.getSalePrice());
+        data.put("discountAmount", entity.getDiscountAmount());
+        data.put("taxProfileId", entity.getTaxProfileId());
+        data.put("taxAmount", entity.getTaxAmount());
+        data.put("mrpPerItem", entity.getMrpPerItem());
+        data.put("discountPercentage", entity.getDiscountPercentage());
+        data.put("lineItemDiscountAmount", entity.getLineItemDiscountAmount());
+        data.put("lineItemTaxableAmount", entity.getLineItemTaxableAmount());
+        data.put("lineItemTotalAmount", entity.getLineItemTotalAmount());
+        data.put("taxRateApplied", entity.getTaxRateApplied());
+        return data;
+    }
+
+    @Override
+    public SaleItem fromMap(String documentId, Map<String, Object> data) {
+        return SaleItem.builder()
+                .medicineId(getString(data, "medicineId"))
+                .batchAllocations(getList(data, "batchAllocations", BatchAllocationMapper.INSTANCE))
+                .quantity(getInt(data, "quantity"))
+                .salePrice(getDouble(data, "salePrice"))
+                .discountAmount(getDouble(data, "discountAmount"))
+                .taxProfileId(getString(data, "taxProfileId"))
+                .taxAmount(getDouble(data, "taxAmount"))
+                .mrpPerItem(getDouble(data, "mrpPerItem"))
+                .discountPercentage(getDouble(data, "discountPercentage"))
+                .lineItemDiscountAmount(getDouble(data, "lineItemDiscountAmount"))
+                .lineItemTaxableAmount(getDouble(data, "lineItemTaxableAmount"))
+                .lineItemTotalAmount(getDouble(data, "lineItemTotalAmount"))
+                .taxRateApplied(getDouble(data, "taxRateApplied"))
+                .build();
+    }
+}
@@ -0,0 +1,93 @@
+package com.cosmicdoc.common.repository.mapper;
+
+import com.cosmicdoc.common.model.AdjustmentType;
+import com.cosmicdoc.common.model.GstType;
+import com.cosmicdoc.common.model.PaymentMode;
+import com.cosmicdoc.common.model.Sale;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.enumName;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getDouble;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getEnum;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getInt;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getList;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getString;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getTimestamp;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.toMaps;
+
+/**
+ * Reflection-free mapping for Sale documents and their line items.
+ */
+public final class SaleMapper implements DocumentMapper<Sale> {
+
+    public static final SaleMapper INSTANCE = new SaleMapper();
+
+    private SaleMapper() {}
+
+    @Override
+    public Map<String, Object> toMap(Sale entity) {
+        Map<String, Object> data = new HashMap<>(35);
+        data.put("organizationId", entity.getOrganizationId());
+        data.put("branchId", entity.getBranchId());
+        data.put("saleType", entity.getSaleType());
+        data.put("saleDate", entity.getSaleDate());
+        data.put("createdBy", entity.getCreatedBy());
+        data.put("patientId", entity.getPatientId());
+        data.put("doctorId", entity.getDoctorId());
+        data.put("doctorName", entity.getDoctorName());
+        data.put("prescriptionDate", entity.getPrescriptionDate());
+        data.put("walkInCustomerName", entity.getWalkInCustomerName());
+        data.put("walkInCustomerMobile", entity.getWalkInCustomerMobile());
+        data.put("totalTaxableAmount", entity.getTotalTaxableAmount());
+        data.put("totalTaxAmount", entity.getTotalTaxAmount());
+        data.put("grandTotal", entity.getGrandTotal());
+        data.put("totalMrpAmount", entity.getTotalMrpAmount());
+        data.put("totalDiscountAmount", entity.getTotalDiscountAmount());
+        data.put("paymentMode", enumName(entity.getPaymentMode()));
+        data.put("transactionReference", entity.getTransactionReference());
+        data.put("gstType", enumName(entity.getGstType()));
+        data.put("items", toMaps(entity.getItems(), SaleItemMapper.INSTANCE));
+        data.put("overallAdjustmentType", enumName(entity.getOverallAdjustmentType()));
+        data.put("overallAdjustmentValue", entity.getOverallAdjustmentValue());
+        data.put("calculatedOverallAdjustmentAmount", entity.getCalculatedOverallAdjustmentAmount());
+        data.put("address", entity.getAddress());
+        data.put("gender", entity.getGender());
+        data.put("age", entity.getAge());
+        return data;
+    }
+
+    @Override
+    public Sale fromMap(String documentId, Map<String, Object> data) {
+        return Sale.builder()
+                .saleId(documentId)
+                .organizationId(getString(data, "organizationId"))
+                .branchId(getString(data, "branchId"))
+                .saleType(getString(data, "saleType"))
+                .saleDate(getTimestamp(data, "saleDate"))
+                .createdBy(getString(data, "createdBy"))
+                .patientId(getString(data, "patientId"))
+                .doctorId(getString(data, "doctorId"))
+                .doctorName(getString(data, "doctorName"))
+                .prescriptionDate(getTimestamp(data, "prescriptionDate"))
+                .walkInCustomerName(getString(data, "walkInCustomerName"))
+                .walkInCustomerMobile(getString(data, "walkInCustomerMobile"))
+                .totalTaxableAmount(getDouble(data, "totalTaxableAmount"))
+                .totalTaxAmount(getDouble(data, "totalTaxAmount"))
+                .grandTotal(getDouble(data, "grandTotal"))
+                .totalMrpAmount(getDouble(data, "totalMrpAmount"))
+                .totalDiscountAmount(getDouble(data, "totalDiscountAmount"))
+                .paymentMode(getEnum(data, "paymentMode", PaymentMode.class))
+                .transactionReference(getString(data, "transactionReference"))
+                .gstType(getEnum(data, "gstType", GstType.class))
+                .items(getList(data, "items", SaleItemMapper.INSTANCE))
+                .overallAdjustmentType(getEnum(data, "overallAdjustmentType", AdjustmentType.class))
+                .overallAdjustmentValue(getDouble(data, "overallAdjustmentValue"))
+                .calculatedOverallAdjustmentAmount(getDouble(data, "calculatedOverallAdjustmentAmount"))
+                .address(getString(data, "address"))
+                .gender(getString(data, "gender"))
+                .age(getInt(data, "age"))
+                .build();
+    }
+}
@@ -0,0 +1,35 @@
+package com.cosmicdoc.common.repository.mapper;
+
+import com.cosmicdoc.common.model.TaxComponent;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getDouble;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getString;
+
+/**
+ * Reflection-free mapping for nested TaxComponent values.
+ */
+public final class TaxComponentMapper implements DocumentMapper<TaxComponent> {
+
+    public static final TaxComponentMapper INSTANCE = new TaxComponentMapper();
+
+    private TaxComponentMapper() {}
+
+    @Override
+    public Map<String, Object> toMap(TaxComponent entity) {
+        Map<String, Object> data = new HashMap<>(3);
+        data.put("name", entity.getName());
+        data.put("rate", entity.getRate());
+        return data;
+    }
+
+    @Override
+    public TaxComponent fromMap(String documentId, Map<String, Object> data) {
+        return TaxComponent.builder()
+                .name(getString(data, "name"))
+                .rate(getDouble(data, "rate"))
+                .build();
+    }
+}
@@ -0,0 +1,88 @@
+package com.cosmicdoc.common.repository.mapper;
+
+import com.cosmicdoc.common.model.UserStatus;
+import com.cosmicdoc.common.model.Users;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.enumName;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getString;
+import static com.cosmicdoc.common.repository.mapper.MapperSupport.getTimestamp;
+
+/**
+ * Reflection-free mapping for user documents.
+ * <p>
+ * Reading is lenient with older documents: the password hash is also accepted under the
+ * legacy {@code password_hash} and {@code passwordHash} names, an unknown or missing status
+ * becomes PENDING_VERIFICATION, and a missing organizations list becomes empty.
+ * <p>
+ * Because of that leniency it is not registered in {@link DocumentMappers}: only
+ * {@code findByEmail}, which always decoded users this way, uses it, and every other read keeps
+ * {@code toObject}'s decoding.
+ */
+public final class UsersMapper implements DocumentMapper<Users> {
+
+    public static final UsersMapper INSTANCE = new UsersMapper();
+
+    private UsersMapper() {}
+
+    @Override
+    public Map<String, Object> toMap(Users entity) {
+        Map<String, Object> data = new HashMap<>(14);
+        data.put("email", entity.getEmail());
+        data.put("hashedPassword", entity.getHashedPassword());
+        data.put("status", enumName(entity.getStatus()));
+        data.put("displayName", entity.getDisplayName());
+        data.put("mobileNumber", entity.getMobileNumber());
+        data.put("organizations", entity.getOrganizations());
+        data.put("lastLoginAt", entity.getLastLoginAt());
+        data.put("createdAt", entity.getCreatedAt());
+        data.put("id", entity.getId()); // Written by POJO serialization through Users.getId()
+        return data;
+    }
+
+    @Override
+    public Users fromMap(String documentId, Map<String, Object> data) {
+        Users user = new Users();
+        user.setUserId(documentId);
+        user.setEmail(getString(data, "email"));
+        user.setHashedPassword(firstPresent(data, "hashedPassword", "password_hash", "passwordHash"));
+        user.setStatus(readStatus(data));
+        user.setDisplayName(getString(data, "displayName"));
+        user.setMobileNumber(getString(data, "mobileNumber"));
+        user.setOrganizations(readOrganizations(data));
+        user.setLastLoginAt(getTimestamp(data, "lastLoginAt"));
+        user.setCreatedAt(getTimestamp(data, "createdAt"));
+        return user;
+    }
+
+    private static String firstPresent(Map<String, Object> data, String... fields) {
+        for (String field : fields) {
+            String value = getString(data, field);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static UserStatus readStatus(Map<String, Object> data) {
+        String status = getString(data, "status");
+        if (status == null) {
+            return UserStatus.PENDING_VERIFICATION;
+        }
+        try {
+            return UserStatus.valueOf(status);
+        } catch (IllegalArgumentException e) {
+            return UserStatus.PENDING_VERIFICATION;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> readOrganizations(Map<String, Object> data) {
+        Object organizations = data.get("organizations");
+        return organizations instanceof List ? (List<String>) organizations : List.of();
+    }
+}
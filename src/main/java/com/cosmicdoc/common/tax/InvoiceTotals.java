@@ -0,0 +1,20 @@
+package com.cosmicdoc.common.tax;
+
+import com.cosmicdoc.common.model.Money;
+
+import java.util.Map;
+
+/**
+ * The totals of an invoice as computed by {@link TaxCalculator}.
+ *
+ * @param grossAmount      Sum of the lines before discount (MRP for sales, cost for purchases).
+ * @param discountAmount   Sum of the line discounts.
+ * @param taxableAmount    Sum of the line taxable values.
+ * @param taxAmount        Sum of the line taxes.
+ * @param adjustmentAmount The overall adjustment; negative for discounts, positive for charges.
+ * @param grandTotal       Sum of the line totals plus the adjustment.
+ * @param taxByComponent   The tax split by component name, e.g. CGST and SGST.
+ */
+public record InvoiceTotals(Money grossAmount, Money discountAmount, Money taxableAmount, Money taxAmount,
+                            Money adjustmentAmount, Money grandTotal, Map<String, Money> taxByComponent) {
+}
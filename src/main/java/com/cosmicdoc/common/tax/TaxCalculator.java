@@ -0,0 +1,150 @@
+package com.cosmicdoc.common.tax;
+
+import com.cosmicdoc.common.model.AdjustmentType;
+import com.cosmicdoc.common.model.Money;
+import com.cosmicdoc.common.model.Purchase;
+import com.cosmicdoc.common.model.PurchaseItem;
+import com.cosmicdoc.common.model.Sale;
+import com.cosmicdoc.common.model.SaleItem;
+import com.cosmicdoc.common.model.SupplyType;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes line and invoice amounts of sales and purchases from a compiled {@link TaxRateTable}.
+ * <p>
+ * Both paths run the same single pass over the lines: discount, tax and total of each line are
+ * written back onto the item, and the invoice totals and per-component tax are accumulated on
+ * the way. The only per-line allocation is each purchase item's own copy of its tax components,
+ * so items never share mutable components with the cached table. All arithmetic is on
+ * {@code long} paise via the {@link Money} helpers, so results are exact; the models'
+ * {@code double} fields are only converted at the edges. Per line:
+ * <ul>
+ *     <li>amount = gross - gross * discountPercentage / 100</li>
+ *     <li>EXCLUSIVE: taxable = amount, tax = amount * rate / 100, total = taxable + tax</li>
+ *     <li>INCLUSIVE: tax = amount * rate / (100 + rate), taxable = amount - tax, total = amount</li>
+ *     <li>NON_GST: taxable = total = amount, tax = 0</li>
+ * </ul>
+ * Divisions round half up to paise per line, so the invoice totals are exact sums of the lines. The overall
+ * adjustment is applied to the sum of the line totals and does not change the tax.
+ */
+public final class TaxCalculator {
+
+    private TaxCalculator() {}
+
+    /**
+     * Fills in the items' discount, taxable, tax and total amounts (gross = mrpPerItem * quantity)
+     * and the sale's totals, adjustment and grand total.
+     *
+     * @param supplyType Whether the sale is intra-state (CGST + SGST) or inter-state (IGST).
+     */
+    public static InvoiceTotals applyToSale(TaxRateTable table, Sale sale, SupplyType supplyType) {
+        Pass pass = new Pass(table);
+        List<SaleItem> items = sale.getItems() != null ? sale.getItems() : List.of();
+        for (SaleItem item : items) {
+            TaxRateTable.Rate rate = table.rate(item.getTaxProfileId(), sale.getGstType(), supplyType);
+            pass.line(rate, Math.multiplyExact(Money.toPaise(item.getMrpPerItem()), item.getQuantity()), item.getDiscountPercentage());
+            item.setLineItemDiscountAmount(Money.toDouble(pass.discount));
+            item.setDiscountAmount(Money.toDouble(pass.discount));
+            item.setLineItemTaxableAmount(Money.toDouble(pass.taxable));
+            item.setTaxAmount(Money.toDouble(pass.tax));
+            item.setLineItemTotalAmount(Money.toDouble(pass.total));
+            item.setTaxRateApplied(rate.getPercent());
+        }
+        InvoiceTotals totals = pass.finish(sale.getOverallAdjustmentType(), sale.getOverallAdjustmentValue());
+        sale.setTotalMrpAmount(totals.grossAmount().toDouble());
+        sale.setTotalDiscountAmount(totals.discountAmount().toDouble());
+        sale.setTotalTaxableAmount(totals.taxableAmount().toDouble());
+        sale.setTotalTaxAmount(totals.taxAmount().toDouble());
+        sale.setCalculatedOverallAdjustmentAmount(totals.adjustmentAmount().abs().toDouble());
+        sale.setGrandTotal(totals.grandTotal().toDouble());
+        return totals;
+    }
+
+    /**
+     * Fills in the items' received quantity, discount, taxable, tax and total amounts and tax
+     * components (gross = purchaseCostPerPack * packQuantity) and the purchase's totals.
+     * Payment fields (amountPaid, dueAmount, paymentStatus) are left to the caller.
+     *
+     * @param supplyType Whether the supplier is in the same state (CGST + SGST) or another (IGST).
+     */
+    public static InvoiceTotals applyToPurchase(TaxRateTable table, Purchase purchase, SupplyType supplyType) {
+        Pass pass = new Pass(table);
+        List<PurchaseItem> items = purchase.getItems() != null ? purchase.getItems() : List.of();
+        for (PurchaseItem item : items) {
+            TaxRateTable.Rate rate = table.rate(item.getTaxProfileId(), purchase.getGstType(), supplyType);
+            pass.line(rate, Math.multiplyExact(Money.toPaise(item.getPurchaseCostPerPack()), item.getPackQuantity()), item.getDiscountPercentage());
+            item.setTotalReceivedQuantity((item.getPackQuantity() + item.getFreePackQuantity()) * item.getItemsPerPack());
+            item.setLineItemDiscountAmount(Money.toDouble(pass.discount));
+            item.setLineItemTaxableAmount(Money.toDouble(pass.taxable));
+            item.setLineItemTaxAmount(Money.toDouble(pass.tax));
+            item.setLineItemTotalAmount(Money.toDouble(pass.total));
+            item.setTaxRateApplied(rate.getPercent());
+            item.setTaxComponents(rate.copyComponents());
+        }
+        InvoiceTotals totals = pass.finish(purchase.getOverallAdjustmentType(), purchase.getOverallAdjustmentValue());
+        purchase.setTotalDiscountAmount(totals.discountAmount().toDouble());
+        purchase.setTotalTaxableAmount(totals.taxableAmount().toDouble());
+        purchase.setTotalTaxAmount(totals.taxAmount().toDouble());
+        purchase.setCalculatedOverallAdjustmentAmount(totals.adjustmentAmount().abs().toDouble());
+        purchase.setTotalAmount(totals.grandTotal().toDouble());
+        return totals;
+    }
+
+    /** The running totals of one invoice in paise; the amounts of the latest line are left in discount/taxable/tax/total. */
+    private static final class Pass {
+        private final TaxRateTable table;
+        private final long[] componentTotals;
+        private long gross;
+        private long discounts;
+        private long taxables;
+        private long taxes;
+        private long totals;
+
+        long discount;
+        long taxable;
+        long tax;
+        long total;
+
+        Pass(TaxRateTable table) {
+            this.table = table;
+            this.componentTotals = new long[table.componentCount()];
+        }
+
+        void line(TaxRateTable.Rate rate, long lineGross, double discountPercentage) {
+            discount = Money.percentOf(lineGross, Money.basisPoints(discountPercentage));
+            long amount = lineGross - discount;
+            tax = rate.taxOn(amount);
+            taxable = rate.taxableOf(amount, tax);
+            total = rate.isInclusive() ? amount : amount + tax;
+            rate.split(tax, componentTotals);
+
+            gross += lineGross;
+            discounts += discount;
+            taxables += taxable;
+            taxes += tax;
+            totals += total;
+        }
+
+        InvoiceTotals finish(AdjustmentType adjustmentType, double adjustmentValue) {
+            long adjustment = 0;
+            if (adjustmentType == AdjustmentType.PERCENTAGE_DISCOUNT) {
+                adjustment = -Money.percentOf(totals, Money.basisPoints(adjustmentValue));
+            } else if (adjustmentType == AdjustmentType.FIXED_DISCOUNT) {
+                adjustment = -Money.toPaise(adjustmentValue);
+            } else if (adjustmentType == AdjustmentType.ADDITIONAL_CHARGE) {
+                adjustment = Money.toPaise(adjustmentValue);
+            }
+            Map<String, Money> byComponent = new LinkedHashMap<>();
+            for (int slot = 0; slot < componentTotals.length; slot++) {
+                if (componentTotals[slot] != 0) {
+                    byComponent.put(table.componentName(slot), Money.ofPaise(componentTotals[slot]));
+                }
+            }
+            return new InvoiceTotals(Money.ofPaise(gross), Money.ofPaise(discounts), Money.ofPaise(taxables),
+                    Money.ofPaise(taxes), Money.ofPaise(adjustment), Money.ofPaise(totals + adjustment), byComponent);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.cosmicdoc.common.tax;
+
+import com.cosmicdoc.common.model.GstType;
+import com.cosmicdoc.common.model.Money;
+import com.cosmicdoc.common.model.SupplyType;
+import com.cosmicdoc.common.model.TaxComponent;
+import com.cosmicdoc.common.model.TaxProfile;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An organization's tax profiles compiled into immutable rates keyed by profile ID, {@link GstType}
+ * and {@link SupplyType}.
+ * <p>
+ * A profile lists the components of both supply types, e.g. CGST 9, SGST 9 and IGST 18. An
+ * intra-state rate applies every component except IGST, an inter-state rate only IGST; a profile
+ * whose components do not make that distinction applies all of them either way. The rate is the
+ * profile's total rate when set, else the sum of the applied components.
+ * <p>
+ * Compiling resolves everything a line computation would otherwise redo per line: the effective
+ * rate in basis points, whether it is inclusive, and each component's weight in the tax (e.g. CGST
+ * and SGST taking half each). Component names are mapped to slots so invoice totals can be
+ * accumulated in a plain array. Tables are safe to share between threads.
+ */
+public final class TaxRateTable {
+
+    /** Component reported for profiles that carry a rate but no component list. */
+    public static final String DEFAULT_COMPONENT = "GST";
+
+    /** The component that applies to inter-state supplies only. */
+    public static final String INTER_STATE_COMPONENT = "IGST";
+
+    private static final int SUPPLY_TYPES = SupplyType.values().length;
+
+    private final String organizationId;
+    private final Map<String, Rate[]> rates;
+    private final Rate[] exempt;
+    private final String[] componentNames;
+
+    private TaxRateTable(String organizationId, Map<String, Rate[]> rates, Rate[] exempt, String[] componentNames) {
+        this.organizationId = organizationId;
+        this.rates = rates;
+        this.exempt = exempt;
+        this.componentNames = componentNames;
+    }
+
+    public static TaxRateTable compile(String organizationId, Collection<TaxProfile> profiles) {
+        Map<String, Integer> slots = new LinkedHashMap<>();
+        Map<String, Rate[]> rates = new HashMap<>(profiles.size() * 2);
+        for (TaxProfile profile : profiles) {
+            if (profile.getTaxProfileId() == null) {
+                continue;
+            }
+            Rate[] byKey = new Rate[GstType.values().length * SUPPLY_TYPES];
+            for (SupplyType supplyType : SupplyType.values()) {
+                List<TaxComponent> components = applicable(components(profile), supplyType);
+                long componentSum = 0;
+                for (TaxComponent component : components) {
+                    componentSum += Money.basisPoints(component.getRate());
+                }
+                long basisPoints = profile.getTotalRate() > 0 ? Money.basisPoints(profile.getTotalRate()) : componentSum;
+                int[] componentSlots = new int[components.size()];
+                long[] weights = new long[components.size()];
+                for (int i = 0; i < components.size(); i++) {
+                    componentSlots[i] = slots.computeIfAbsent(nameOf(components.get(i)), key -> slots.size());
+                    // Components without rates share the tax equally
+                    weights[i] = componentSum > 0 ? Money.basisPoints(components.get(i).getRate()) : 1;
+                }
+                List<TaxComponent> shared = Collections.unmodifiableList(copyOf(components));
+                for (GstType type : GstType.values()) {
+                    byKey[index(type, supplyType)] = type == GstType.NON_GST
+                            ? Rate.zero(profile.getTaxProfileId(), type, supplyType)
+                            : new Rate(profile.getTaxProfileId(), type, supplyType, basisPoints, componentSlots, weights, shared);
+                }
+            }
+            rates.put(profile.getTaxProfileId(), byKey);
+        }
+        Rate[] exempt = new Rate[GstType.values().length * SUPPLY_TYPES];
+        for (GstType type : GstType.values()) {
+            for (SupplyType supplyType : SupplyType.values()) {
+                exempt[index(type, supplyType)] = Rate.zero(null, type, supplyType);
+            }
+        }
+        return new TaxRateTable(organizationId, Map.copyOf(rates), exempt, slots.keySet().toArray(new String[0]));
+    }
+
+    private static int index(GstType gstType, SupplyType supplyType) {
+        return gstType.ordinal() * SUPPLY_TYPES + supplyType.ordinal();
+    }
+
+    private static String nameOf(TaxComponent component) {
+        return component.getName() != null ? component.getName() : DEFAULT_COMPONENT;
+    }
+
+    /**
+     * The components levied on one supply type, or all of them if the profile lists only one kind.
+     */
+    private static List<TaxComponent> applicable(List<TaxComponent> components, SupplyType supplyType) {
+        List<TaxComponent> interState = new ArrayList<>();
+        List<TaxComponent> intraState = new ArrayList<>();
+        for (TaxComponent component : components) {
+            (INTER_STATE_COMPONENT.equalsIgnoreCase(nameOf(component)) ? interState : intraState).add(component);
+        }
+        if (interState.isEmpty() || intraState.isEmpty()) {
+            return components;
+        }
+        return supplyType == SupplyType.INTER_STATE ? interState : intraState;
+    }
+
+    private static List<TaxComponent> copyOf(List<TaxComponent> components) {
+        List<TaxComponent> copy = new ArrayList<>(components.size());
+        for (TaxComponent component : components) {
+            copy.add(new TaxComponent(component.getName(), component.getRate()));
+        }
+        return copy;
+    }
+
+    private static List<TaxComponent> components(TaxProfile profile) {
+        if (profile.getComponents() != null && !profile.getComponents().isEmpty()) {
+            return profile.getComponents();
+        }
+        return profile.getTotalRate() > 0
+                ? List.of(TaxComponent.builder().name(DEFAULT_COMPONENT).rate(profile.getTotalRate()).build())
+                : List.of();
+    }
+
+    public String getOrganizationId() {
+        return organizationId;
+    }
+
+    public boolean contains(String taxProfileId) {
+        return rates.containsKey(taxProfileId);
+    }
+
+    /**
+     * @param taxProfileId The line's profile; null means the line is not taxed.
+     * @param gstType      The invoice's GST type; null is treated as {@link GstType#NON_GST}.
+     * @param supplyType   The invoice's supply type; null is treated as {@link SupplyType#INTRA_STATE}.
+     * @throws IllegalArgumentException If the profile does not belong to the organization.
+     */
+    public Rate rate(String taxProfileId, GstType gstType, SupplyType supplyType) {
+        int key = index(gstType != null ? gstType : GstType.NON_GST, supplyType != null ? supplyType : SupplyType.INTRA_STATE);
+        if (taxProfileId == null) {
+            return exempt[key];
+        }
+        Rate[] byKey = rates.get(taxProfileId);
+        if (byKey == null) {
+            throw new IllegalArgumentException("Unknown tax profile: " + taxProfileId + " for organization: " + organizationId);
+        }
+        return byKey[key];
+    }
+
+    /** The number of distinct component names (CGST, SGST, IGST, ...) across the organization's profiles. */
+    public int componentCount() {
+        return componentNames.length;
+    }
+
+    public String componentName(int slot) {
+        return componentNames[slot];
+    }
+
+    /**
+     * The compiled rate of one profile under one GST type and supply type. Amounts are in paise and rounded half up.
+     */
+    public static final class Rate {
+        private final String taxProfileId;
+        private final GstType gstType;
+        private final SupplyType supplyType;
+        private final long basisPoints;
+        private final boolean inclusive;
+        private final int[] componentSlots;
+        private final long[] weights;
+        private final long totalWeight;
+        private final List<TaxComponent> components;
+
+        private Rate(String taxProfileId, GstType gstType, SupplyType supplyType, long basisPoints, int[] componentSlots,
+                     long[] weights, List<TaxComponent> components) {
+            this.taxProfileId = taxProfileId;
+            this.gstType = gstType;
+            this.supplyType = supplyType;
+            this.basisPoints = basisPoints;
+            this.inclusive = gstType == GstType.INCLUSIVE;
+            this.componentSlots = componentSlots;
+            this.weights = weights;
+            long total = 0;
+            for (long weight : weights) {
+                total += weight;
+            }
+            this.totalWeight = total;
+            this.components = components;
+        }
+
+        private static Rate zero(String taxProfileId, GstType gstType, SupplyType supplyType) {
+            return new Rate(taxProfileId, gstType, supplyType, 0, new int[0], new long[0], List.of());
+        }
+
+        public String getTaxProfileId() {
+            return taxProfileId;
+        }
+
+        public GstType getGstType() {
+            return gstType;
+        }
+
+        public SupplyType getSupplyType() {
+            return supplyType;
+        }
+
+        /** The rate applied in basis points (1800 for 18%); 0 for NON_GST. */
+        public long getBasisPoints() {
+            return basisPoints;
+        }
+
+        /** The rate applied, in percent; 0 for NON_GST. */
+        public double getPercent() {
+            return basisPoints / 100.0;
+        }
+
+        public boolean isInclusive() {
+            return inclusive;
+        }
+
+        /** The components applied for the supply type, shared and read-only; do not modify the elements. */
+        public List<TaxComponent> getComponents() {
+            return components;
+        }
+
+        /** A fresh, modifiable copy of the components, e.g. to hand to a line item. */
+        public List<TaxComponent> copyComponents() {
+            return copyOf(components);
+        }
+
+        /**
+         * @param amount The line amount after discount in paise; tax-inclusive when the rate is inclusive.
+         */
+        public long taxOn(long amount) {
+            return inclusive ? Money.inclusiveTaxOf(amount, basisPoints) : Money.percentOf(amount, basisPoints);
+        }
+
+        /** The taxable value of a line amount, i.e. the amount without its tax. */
+        public long taxableOf(long amount, long tax) {
+            return inclusive ? amount - tax : amount;
+        }
+
+        /**
+         * Adds a line's tax to the per-component totals, indexed by the table's slots. The last
+         * component takes the rounding remainder so the components always add up to the tax.
+         */
+        public void split(long tax, long[] componentTotals) {
+            long remaining = tax;
+            for (int i = 0; i < componentSlots.length; i++) {
+                long part = i == componentSlots.length - 1
+                        ? remaining
+                        : Money.divideHalfUp(Math.multiplyExact(tax, weights[i]), totalWeight);
+                componentTotals[componentSlots[i]] += part;
+                remaining -= part;
+            }
+        }
+    }
+}
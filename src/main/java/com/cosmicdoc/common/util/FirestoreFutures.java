@@ -0,0 +1,51 @@
+package com.cosmicdoc.common.util;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A utility class for bridging Firestore's {@link ApiFuture} into the JDK's {@link CompletableFuture}.
+ */
+public final class FirestoreFutures {
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private FirestoreFutures() {}
+
+    /**
+     * Adapts an ApiFuture into a CompletableFuture without blocking any thread.
+     * <p>
+     * The result is completed from the Firestore callback thread, so dependent stages
+     * should stay short or switch to an application executor with the *Async variants.
+     * Cancelling the returned future also cancels the underlying RPC.
+     *
+     * @param apiFuture The future returned by a Firestore call.
+     * @return A CompletableFuture completed with the same value or failure.
+     */
+    public static <T> CompletableFuture<T> toCompletableFuture(ApiFuture<T> apiFuture) {
+        CompletableFuture<T> completableFuture = new CompletableFuture<>();
+        ApiFutures.addCallback(apiFuture, new ApiFutureCallback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                completableFuture.complete(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                completableFuture.completeExceptionally(t);
+            }
+        }, MoreExecutors.directExecutor());
+
+        completableFuture.whenComplete((result, error) -> {
+            if (completableFuture.isCancelled()) {
+                apiFuture.cancel(true);
+            }
+        });
+        return completableFuture;
+    }
+}
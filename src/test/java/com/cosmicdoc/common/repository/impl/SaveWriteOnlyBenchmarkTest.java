@@ -0,0 +1,126 @@
+package com.cosmicdoc.common.repository.impl;
+
+import com.cosmicdoc.common.repository.SaveResult;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.WriteResult;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares {@link BaseRepositoryImpl#save} with {@link BaseRepositoryImpl#saveWriteOnly} against a
+ * collection whose every RPC takes {@link #RPC_LATENCY_MILLIS}. Reads and writes per save are
+ * asserted; the latencies are printed, not asserted.
+ */
+class SaveWriteOnlyBenchmarkTest {
+
+    private static final long RPC_LATENCY_MILLIS = 2;
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 200;
+
+    private final AtomicInteger reads = new AtomicInteger();
+    private final AtomicInteger writes = new AtomicInteger();
+
+    @Test
+    void writeOnlySaveSkipsTheReadBack() {
+        NoteRepository repository = new NoteRepository(collection());
+        Note note = new Note("note-1", "Restock paracetamol");
+
+        Measurement save = measure(() -> repository.save(note));
+        Measurement writeOnly = measure(() -> {
+            SaveResult<Note> result = repository.saveWriteOnly(note);
+            assertThat(result.getUpdateTime()).isNotNull();
+        });
+        System.out.printf("save:          %s%nsaveWriteOnly: %s%n", save, writeOnly);
+
+        assertThat(save.readsPerOp()).isEqualTo(1.0);
+        assertThat(save.writesPerOp()).isEqualTo(1.0);
+        assertThat(writeOnly.readsPerOp()).isEqualTo(0.0);
+        assertThat(writeOnly.writesPerOp()).isEqualTo(1.0);
+    }
+
+    private Measurement measure(Runnable operation) {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+        reads.set(0);
+        writes.set(0);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.run();
+        }
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / ITERATIONS;
+        return new Measurement(micros, (double) reads.get() / ITERATIONS, (double) writes.get() / ITERATIONS);
+    }
+
+    private CollectionReference collection() {
+        WriteResult writeResult = mock(WriteResult.class);
+        when(writeResult.getUpdateTime()).thenReturn(Timestamp.now());
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        when(snapshot.exists()).thenReturn(true);
+        when(snapshot.toObject(Note.class)).thenReturn(new Note("note-1", "Restock paracetamol"));
+
+        DocumentReference document = mock(DocumentReference.class);
+        when(document.getId()).thenReturn("note-1");
+        when(document.set(any(Note.class))).thenAnswer(invocation -> {
+            writes.incrementAndGet();
+            rpc();
+            return ApiFutures.immediateFuture(writeResult);
+        });
+        when(document.get()).thenAnswer(invocation -> {
+            reads.incrementAndGet();
+            rpc();
+            return ApiFutures.immediateFuture(snapshot);
+        });
+        CollectionReference collection = mock(CollectionReference.class);
+        when(collection.document(anyString())).thenReturn(document);
+        return collection;
+    }
+
+    private static void rpc() {
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(RPC_LATENCY_MILLIS));
+    }
+
+    private record Measurement(long microsPerOp, double readsPerOp, double writesPerOp) {
+        @Override
+        public String toString() {
+            return String.format("%,6d us/op, %.1f reads/op, %.1f writes/op", microsPerOp, readsPerOp, writesPerOp);
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Note {
+        private String id;
+        private String text;
+    }
+
+    private static class NoteRepository extends BaseRepositoryImpl<Note, String> {
+        private final CollectionReference collection;
+
+        NoteRepository(CollectionReference collection) {
+            this.collection = collection;
+        }
+
+        @Override
+        protected CollectionReference getCollection() {
+            return collection;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.cosmicdoc.common.repository.mapper;
+
+import com.cosmicdoc.common.model.AdjustmentType;
+import com.cosmicdoc.common.model.BatchAllocation;
+import com.cosmicdoc.common.model.GstType;
+import com.cosmicdoc.common.model.PaymentMode;
+import com.cosmicdoc.common.model.Sale;
+import com.cosmicdoc.common.model.SaleItem;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares {@link SaleMapper} with Firestore's reflective {@code toObject} on a large sale
+ * (200 lines of three batch allocations each). Both read the same snapshot data, shaped the way
+ * Firestore returns it, and must produce equal sales; the timings are printed, not asserted.
+ */
+class DocumentMapperBenchmarkTest {
+
+    private static final int LINES = 200;
+    private static final int WARMUP = 500;
+    private static final int ITERATIONS = 1_000;
+
+    @Test
+    void largeSale() throws ReflectiveOperationException {
+        Sale sale = sale();
+        DocumentSnapshot snapshot = snapshotOf(sale);
+
+        Sale mapped = SaleMapper.INSTANCE.fromSnapshot(snapshot);
+        Sale reflected = snapshot.toObject(Sale.class);
+        assertThat(mapped).isEqualTo(reflected).isEqualTo(sale);
+
+        long mapperNanos = report("SaleMapper.fromSnapshot", () -> SaleMapper.INSTANCE.fromSnapshot(snapshot));
+        long toObjectNanos = report("DocumentSnapshot.toObject", () -> snapshot.toObject(Sale.class));
+        System.out.printf("toObject / mapper: %.1fx%n", (double) toObjectNanos / mapperNanos);
+        report("SaleMapper.toMap", () -> SaleMapper.INSTANCE.toMap(sale));
+    }
+
+    private static long report(String name, Supplier<?> operation) {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.get();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.get();
+        }
+        long nanosPerOp = (System.nanoTime() - start) / ITERATIONS;
+        System.out.printf("%-40s %,10d ns/op%n", name, nanosPerOp);
+        return nanosPerOp;
+    }
+
+    /**
+     * A snapshot whose {@code toObject} is Firestore's own, reading the given sale's data.
+     */
+    private static DocumentSnapshot snapshotOf(Sale sale) throws ReflectiveOperationException {
+        Map<String, Object> data = asStored(SaleMapper.INSTANCE.toMap(sale));
+        DocumentReference reference = mock(DocumentReference.class);
+        when(reference.getId()).thenReturn(sale.getSaleId());
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        when(snapshot.getId()).thenReturn(sale.getSaleId());
+        when(snapshot.getData()).thenReturn(data);
+        when(snapshot.toObject(Sale.class)).thenCallRealMethod();
+        // toObject fills the @DocumentId field from the snapshot's own reference, which a mock lacks.
+        Field docRef = DocumentSnapshot.class.getDeclaredField("docRef");
+        docRef.setAccessible(true);
+        docRef.set(snapshot, reference);
+        return snapshot;
+    }
+
+    /**
+     * Firestore stores integers as 64-bit values and returns them as Long.
+     */
+    @SuppressWarnings("unchecked")
+    private static <V> V asStored(V value) {
+        if (value instanceof Integer) {
+            return (V) Long.valueOf((Integer) value);
+        }
+        if (value instanceof Map) {
+            Map<String, Object> stored = new HashMap<>();
+            ((Map<String, Object>) value).forEach((key, element) -> stored.put(key, asStored(element)));
+            return (V) stored;
+        }
+        if (value instanceof List) {
+            List<Object> stored = new ArrayList<>();
+            ((List<Object>) value).forEach(element -> stored.add(asStored(element)));
+            return (V) stored;
+        }
+        return value;
+    }
+
+    private static Sale sale() {
+        Timestamp now = Timestamp.now();
+        List<SaleItem> items = new ArrayList<>(LINES);
+        for (int i = 0; i < LINES; i++) {
+            List<BatchAllocation> allocations = new ArrayList<>();
+            for (int b = 0; b < 3; b++) {
+                allocations.add(BatchAllocation.builder()
+                        .batchId("batch-" + i + "-" + b)
+                        .batchNo("B" + b)
+                        .quantityTaken(1 + b)
+                        .expiryDate(now)
+                        .build());
+            }
+            items.add(SaleItem.builder()
+                    .medicineId("med-" + i)
+                    .batchAllocations(allocations)
+                    .quantity(6)
+                    .salePrice(10.5 + i)
+                    .discountAmount(1.25)
+                    .taxProfileId("gst_12")
+                    .taxAmount(7.2)
+                    .mrpPerItem(11.75 + i)
+                    .discountPercentage(5)
+                    .lineItemDiscountAmount(3.5)
+                    .lineItemTaxableAmount(60.0)
+                    .lineItemTotalAmount(67.2)
+                    .taxRateApplied(12)
+                    .build());
+        }
+        return Sale.builder()
+                .saleId("sale-1")
+                .organizationId("org-1")
+                .branchId("branch-1")
+                .saleType("PRESCRIPTION")
+                .saleDate(now)
+                .createdBy("user-1")
+                .patientId("patient-1")
+                .doctorId("doctor-1")
+                .doctorName("Dr. Rao")
+                .prescriptionDate(now)
+                .totalTaxableAmount(12000.5)
+                .totalTaxAmount(1440.06)
+                .grandTotal(13440.56)
+                .totalMrpAmount(14000)
+                .totalDiscountAmount(559.44)
+                .paymentMode(PaymentMode.values()[0])
+                .gstType(GstType.EXCLUSIVE)
+                .items(items)
+                .overallAdjustmentType(AdjustmentType.FIXED_DISCOUNT)
+                .overallAdjustmentValue(0.56)
+                .calculatedOverallAdjustmentAmount(0.56)
+                .address("12 MG Road")
+                .gender("F")
+                .age(42)
+                .build();
+    }
+}
@@ -0,0 +1,132 @@
+package com.cosmicdoc.common.tax;
+
+import com.cosmicdoc.common.model.AdjustmentType;
+import com.cosmicdoc.common.model.GstType;
+import com.cosmicdoc.common.model.Money;
+import com.cosmicdoc.common.model.Purchase;
+import com.cosmicdoc.common.model.PurchaseItem;
+import com.cosmicdoc.common.model.Sale;
+import com.cosmicdoc.common.model.SaleItem;
+import com.cosmicdoc.common.model.SupplyType;
+import com.cosmicdoc.common.model.TaxComponent;
+import com.cosmicdoc.common.model.TaxProfile;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Times the tax pass over 100-line invoices. The amounts are checked first, so a regression
+ * cannot hide behind a good number; the timings are printed, not asserted.
+ */
+class TaxCalculatorBenchmarkTest {
+
+    private static final int LINES = 100;
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 5_000;
+
+    private static final List<TaxProfile> PROFILES = List.of(
+            profile("gst_5", 5),
+            profile("gst_12", 12),
+            profile("gst_18", 18),
+            TaxProfile.builder().taxProfileId("gst_exempt").totalRate(0).components(List.of()).build());
+
+    @Test
+    void saleOf100Lines() {
+        TaxRateTable table = TaxRateTable.compile("org-1", PROFILES);
+        Sale sale = sale();
+
+        InvoiceTotals totals = TaxCalculator.applyToSale(table, sale, SupplyType.INTRA_STATE);
+        long lineTax = sale.getItems().stream().mapToLong(item -> Money.toPaise(item.getTaxAmount())).sum();
+        assertThat(totals.taxAmount().getUnits()).isEqualTo(lineTax);
+        assertThat(totals.taxByComponent().values().stream().mapToLong(Money::getUnits).sum()).isEqualTo(lineTax);
+
+        report("applyToSale, " + LINES + " lines", () -> TaxCalculator.applyToSale(table, sale, SupplyType.INTRA_STATE));
+    }
+
+    @Test
+    void purchaseOf100Lines() {
+        TaxRateTable table = TaxRateTable.compile("org-1", PROFILES);
+        Purchase purchase = purchase();
+
+        TaxCalculator.applyToPurchase(table, purchase, SupplyType.INTER_STATE);
+        // Lines 0 and 4 share the gst_5 profile; editing one line's components must not leak.
+        purchase.getItems().get(0).getTaxComponents().get(0).setRate(99);
+        assertThat(purchase.getItems().get(4).getTaxComponents().get(0).getRate()).isEqualTo(5.0);
+        assertThat(table.rate("gst_5", GstType.EXCLUSIVE, SupplyType.INTER_STATE).getComponents().get(0).getRate())
+                .isEqualTo(5.0);
+
+        report("applyToPurchase, " + LINES + " lines", () -> TaxCalculator.applyToPurchase(table, purchase, SupplyType.INTER_STATE));
+    }
+
+    @Test
+    void compileRateTable() {
+        report("compile, " + PROFILES.size() + " profiles", () -> TaxRateTable.compile("org-1", PROFILES));
+    }
+
+    private static void report(String name, Runnable operation) {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.run();
+        }
+        long nanosPerOp = (System.nanoTime() - start) / ITERATIONS;
+        System.out.printf("%-40s %,10d ns/op%n", name, nanosPerOp);
+    }
+
+    private static TaxProfile profile(String id, double rate) {
+        List<TaxComponent> components = List.of(
+                new TaxComponent("CGST", rate / 2),
+                new TaxComponent("SGST", rate / 2),
+                new TaxComponent(TaxRateTable.INTER_STATE_COMPONENT, rate));
+        return TaxProfile.builder().taxProfileId(id).totalRate(rate).components(components).build();
+    }
+
+    private static String profileOf(int line) {
+        return PROFILES.get(line % PROFILES.size()).getTaxProfileId();
+    }
+
+    private static Sale sale() {
+        List<SaleItem> items = new ArrayList<>(LINES);
+        for (int i = 0; i < LINES; i++) {
+            items.add(SaleItem.builder()
+                    .medicineId("med-" + i)
+                    .quantity(1 + i % 5)
+                    .mrpPerItem(12.35 + i)
+                    .discountPercentage(i % 3 == 0 ? 10 : 0)
+                    .taxProfileId(profileOf(i))
+                    .build());
+        }
+        return Sale.builder()
+                .gstType(GstType.INCLUSIVE)
+                .overallAdjustmentType(AdjustmentType.PERCENTAGE_DISCOUNT)
+                .overallAdjustmentValue(2.5)
+                .items(items)
+                .build();
+    }
+
+    private static Purchase purchase() {
+        List<PurchaseItem> items = new ArrayList<>(LINES);
+        for (int i = 0; i < LINES; i++) {
+            items.add(PurchaseItem.builder()
+                    .medicineId("med-" + i)
+                    .packQuantity(1 + i % 7)
+                    .freePackQuantity(i % 10 == 0 ? 1 : 0)
+                    .itemsPerPack(10)
+                    .purchaseCostPerPack(85.5 + i)
+                    .discountPercentage(i % 4 == 0 ? 5 : 0)
+                    .taxProfileId(profileOf(i))
+                    .build());
+        }
+        return Purchase.builder()
+                .gstType(GstType.EXCLUSIVE)
+                .overallAdjustmentType(AdjustmentType.FIXED_DISCOUNT)
+                .overallAdjustmentValue(150)
+                .items(items)
+                .build();
+    }
+}